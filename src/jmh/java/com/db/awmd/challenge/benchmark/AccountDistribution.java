@@ -0,0 +1,46 @@
+package com.db.awmd.challenge.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How benchmark threads pick the accounts they touch.
+ */
+public enum AccountDistribution {
+
+  /** Every thread owns a pair of accounts nobody else uses. */
+  UNCONTENDED,
+
+  /** All threads hit the same two accounts. */
+  HOT_PAIR,
+
+  /** Any two distinct accounts, uniformly at random. */
+  UNIFORM;
+
+  /**
+   * Fills {@code from}/{@code to} with account indexes for one thread. Pairs alternate their
+   * direction so balances do not drain over a long run.
+   */
+  void fill(int thread, int accounts, int[] from, int[] to) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < from.length; i++) {
+      int a;
+      int b;
+      switch (this) {
+        case UNCONTENDED:
+          a = (2 * thread) % accounts;
+          b = a + 1;
+          break;
+        case HOT_PAIR:
+          a = 0;
+          b = 1;
+          break;
+        default:
+          a = random.nextInt(accounts);
+          b = (a + 1 + random.nextInt(accounts - 1)) % accounts;
+      }
+      boolean forward = (i & 1) == 0;
+      from[i] = forward ? a : b;
+      to[i] = forward ? b : a;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link AccountsRepositoryInMemory#getAccount(String)} and
+ * {@link AccountsRepositoryInMemory#createAccount(Account)}. For a large repository run with
+ * {@code -p accounts=10000000} and about 4 GB of heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountLookupBenchmark {
+
+  private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000.00");
+
+  @Param({"UNCONTENDED", "HOT_PAIR", "UNIFORM"})
+  public AccountDistribution distribution;
+
+  @Param("100000")
+  public int accounts;
+
+  private final AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+
+  private final AtomicInteger threads = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void createAccounts() {
+    repository.clearAccounts();
+    for (int i = 0; i < accounts; i++) {
+      repository.createAccount(new Account(BenchmarkContext.accountId(i), OPENING_BALANCE));
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Lookups {
+
+    // Enough distinct ids that a large repository is not looked up from cache alone.
+    private static final int SIZE = 1 << 20;
+
+    private static final int CREATED_PER_ROUND = 1 << 16;
+
+    private final String[] accountIds = new String[SIZE];
+
+    private final String[] newAccountIds = new String[CREATED_PER_ROUND];
+
+    private final AccountsRepositoryInMemory newAccounts = new AccountsRepositoryInMemory();
+
+    private int next;
+
+    private int created;
+
+    @Setup(Level.Trial)
+    public void prepare(AccountLookupBenchmark benchmark) {
+      int thread = benchmark.threads.getAndIncrement();
+      int[] from = new int[SIZE];
+      int[] to = new int[SIZE];
+      benchmark.distribution.fill(thread, benchmark.accounts, from, to);
+      for (int i = 0; i < SIZE; i++) {
+        accountIds[i] = BenchmarkContext.accountId(from[i]);
+      }
+      for (int i = 0; i < CREATED_PER_ROUND; i++) {
+        newAccountIds[i] = "created-" + thread + "-" + i;
+      }
+    }
+
+    String nextId() {
+      return accountIds[next++ & (SIZE - 1)];
+    }
+
+    /**
+     * Creates into a repository of this thread that is emptied every 64k accounts, so a long
+     * run does not fill the heap. The clear is amortised into the measurement.
+     */
+    void createNext() {
+      if (created == CREATED_PER_ROUND) {
+        newAccounts.clearAccounts();
+        created = 0;
+      }
+      newAccounts.createAccount(new Account(newAccountIds[created++], OPENING_BALANCE));
+    }
+  }
+
+  @Benchmark
+  public Account getAccount(Lookups lookups) {
+    return repository.getAccount(lookups.nextId());
+  }
+
+  @Benchmark
+  public void createAccount(Lookups lookups) {
+    lookups.createNext();
+  }
+}
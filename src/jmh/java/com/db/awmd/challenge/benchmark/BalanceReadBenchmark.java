@@ -0,0 +1,68 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The body of {@code GET /v1/accounts/{id}} for a random account: rendered from a fresh
+ * {@link Account} on every read as before, or taken from the account's snapshot, which
+ * renders it once per balance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BalanceReadBenchmark {
+
+  @Param("10000")
+  public int accounts;
+
+  private final AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private String[] accountIds;
+
+  @Setup(Level.Trial)
+  public void createAccounts() {
+    accountIds = new String[accounts];
+    for (int i = 0; i < accounts; i++) {
+      accountIds[i] = BenchmarkContext.accountId(i);
+      repository.createAccount(new Account(accountIds[i], new BigDecimal("1000.00")));
+    }
+  }
+
+  @Benchmark
+  public byte[] renderAccount() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(repository.getAccount(randomAccountId()));
+  }
+
+  @Benchmark
+  public byte[] cachedSnapshot() throws JsonProcessingException {
+    return repository.getAccountSnapshot(randomAccountId()).toJson(objectMapper);
+  }
+
+  private String randomAccountId() {
+    return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+  }
+}
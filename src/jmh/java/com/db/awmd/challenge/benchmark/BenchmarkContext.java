@@ -0,0 +1,47 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.DevChallengeApplication;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the application for benchmarks, by default without the web layer, so they measure
+ * the real bean wiring.
+ */
+final class BenchmarkContext {
+
+  private BenchmarkContext() {
+  }
+
+  /**
+   * @param properties {@code name=value} pairs. They are passed as command line arguments, so
+   *                   unlike default properties they override application.yml.
+   */
+  static ConfigurableApplicationContext start(String... properties) {
+    return start(false, properties);
+  }
+
+  /**
+   * Starts the application with its embedded server, e.g. for load tests over HTTP.
+   */
+  static ConfigurableApplicationContext startServer(String... properties) {
+    return start(true, properties);
+  }
+
+  private static ConfigurableApplicationContext start(boolean web, String... properties) {
+    final String[] args = new String[properties.length];
+    for (int i = 0; i < properties.length; i++) {
+      args[i] = "--" + properties[i];
+    }
+    return new SpringApplicationBuilder(DevChallengeApplication.class)
+      .web(web)
+      .bannerMode(Banner.Mode.OFF)
+      .properties("logging.level.root=WARN")
+      .run(args);
+  }
+
+  static String accountId(int index) {
+    return "bench-" + index;
+  }
+}
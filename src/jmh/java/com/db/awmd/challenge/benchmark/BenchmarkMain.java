@@ -0,0 +1,62 @@
+package com.db.awmd.challenge.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry point of the {@code jmh} Gradle task. Runs the selected benchmarks once per thread
+ * count with the gc profiler enabled and writes {@code results-<threads>t.json} per run, so
+ * results of two commits can be diffed.
+ *
+ * <p>System properties: {@code jmh.include} (benchmark regex, default all),
+ * {@code jmh.threads} (comma separated, default powers of two up to the core count) and
+ * {@code jmh.resultsDir}.
+ */
+public final class BenchmarkMain {
+
+  private BenchmarkMain() {
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    String include = System.getProperty("jmh.include", ".*");
+    File resultsDir = new File(System.getProperty("jmh.resultsDir", "build/reports/jmh"));
+    if (!resultsDir.isDirectory() && !resultsDir.mkdirs()) {
+      throw new IllegalStateException("Cannot create " + resultsDir);
+    }
+
+    for (int threads : threadCounts(System.getProperty("jmh.threads"))) {
+      Options options = new OptionsBuilder()
+        .include(include)
+        .threads(threads)
+        .addProfiler(GCProfiler.class)
+        .resultFormat(ResultFormatType.JSON)
+        .result(new File(resultsDir, "results-" + threads + "t.json").getPath())
+        .build();
+      new Runner(options).run();
+    }
+  }
+
+  private static List<Integer> threadCounts(String property) {
+    List<Integer> counts = new ArrayList<>();
+    if (property != null) {
+      for (String count : property.split(",")) {
+        counts.add(Integer.parseInt(count.trim()));
+      }
+      return counts;
+    }
+    int cores = Runtime.getRuntime().availableProcessors();
+    for (int threads = 1; threads < cores; threads *= 2) {
+      counts.add(threads);
+    }
+    counts.add(cores);
+    return counts;
+  }
+}
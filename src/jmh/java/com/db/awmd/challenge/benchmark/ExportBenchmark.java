@@ -0,0 +1,82 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.service.AccountExporter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AccountExporter#exportAccounts} of {@code accounts} accounts to a stream that only
+ * counts the bytes, and {@link AccountsRepositoryInMemory#listAccounts} of one page. Run it
+ * with the gc profiler to see that the export allocates per account, not per export.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark {
+
+  @Param("1000000")
+  public int accounts;
+
+  private final AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+
+  private final AccountExporter exporter = new AccountExporter(repository, new ObjectMapper());
+
+  private String middle;
+
+  @Setup(Level.Trial)
+  public void createAccounts() {
+    for (int i = 0; i < accounts; i++) {
+      repository.createAccount(new Account(BenchmarkContext.accountId(i), new BigDecimal("1000.00")));
+    }
+    middle = Integer.toString(accounts / 2);
+  }
+
+  @Benchmark
+  public long exportAccounts() throws IOException {
+    final CountingStream out = new CountingStream();
+    exporter.exportAccounts(out);
+    return out.bytes;
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public Object listPage() {
+    return repository.listAccounts(middle, 100);
+  }
+
+  private static final class CountingStream extends OutputStream {
+
+    private long bytes;
+
+    @Override
+    public void write(int b) {
+      bytes++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      bytes += len;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.AccountsRepositoryOffHeap;
+import com.db.awmd.challenge.validator.FundTransferValidator;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point of the {@code footprint} Gradle task. Fills one repository with
+ * {@code footprint.accounts} accounts, then reports the heap and direct memory they hold and
+ * the collector's pauses while creating them, while running random transfers for
+ * {@code footprint.seconds} and for one full collection.
+ *
+ * <p>System properties: {@code footprint.mode} ({@code locking} or {@code offheap}),
+ * {@code footprint.accounts} and {@code footprint.seconds}.
+ */
+public final class FootprintMain {
+
+  private FootprintMain() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    final String mode = System.getProperty("footprint.mode", "offheap");
+    final int accounts = Integer.getInteger("footprint.accounts", 10_000_000);
+    final int seconds = Integer.getInteger("footprint.seconds", 30);
+
+    try (ConfigurableApplicationContext context = BenchmarkContext.start()) {
+      final FundTransferValidator validator = context.getBean(FundTransferValidator.class);
+      final AccountsRepository repository = "offheap".equals(mode)
+        ? new AccountsRepositoryOffHeap(accounts, 4096) : new AccountsRepositoryInMemory();
+
+      final long heapBefore = usedHeapAfterGc();
+      final long directBefore = directMemory();
+      GcSample gc = new GcSample();
+      long started = System.nanoTime();
+      final BigDecimal openingBalance = new BigDecimal("1000.00");
+      for (int i = 0; i < accounts; i++) {
+        repository.createAccount(new Account(BenchmarkContext.accountId(i), openingBalance));
+      }
+      report("create", gc, System.nanoTime() - started);
+      System.out.printf("%s: %,d accounts, heap %,d MB, direct %,d MB%n", mode, accounts,
+        (usedHeapAfterGc() - heapBefore) >> 20, (directMemory() - directBefore) >> 20);
+
+      gc = new GcSample();
+      started = System.nanoTime();
+      final long deadline = started + TimeUnit.SECONDS.toNanos(seconds);
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      long transfers = 0;
+      while (System.nanoTime() < deadline) {
+        for (int i = 0; i < 1024; i++, transfers++) {
+          repository.transfer(BenchmarkContext.accountId(random.nextInt(accounts)),
+            BenchmarkContext.accountId(random.nextInt(accounts)), 1, validator);
+        }
+      }
+      report(String.format("%,d transfers", transfers), gc, System.nanoTime() - started);
+
+      gc = new GcSample();
+      started = System.nanoTime();
+      System.gc();
+      report("full gc", gc, System.nanoTime() - started);
+
+      // Keeps the repository reachable until everything was measured.
+      System.out.println(repository.getAccount(BenchmarkContext.accountId(0)) != null ? "done" : "");
+    }
+  }
+
+  private static void report(String phase, GcSample before, long elapsedNanos) {
+    GcSample after = new GcSample();
+    System.out.printf("%-24s %,8d ms, %,6d collections, %,8d ms paused%n", phase,
+      TimeUnit.NANOSECONDS.toMillis(elapsedNanos), after.count - before.count, after.millis - before.millis);
+  }
+
+  private static long usedHeapAfterGc() {
+    System.gc();
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  private static long directMemory() {
+    for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+      if ("direct".equals(pool.getName())) {
+        return pool.getMemoryUsed();
+      }
+    }
+    return 0;
+  }
+
+  private static final class GcSample {
+
+    private long count;
+    private long millis;
+
+    private GcSample() {
+      for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+        count += Math.max(0, collector.getCollectionCount());
+        millis += Math.max(0, collector.getCollectionTime());
+      }
+    }
+  }
+}
@@ -0,0 +1,282 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.GatewayStats;
+import com.db.awmd.challenge.domain.LatencySummary;
+import com.db.awmd.challenge.gateway.TransferGateway;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.utility.LatencyHistogram;
+import com.db.awmd.challenge.utility.TransferCodec;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Entry point of the {@code gatewayLoadtest} Gradle task. Holds {@code gatewayload.connections}
+ * connections to the {@link TransferGateway} from one selector thread, each keeping a
+ * pipeline of random transfers in flight: a new one is sent for every response that comes
+ * back. It runs once for every depth in {@code gatewayload.depths} and reports transfers per
+ * second and latency percentiles for each.
+ *
+ * <p>Without {@code gatewayload.address} it starts the application itself with the gateway on
+ * a free port, and also reports how many responses went out per network flush. With it, a
+ * {@code host:port}, it loads that gateway; its accounts are created first through the HTTP
+ * API at {@code gatewayload.url} if that is given, and are expected to exist otherwise.
+ *
+ * <p>System properties: {@code gatewayload.address}, {@code gatewayload.url},
+ * {@code gatewayload.depths} (default {@code 1,4,16,64,256}), {@code gatewayload.connections}
+ * (4), {@code gatewayload.accounts} (1000), {@code gatewayload.seconds} (10) and
+ * {@code gatewayload.warmup-seconds} (3).
+ */
+public final class GatewayLoadTestMain {
+
+  /** Distinct requests encoded up front and sent in turn, so the client spends little on them. */
+  private static final int PREPARED_REQUESTS = 4096;
+
+  private GatewayLoadTestMain() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    final String address = System.getProperty("gatewayload.address");
+    final String url = System.getProperty("gatewayload.url");
+    final String[] depths = System.getProperty("gatewayload.depths", "1,4,16,64,256").split(",");
+    final int connections = Integer.getInteger("gatewayload.connections", 4);
+    final int accounts = Integer.getInteger("gatewayload.accounts", 1000);
+    final long seconds = Integer.getInteger("gatewayload.seconds", 10);
+    final long warmupSeconds = Integer.getInteger("gatewayload.warmup-seconds", 3);
+
+    if (address != null) {
+      final int colon = address.lastIndexOf(':');
+      final InetSocketAddress target = new InetSocketAddress(address.substring(0, colon),
+        Integer.parseInt(address.substring(colon + 1)));
+      if (url != null) {
+        final URL http = new URL(url);
+        LoadTestMain.createAccounts(new InetSocketAddress(http.getHost(), http.getPort()), accounts);
+      }
+      for (String depth : depths) {
+        report(connections, new LoadTest(target, connections, Integer.parseInt(depth.trim()), accounts, null)
+          .run(warmupSeconds, seconds));
+      }
+      return;
+    }
+
+    try (ConfigurableApplicationContext context = BenchmarkContext.start("gateway.enabled=true", "gateway.port=0",
+      "gateway.bind-address=127.0.0.1", "metrics.log-interval-seconds=0")) {
+      final AccountsService accountsService = context.getBean(AccountsService.class);
+      for (int i = 0; i < accounts; i++) {
+        accountsService.createAccount(new Account(LoadTestMain.ACCOUNT_PREFIX + i, new BigDecimal("1000000000")));
+      }
+      final TransferGateway gateway = context.getBean(TransferGateway.class);
+      final InetSocketAddress target = new InetSocketAddress("127.0.0.1", gateway.getPort());
+      for (String depth : depths) {
+        report(connections, new LoadTest(target, connections, Integer.parseInt(depth.trim()), accounts,
+          gateway::getStats).run(warmupSeconds, seconds));
+      }
+    }
+  }
+
+  private static void report(int connections, Result result) {
+    final LatencySummary latency = result.latency;
+    System.out.printf(Locale.ROOT, "depth %4d %,4d connections %,12.0f transfers/s  %s  p50 %8.3f ms  "
+        + "p99 %8.3f ms  p99.9 %8.3f ms  max %8.3f ms  rejected %,d  errors %,d%n", result.depth, connections,
+      latency.getCount() / result.seconds,
+      result.flushes > 0 ? String.format(Locale.ROOT, "%,7.1f responses/flush", (double) result.transfers / result.flushes)
+        : "                       ",
+      millis(latency.getP50Nanos()), millis(latency.getP99Nanos()), millis(latency.getP999Nanos()),
+      millis(latency.getMaxNanos()), result.rejected, result.errors);
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+
+  private static final class Result {
+
+    private final int depth;
+    private final LatencySummary latency;
+    private final double seconds;
+    private final long rejected;
+    private final long errors;
+    private final long transfers;
+    private final long flushes;
+
+    private Result(int depth, LatencySummary latency, double seconds, long rejected, long errors, long transfers,
+                   long flushes) {
+      this.depth = depth;
+      this.latency = latency;
+      this.seconds = seconds;
+      this.rejected = rejected;
+      this.errors = errors;
+      this.transfers = transfers;
+      this.flushes = flushes;
+    }
+  }
+
+  /**
+   * Closed-loop load from one selector thread: every connection keeps {@code depth} transfers
+   * in flight. The replacements for all responses read at once are written with one call.
+   */
+  private static final class LoadTest {
+
+    private final InetSocketAddress address;
+    private final int connections;
+    private final int depth;
+    private final Supplier<GatewayStats> gatewayStats;
+    private final byte[][] requests = new byte[PREPARED_REQUESTS][];
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private boolean measuring;
+    private long rejected;
+    private long errors;
+
+    private LoadTest(InetSocketAddress address, int connections, int depth, int accounts,
+                     Supplier<GatewayStats> gatewayStats) {
+      this.address = address;
+      this.connections = connections;
+      this.depth = depth;
+      this.gatewayStats = gatewayStats;
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      final ByteBuffer buffer = ByteBuffer.allocate(256);
+      for (int i = 0; i < requests.length; i++) {
+        final int from = random.nextInt(accounts);
+        final int to = (from + 1 + random.nextInt(Math.max(1, accounts - 1))) % accounts;
+        buffer.clear();
+        buffer.position(2);
+        TransferCodec.encode(buffer, LoadTestMain.ACCOUNT_PREFIX + from, LoadTestMain.ACCOUNT_PREFIX + to, 100, null);
+        buffer.putShort(0, (short) (buffer.position() - 2));
+        requests[i] = Arrays.copyOf(buffer.array(), buffer.position());
+      }
+    }
+
+    private Result run(long warmupSeconds, long seconds) throws IOException {
+      try (Selector selector = Selector.open()) {
+        for (int i = 0; i < connections; i++) {
+          final SocketChannel channel = SocketChannel.open(address);
+          channel.configureBlocking(false);
+          channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+          final Connection connection = new Connection(channel, depth, i * (PREPARED_REQUESTS / connections));
+          final SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+          send(key, connection, depth);
+        }
+
+        final long started = System.nanoTime();
+        final long measureFrom = started + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        final long end = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        GatewayStats before = null;
+        long now = started;
+        while (now < end) {
+          selector.select(100);
+          now = System.nanoTime();
+          if (!measuring && now >= measureFrom) {
+            measuring = true;
+            before = gatewayStats == null ? null : gatewayStats.get();
+          }
+          final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while (keys.hasNext()) {
+            final SelectionKey key = keys.next();
+            keys.remove();
+            handle(key, (Connection) key.attachment());
+          }
+        }
+        final GatewayStats after = gatewayStats == null ? null : gatewayStats.get();
+
+        for (SelectionKey key : selector.keys()) {
+          key.channel().close();
+        }
+        return new Result(depth, latency.summarize(), seconds, rejected, errors,
+          before == null ? 0 : after.getTransfers() - before.getTransfers(),
+          before == null ? 0 : after.getFlushes() - before.getFlushes());
+      }
+    }
+
+    private void handle(SelectionKey key, Connection connection) {
+      try {
+        if (key.isReadable()) {
+          read(key, connection);
+        } else if (key.isWritable()) {
+          write(key, connection);
+        }
+      } catch (IOException e) {
+        errors++;
+        key.cancel();
+      }
+    }
+
+    private void read(SelectionKey key, Connection connection) throws IOException {
+      final ByteBuffer in = connection.in;
+      if (connection.channel.read(in) < 0) {
+        throw new IOException("Connection closed by the gateway");
+      }
+      in.flip();
+      int responses = 0;
+      while (in.remaining() >= TransferCodec.RESPONSE_LENGTH) {
+        final byte outcome = in.get();
+        in.getLong();
+        final long sentAt = connection.sentAt[connection.oldest];
+        connection.oldest = (connection.oldest + 1) % depth;
+        if (measuring) {
+          latency.recordSince(sentAt);
+          if (outcome != TransferCodec.OK) {
+            rejected++;
+          }
+        }
+        responses++;
+      }
+      in.compact();
+      if (responses > 0) {
+        send(key, connection, responses);
+      }
+    }
+
+    private void send(SelectionKey key, Connection connection, int count) throws IOException {
+      final long now = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        connection.out.put(requests[connection.nextRequest]);
+        connection.nextRequest = (connection.nextRequest + 1) % PREPARED_REQUESTS;
+        connection.sentAt[connection.newest] = now;
+        connection.newest = (connection.newest + 1) % depth;
+      }
+      write(key, connection);
+    }
+
+    private void write(SelectionKey key, Connection connection) throws IOException {
+      final ByteBuffer out = connection.out;
+      out.flip();
+      connection.channel.write(out);
+      out.compact();
+      key.interestOps(out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+  }
+
+  private static final class Connection {
+
+    private final SocketChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+    private final ByteBuffer out;
+    /** Send times of the transfers in flight, oldest first, in a ring. */
+    private final long[] sentAt;
+    private int oldest;
+    private int newest;
+    private int nextRequest;
+
+    private Connection(SocketChannel channel, int depth, int firstRequest) {
+      this.channel = channel;
+      this.out = ByteBuffer.allocate(depth * 256);
+      this.sentAt = new long[depth];
+      this.nextRequest = firstRequest;
+    }
+  }
+}
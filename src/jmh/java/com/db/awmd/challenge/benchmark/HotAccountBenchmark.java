@@ -0,0 +1,95 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.service.AccountsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link AccountsService#transfer(Transfer)} where every transfer touches one fee account:
+ * each thread has an account of its own and pays into the fee account three times for each
+ * refund it gets from it. {@code cells} 1 keeps the fee account whole, more split its balance.
+ * Run with several thread counts, e.g. {@code -Djmh.threads=1,2,4,8,16,32,64} through
+ * {@link BenchmarkMain}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotAccountBenchmark {
+
+  private static final String FEE_ACCOUNT = "fees";
+  private static final int ACCOUNTS = 64;
+  private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000000000");
+  private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+  @Param({"1", "16"})
+  public int cells;
+
+  private ConfigurableApplicationContext context;
+
+  private AccountsService accountsService;
+
+  private final AtomicInteger threads = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContext.start("accounts.hot.account-ids=" + FEE_ACCOUNT, "accounts.hot.cells=" + cells);
+    accountsService = context.getBean(AccountsService.class);
+    accountsService.createAccount(new Account(FEE_ACCOUNT, OPENING_BALANCE));
+    for (int i = 0; i < ACCOUNTS; i++) {
+      accountsService.createAccount(new Account(BenchmarkContext.accountId(i), OPENING_BALANCE));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @State(Scope.Thread)
+  public static class Transfers {
+
+    private final Transfer[] transfers = new Transfer[4];
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void prepare(HotAccountBenchmark benchmark) {
+      final String own = BenchmarkContext.accountId(benchmark.threads.getAndIncrement() % ACCOUNTS);
+      for (int i = 0; i < 3; i++) {
+        transfers[i] = new Transfer(own, FEE_ACCOUNT, AMOUNT);
+      }
+      transfers[3] = new Transfer(FEE_ACCOUNT, own, AMOUNT);
+    }
+
+    Transfer next() {
+      return transfers[next++ & 3];
+    }
+  }
+
+  @Benchmark
+  public ResponseEntity transfer(Transfers transfers) {
+    return accountsService.transfer(transfers.next());
+  }
+}
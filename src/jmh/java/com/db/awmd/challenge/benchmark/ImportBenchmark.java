@@ -0,0 +1,77 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.ImportSummary;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.service.AccountImporter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AccountImporter#importAccounts} of a body of {@code lines} new accounts into an
+ * empty {@link AccountsRepositoryInMemory}. The score is the time of one whole import; divide
+ * {@code lines} by it for accounts per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class ImportBenchmark {
+
+  @Param({"NDJSON", "CSV"})
+  public AccountImporter.Format format;
+
+  @Param("1000000")
+  public int lines;
+
+  private byte[] body;
+
+  private AccountImporter importer;
+
+  @Setup(Level.Trial)
+  public void prepareBody() {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(lines * 48);
+    final StringBuilder line = new StringBuilder();
+    for (int i = 0; i < lines; i++) {
+      line.setLength(0);
+      if (format == AccountImporter.Format.NDJSON) {
+        line.append("{\"accountId\":\"").append(BenchmarkContext.accountId(i)).append("\",\"balance\":")
+          .append(i % 100_000).append('.').append(i % 90 + 10).append("}\n");
+      } else {
+        line.append(BenchmarkContext.accountId(i)).append(',').append(i % 100_000).append('.')
+          .append(i % 90 + 10).append('\n');
+      }
+      final byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+      out.write(bytes, 0, bytes.length);
+    }
+    body = out.toByteArray();
+  }
+
+  @Setup(Level.Invocation)
+  public void emptyRepository() {
+    importer = new AccountImporter(new AccountsRepositoryInMemory(), new ObjectMapper(), 8192, 1000);
+  }
+
+  @Benchmark
+  public ImportSummary importAccounts() throws IOException {
+    return importer.importAccounts(new ByteArrayInputStream(body), format);
+  }
+}
@@ -0,0 +1,119 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.Response;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.TransferJournal;
+import com.db.awmd.challenge.validator.FundTransferValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Journaled transfers per second for each {@link TransferJournal.Durability} mode. The
+ * journal is written to the temporary directory, so results depend on that disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JournalBenchmark {
+
+  private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000000000");
+
+  @Param({"FSYNC", "GROUP", "ASYNC"})
+  public TransferJournal.Durability durability;
+
+  @Param("200")
+  public long groupCommitWindowMicros;
+
+  @Param("UNIFORM")
+  public AccountDistribution distribution;
+
+  @Param("10000")
+  public int accounts;
+
+  private ConfigurableApplicationContext context;
+
+  private FundTransferValidator validator;
+
+  private Path directory;
+
+  private TransferJournal journal;
+
+  private AccountsRepositoryInMemory repository;
+
+  private final AtomicInteger threads = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void start() throws IOException {
+    context = BenchmarkContext.start();
+    validator = context.getBean(FundTransferValidator.class);
+
+    directory = Files.createTempDirectory("journal-benchmark");
+    journal = new TransferJournal(directory.resolve("accounts.journal"), durability, groupCommitWindowMicros);
+    repository = new AccountsRepositoryInMemory();
+    repository.setJournal(journal);
+    repository.recover();
+    for (int i = 0; i < accounts; i++) {
+      repository.createAccount(new Account(BenchmarkContext.accountId(i), OPENING_BALANCE));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() throws IOException {
+    journal.close();
+    Files.deleteIfExists(directory.resolve("accounts.journal"));
+    Files.deleteIfExists(directory);
+    context.close();
+  }
+
+  @State(Scope.Thread)
+  public static class Transfers {
+
+    private static final int SIZE = 1 << 12;
+
+    private final String[] from = new String[SIZE];
+
+    private final String[] to = new String[SIZE];
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void prepare(JournalBenchmark benchmark) {
+      int[] fromIndex = new int[SIZE];
+      int[] toIndex = new int[SIZE];
+      benchmark.distribution.fill(benchmark.threads.getAndIncrement(), benchmark.accounts, fromIndex, toIndex);
+      for (int i = 0; i < SIZE; i++) {
+        from[i] = BenchmarkContext.accountId(fromIndex[i]);
+        to[i] = BenchmarkContext.accountId(toIndex[i]);
+      }
+    }
+  }
+
+  @Benchmark
+  public Response transfer(Transfers transfers) {
+    final int i = transfers.next++ & (Transfers.SIZE - 1);
+    return repository.transfer(transfers.from[i], transfers.to[i], 1, validator);
+  }
+}
@@ -0,0 +1,85 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.AccountTransactions;
+import com.db.awmd.challenge.repository.TransferLedger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TransferLedger#append} between random accounts, from one thread and from four at once
+ * to show that writers do not contend, and a query of 100 entries in the middle of the history
+ * of an account that takes part in {@code hotEntries} transfers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms3g", "-Xmx3g"})
+public class LedgerBenchmark {
+
+  private static final int ACCOUNTS = 100_000;
+
+  @Param("4000000")
+  public int hotEntries;
+
+  private TransferLedger ledger;
+
+  private String[] accountIds;
+
+  private long middle;
+
+  @Setup(Level.Trial)
+  public void fillLedger() throws IOException {
+    ledger = new TransferLedger(null, 64);
+    accountIds = new String[ACCOUNTS];
+    for (int i = 0; i < ACCOUNTS; i++) {
+      accountIds[i] = BenchmarkContext.accountId(i);
+    }
+    final long started = System.currentTimeMillis();
+    for (int i = 0; i < hotEntries; i++) {
+      ledger.append("hot", accountIds[i % ACCOUNTS], 100);
+    }
+    middle = started + (System.currentTimeMillis() - started) / 2;
+  }
+
+  @TearDown(Level.Trial)
+  public void close() throws IOException {
+    ledger.close();
+  }
+
+  @Benchmark
+  public void append() {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    ledger.append(accountIds[random.nextInt(ACCOUNTS)], accountIds[random.nextInt(ACCOUNTS)], 100);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void appendFromFourThreads() {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    ledger.append(accountIds[random.nextInt(ACCOUNTS)], accountIds[random.nextInt(ACCOUNTS)], 100);
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public AccountTransactions queryHotAccount() {
+    return ledger.transactions("hot", middle, Long.MAX_VALUE, 100);
+  }
+}
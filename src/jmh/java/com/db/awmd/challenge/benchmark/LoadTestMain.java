@@ -0,0 +1,351 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.LatencySummary;
+import com.db.awmd.challenge.utility.LatencyHistogram;
+import com.db.awmd.challenge.utility.TransferCodec;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point of the {@code loadtest} Gradle task. Holds {@code loadtest.connections}
+ * keep-alive connections to the accounts API from one selector thread, each sending random
+ * transfers back to back, and reports throughput and latency percentiles.
+ *
+ * <p>Without {@code loadtest.url} it starts the application itself on a free port, once for
+ * every execution mode in {@code loadtest.modes}, so the modes are compared under the same
+ * load. With it, it loads that server, whose accounts are created first.
+ *
+ * <p>Transfers are sent in every format of {@code loadtest.formats}: {@code json}, or
+ * {@code binary} for the {@link TransferCodec} encoding. Besides throughput and latency the
+ * report has the bytes each transfer took on the wire, request and response together,
+ * headers included.
+ *
+ * <p>System properties: {@code loadtest.url}, {@code loadtest.modes} (default
+ * {@code blocking,async}), {@code loadtest.formats} ({@code json,binary}),
+ * {@code loadtest.connections} (1000), {@code loadtest.accounts}
+ * (1000), {@code loadtest.seconds} (30) and {@code loadtest.warmup-seconds} (5). One client
+ * address reaches at most about 28k connections to a server port before it runs out of
+ * ephemeral ports; spread larger runs over several client hosts.
+ */
+public final class LoadTestMain {
+
+  static final String ACCOUNT_PREFIX = "load-";
+
+  private LoadTestMain() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    final String url = System.getProperty("loadtest.url");
+    final String[] modes = System.getProperty("loadtest.modes", "blocking,async").split(",");
+    final String[] formats = System.getProperty("loadtest.formats", "json,binary").split(",");
+    final int connections = Integer.getInteger("loadtest.connections", 1000);
+    final int accounts = Integer.getInteger("loadtest.accounts", 1000);
+    final long seconds = Integer.getInteger("loadtest.seconds", 30);
+    final long warmupSeconds = Integer.getInteger("loadtest.warmup-seconds", 5);
+
+    if (url != null) {
+      final URL target = new URL(url);
+      final InetSocketAddress address = new InetSocketAddress(target.getHost(), target.getPort());
+      createAccounts(address, accounts);
+      for (String format : formats) {
+        report(target + " " + format.trim(), connections,
+          new LoadTest(address, connections, accounts, Format.of(format)).run(warmupSeconds, seconds));
+      }
+      return;
+    }
+
+    for (String mode : modes) {
+      try (ConfigurableApplicationContext context = BenchmarkContext.startServer("server.port=0",
+        "web.execution-mode=" + mode.trim(), "metrics.log-interval-seconds=0")) {
+        final int port = ((EmbeddedWebApplicationContext) context).getEmbeddedServletContainer().getPort();
+        final InetSocketAddress address = new InetSocketAddress("localhost", port);
+        createAccounts(address, accounts);
+        for (String format : formats) {
+          report(mode.trim() + " " + format.trim(), connections,
+            new LoadTest(address, connections, accounts, Format.of(format)).run(warmupSeconds, seconds));
+        }
+      }
+    }
+  }
+
+  static void createAccounts(InetSocketAddress address, int accounts) throws IOException {
+    for (int i = 0; i < accounts; i++) {
+      final HttpURLConnection connection = (HttpURLConnection) new URL("http", address.getHostString(),
+        address.getPort(), "/v1/accounts").openConnection();
+      connection.setRequestMethod("POST");
+      connection.setRequestProperty("Content-Type", "application/json");
+      connection.setDoOutput(true);
+      try (OutputStream body = connection.getOutputStream()) {
+        body.write(("{\"accountId\":\"" + ACCOUNT_PREFIX + i + "\",\"balance\":1000000000}")
+          .getBytes(StandardCharsets.UTF_8));
+      }
+      // 400 means the account is left over from an earlier run, which is fine.
+      connection.getResponseCode();
+      connection.disconnect();
+    }
+  }
+
+  private static void report(String label, int connections, Result result) {
+    final LatencySummary latency = result.latency;
+    System.out.printf(Locale.ROOT, "%-16s %,7d connections %,10.0f req/s  %,5.0f B/transfer  p50 %8.2f ms  "
+        + "p99 %8.2f ms  p99.9 %8.2f ms  max %8.2f ms  4xx %,d  503 %,d  errors %,d%n", label, connections,
+      latency.getCount() / result.seconds, latency.getCount() == 0 ? 0.0 : (double) result.bytes / latency.getCount(),
+      millis(latency.getP50Nanos()), millis(latency.getP99Nanos()),
+      millis(latency.getP999Nanos()), millis(latency.getMaxNanos()), result.clientErrors, result.busy,
+      result.errors);
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+
+  private static final class Result {
+
+    private final LatencySummary latency;
+    private final double seconds;
+    private final long clientErrors;
+    private final long busy;
+    private final long errors;
+    private final long bytes;
+
+    private Result(LatencySummary latency, double seconds, long clientErrors, long busy, long errors, long bytes) {
+      this.latency = latency;
+      this.seconds = seconds;
+      this.clientErrors = clientErrors;
+      this.busy = busy;
+      this.errors = errors;
+      this.bytes = bytes;
+    }
+  }
+
+  private enum Format {
+    JSON, BINARY;
+
+    static Format of(String name) {
+      return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+  }
+
+  /**
+   * Closed-loop load from one selector thread: every connection has at most one request in
+   * flight and sends the next as soon as the response is in. Connections the server closes,
+   * e.g. after its keep-alive request limit, are opened again.
+   */
+  private static final class LoadTest {
+
+    private final InetSocketAddress address;
+    private final int connections;
+    private final int accounts;
+    private final Format format;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final ByteBuffer binaryBody = ByteBuffer.allocate(256);
+    private boolean measuring;
+    private long clientErrors;
+    private long busy;
+    private long errors;
+    private long bytes;
+
+    private LoadTest(InetSocketAddress address, int connections, int accounts, Format format) {
+      this.address = address;
+      this.connections = connections;
+      this.accounts = accounts;
+      this.format = format;
+    }
+
+    private Result run(long warmupSeconds, long seconds) throws IOException {
+      try (Selector selector = Selector.open()) {
+        for (int i = 0; i < connections; i++) {
+          connect(selector, new Connection());
+        }
+
+        final long started = System.nanoTime();
+        final long measureFrom = started + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        final long end = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        long now = started;
+        while (now < end) {
+          selector.select(100);
+          now = System.nanoTime();
+          measuring = now >= measureFrom;
+          final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while (keys.hasNext()) {
+            final SelectionKey key = keys.next();
+            keys.remove();
+            handle(selector, key, (Connection) key.attachment());
+          }
+        }
+
+        for (SelectionKey key : selector.keys()) {
+          key.channel().close();
+        }
+        return new Result(latency.summarize(), seconds, clientErrors, busy, errors, bytes);
+      }
+    }
+
+    private void handle(Selector selector, SelectionKey key, Connection connection) {
+      try {
+        if (key.isConnectable()) {
+          connection.channel.finishConnect();
+          send(key, connection);
+        } else if (key.isWritable()) {
+          write(key, connection);
+        } else if (key.isReadable()) {
+          read(selector, key, connection);
+        }
+      } catch (IOException e) {
+        if (measuring) {
+          errors++;
+        }
+        reconnect(selector, key, connection);
+      }
+    }
+
+    private void read(Selector selector, SelectionKey key, Connection connection) throws IOException {
+      if (connection.channel.read(connection.in) < 0) {
+        throw new IOException("Connection closed by server");
+      }
+      final int status = connection.completeResponse();
+      if (status < 0) {
+        return;
+      }
+      if (measuring) {
+        latency.recordSince(connection.sentAt);
+        bytes += connection.out.limit() + connection.in.position();
+        if (status == 503) {
+          busy++;
+        } else if (status >= 400 && status < 500) {
+          clientErrors++;
+        } else if (status >= 500) {
+          errors++;
+        }
+      }
+      if (connection.closeAfterResponse) {
+        reconnect(selector, key, connection);
+      } else {
+        send(key, connection);
+      }
+    }
+
+    private void send(SelectionKey key, Connection connection) throws IOException {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      final int from = random.nextInt(accounts);
+      final int to = (from + 1 + random.nextInt(Math.max(1, accounts - 1))) % accounts;
+      final byte[] body;
+      final String contentType;
+      if (format == Format.BINARY) {
+        binaryBody.clear();
+        TransferCodec.encode(binaryBody, ACCOUNT_PREFIX + from, ACCOUNT_PREFIX + to, 100, null);
+        body = Arrays.copyOf(binaryBody.array(), binaryBody.position());
+        contentType = TransferCodec.MEDIA_TYPE;
+      } else {
+        body = ("{\"accountFromId\":\"" + ACCOUNT_PREFIX + from + "\",\"accountToId\":\""
+          + ACCOUNT_PREFIX + to + "\",\"amount\":1}").getBytes(StandardCharsets.US_ASCII);
+        contentType = "application/json";
+      }
+      final byte[] header = ("PUT /v1/accounts/transfer HTTP/1.1\r\nHost: " + address.getHostString()
+        + "\r\nContent-Type: " + contentType + "\r\nContent-Length: " + body.length + "\r\n\r\n")
+        .getBytes(StandardCharsets.US_ASCII);
+      connection.out = ByteBuffer.allocate(header.length + body.length);
+      connection.out.put(header).put(body).flip();
+      connection.in.clear();
+      connection.sentAt = System.nanoTime();
+      write(key, connection);
+    }
+
+    private void write(SelectionKey key, Connection connection) throws IOException {
+      connection.channel.write(connection.out);
+      key.interestOps(connection.out.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    private void reconnect(Selector selector, SelectionKey key, Connection connection) {
+      key.cancel();
+      try {
+        connection.channel.close();
+        connect(selector, connection);
+      } catch (IOException e) {
+        errors++;
+      }
+    }
+
+    private void connect(Selector selector, Connection connection) throws IOException {
+      final SocketChannel channel = SocketChannel.open();
+      channel.configureBlocking(false);
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      connection.channel = channel;
+      if (channel.connect(address)) {
+        send(channel.register(selector, SelectionKey.OP_WRITE, connection), connection);
+      } else {
+        channel.register(selector, SelectionKey.OP_CONNECT, connection);
+      }
+    }
+  }
+
+  private static final class Connection {
+
+    private SocketChannel channel;
+    private ByteBuffer out;
+    private final ByteBuffer in = ByteBuffer.allocate(8 * 1024);
+    private long sentAt;
+    private boolean closeAfterResponse;
+
+    /**
+     * Status of the response read so far if it is complete, otherwise -1. Handles
+     * {@code Content-Length} and chunked bodies; a response never shares the buffer with the
+     * next, as only one request is in flight.
+     */
+    private int completeResponse() {
+      final int length = in.position();
+      final byte[] data = in.array();
+      final int headerEnd = indexOf(data, length, "\r\n\r\n", 0);
+      if (headerEnd < 0) {
+        return -1;
+      }
+      final String header = new String(data, 0, headerEnd, StandardCharsets.US_ASCII).toLowerCase(Locale.ROOT);
+      final int bodyStart = headerEnd + 4;
+      final int contentLength = header.indexOf("\r\ncontent-length:");
+      if (contentLength >= 0) {
+        final int valueEnd = header.indexOf("\r\n", contentLength + 2);
+        final int bodyLength = Integer.parseInt(header.substring(contentLength + 17,
+          valueEnd < 0 ? header.length() : valueEnd).trim());
+        if (length < bodyStart + bodyLength) {
+          return -1;
+        }
+      } else if (header.contains("\r\ntransfer-encoding: chunked")) {
+        if (length < bodyStart + 5 || indexOf(data, length, "0\r\n\r\n", length - 5) < 0) {
+          return -1;
+        }
+      }
+      closeAfterResponse = header.contains("\r\nconnection: close");
+      return Integer.parseInt(header.substring(9, 12));
+    }
+
+    private static int indexOf(byte[] data, int length, String pattern, int from) {
+      outer:
+      for (int i = Math.max(0, from); i <= length - pattern.length(); i++) {
+        for (int j = 0; j < pattern.length(); j++) {
+          if (data[i + j] != pattern.charAt(j)) {
+            continue outer;
+          }
+        }
+        return i;
+      }
+      return -1;
+    }
+  }
+}
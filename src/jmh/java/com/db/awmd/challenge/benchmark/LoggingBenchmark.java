@@ -0,0 +1,115 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.web.AccountsController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AccountsController#makeTransfer} with its request logging, per appender and request
+ * log mode. Console output goes to a temporary file, so the appender does real I/O without
+ * flooding the benchmark output. Run with several threads to see appender contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingBenchmark {
+
+  private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000000000");
+  private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+  private static final int ACCOUNTS = 10000;
+
+  /** {@code appender:request log mode}. */
+  @Param({"CONSOLE:all", "ASYNC:all", "ASYNC:sampled", "ASYNC:off"})
+  public String logging;
+
+  private ConfigurableApplicationContext context;
+
+  private AccountsController controller;
+
+  private PrintStream console;
+
+  private Path output;
+
+  @Setup(Level.Trial)
+  public void start() throws IOException {
+    output = Files.createTempFile("logging-benchmark", ".log");
+    console = System.out;
+    System.setOut(new PrintStream(new FileOutputStream(output.toFile()), false, "UTF-8"));
+
+    final String[] setting = logging.split(":");
+    context = BenchmarkContext.start("logging.appender=" + setting[0], "logging.requests.mode=" + setting[1],
+      "logging.level.com.db.awmd.challenge.web=INFO");
+    controller = context.getBean(AccountsController.class);
+    final AccountsService accountsService = context.getBean(AccountsService.class);
+    for (int i = 0; i < ACCOUNTS; i++) {
+      accountsService.createAccount(new Account(BenchmarkContext.accountId(i), OPENING_BALANCE));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() throws IOException {
+    context.close();
+    System.out.close();
+    System.setOut(console);
+    Files.deleteIfExists(output);
+  }
+
+  @State(Scope.Thread)
+  public static class Transfers {
+
+    private static final int SIZE = 1 << 12;
+
+    private final Transfer[] transfers = new Transfer[SIZE];
+
+    private final Errors[] errors = new Errors[SIZE];
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      for (int i = 0; i < SIZE; i++) {
+        final int from = random.nextInt(ACCOUNTS);
+        final int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+        transfers[i] = new Transfer(BenchmarkContext.accountId(from), BenchmarkContext.accountId(to), AMOUNT);
+        errors[i] = new BeanPropertyBindingResult(transfers[i], "transfer");
+      }
+    }
+  }
+
+  @Benchmark
+  public ResponseEntity makeTransfer(Transfers transfers) {
+    final int i = transfers.next++ & (Transfers.SIZE - 1);
+    return controller.makeTransfer(transfers.transfers[i], transfers.errors[i]);
+  }
+}
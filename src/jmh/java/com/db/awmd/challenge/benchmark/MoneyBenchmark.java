@@ -0,0 +1,61 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.utility.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balance check plus debit and credit of one transfer, with {@link BigDecimal} balances as
+ * the repository used to keep them and with {@link Money} minor units as it does now. Run
+ * with the gc profiler to compare allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+  private BigDecimal decimalFrom = new BigDecimal("1000000.00");
+  private BigDecimal decimalTo = new BigDecimal("1000000.00");
+  private final BigDecimal decimalAmount = new BigDecimal("12.34");
+
+  private long minorFrom = Money.toMinorUnits(decimalFrom);
+  private long minorTo = Money.toMinorUnits(decimalTo);
+  private final long minorAmount = Money.toMinorUnits(decimalAmount);
+
+  private boolean forward;
+
+  @Benchmark
+  public BigDecimal bigDecimal() {
+    forward = !forward;
+    BigDecimal amount = forward ? decimalAmount : decimalAmount.negate();
+    if (decimalFrom.subtract(amount).compareTo(BigDecimal.ZERO) >= 0) {
+      decimalFrom = decimalFrom.add(amount.negate());
+      decimalTo = decimalTo.add(amount);
+    }
+    return decimalFrom;
+  }
+
+  @Benchmark
+  public long minorUnits() {
+    forward = !forward;
+    long amount = forward ? minorAmount : -minorAmount;
+    if (minorFrom - amount >= 0) {
+      minorFrom = Money.subtract(minorFrom, amount);
+      minorTo = Money.add(minorTo, amount);
+    }
+    return minorFrom;
+  }
+}
@@ -0,0 +1,57 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.service.TransferRateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TransferRateLimiter#acquire} on the accepted path, from a random one of
+ * {@code accounts} source accounts, with limits high enough never to reject. {@code limited}
+ * false measures the check with no limits set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+  @Param("10000")
+  public int accounts;
+
+  @Param({"true", "false"})
+  public boolean limited;
+
+  private TransferRateLimiter limiter;
+
+  private String[] accountIds;
+
+  @Setup(Level.Trial)
+  public void createLimiter() {
+    final long rate = limited ? 1_000_000_000L : 0;
+    limiter = new TransferRateLimiter(rate, 1_000_000, rate, 1_000_000, accounts * 2);
+    accountIds = new String[accounts];
+    for (int i = 0; i < accounts; i++) {
+      accountIds[i] = BenchmarkContext.accountId(i);
+    }
+  }
+
+  @Benchmark
+  public long acquire() {
+    return limiter.acquire(accountIds[ThreadLocalRandom.current().nextInt(accounts)]);
+  }
+}
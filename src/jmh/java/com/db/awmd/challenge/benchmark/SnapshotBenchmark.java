@@ -0,0 +1,89 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.SnapshotStore;
+import com.db.awmd.challenge.repository.TransferJournal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup time of the locking repository from a snapshot of {@code accounts} accounts and an
+ * empty journal tail. Run with a heap large enough for the account count, e.g.
+ * {@code -jvmArgs -Xmx16g -p accounts=50000000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class SnapshotBenchmark {
+
+  @Param("1000000")
+  public int accounts;
+
+  private Path directory;
+
+  private Path journalPath;
+
+  private SnapshotStore snapshots;
+
+  private TransferJournal journal;
+
+  @Setup(Level.Trial)
+  public void writeSnapshot() throws IOException {
+    directory = Files.createTempDirectory("snapshot-benchmark");
+    journalPath = directory.resolve("accounts.journal");
+    snapshots = new SnapshotStore(directory.resolve("snapshots"), 1, 0);
+    try (TransferJournal empty = new TransferJournal(journalPath, TransferJournal.Durability.FSYNC, 0)) {
+      snapshots.write(empty.position(), sink -> {
+        for (int i = 0; i < accounts; i++) {
+          sink.account(BenchmarkContext.accountId(i), 100_000);
+        }
+      });
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void openJournal() throws IOException {
+    journal = new TransferJournal(journalPath, TransferJournal.Durability.FSYNC, 0);
+  }
+
+  @TearDown(Level.Invocation)
+  public void closeJournal() throws IOException {
+    journal.close();
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteFiles() throws IOException {
+    for (File file : Files.walk(directory).map(Path::toFile).sorted((a, b) -> b.compareTo(a)).toArray(File[]::new)) {
+      file.delete();
+    }
+  }
+
+  @Benchmark
+  public AccountsRepositoryInMemory recover() throws IOException {
+    AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+    repository.setJournal(journal);
+    repository.setSnapshots(snapshots);
+    repository.recover();
+    return repository;
+  }
+}
@@ -0,0 +1,97 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.service.AccountsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link AccountsService#transfer(Transfer)} end to end, below the HTTP layer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferBenchmark {
+
+  private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000000000");
+  private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+  @Param({"UNCONTENDED", "HOT_PAIR", "UNIFORM"})
+  public AccountDistribution distribution;
+
+  @Param("10000")
+  public int accounts;
+
+  @Param("locking")
+  public String repositoryMode;
+
+  private ConfigurableApplicationContext context;
+
+  private AccountsService accountsService;
+
+  private final AtomicInteger threads = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContext.start("accounts.repository.mode=" + repositoryMode);
+    accountsService = context.getBean(AccountsService.class);
+    for (int i = 0; i < accounts; i++) {
+      accountsService.createAccount(new Account(BenchmarkContext.accountId(i), OPENING_BALANCE));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @State(Scope.Thread)
+  public static class Transfers {
+
+    private static final int SIZE = 1 << 12;
+
+    private final Transfer[] transfers = new Transfer[SIZE];
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void prepare(TransferBenchmark benchmark) {
+      int[] from = new int[SIZE];
+      int[] to = new int[SIZE];
+      benchmark.distribution.fill(benchmark.threads.getAndIncrement(), benchmark.accounts, from, to);
+      for (int i = 0; i < SIZE; i++) {
+        transfers[i] = new Transfer(BenchmarkContext.accountId(from[i]), BenchmarkContext.accountId(to[i]), AMOUNT);
+      }
+    }
+
+    Transfer next() {
+      return transfers[next++ & (SIZE - 1)];
+    }
+  }
+
+  @Benchmark
+  public ResponseEntity transfer(Transfers transfers) {
+    return accountsService.transfer(transfers.next());
+  }
+}
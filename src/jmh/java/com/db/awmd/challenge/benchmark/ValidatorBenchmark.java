@@ -0,0 +1,77 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.AccountBalance;
+import com.db.awmd.challenge.exception.Response;
+import com.db.awmd.challenge.validator.FundTransferValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link FundTransferValidator} chain for an accepted transfer and for each rejection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidatorBenchmark {
+
+  @Param({"accepted", "insufficientFunds", "missingAccount", "sameAccount"})
+  public String outcome;
+
+  private ConfigurableApplicationContext context;
+
+  private FundTransferValidator validator;
+
+  private AccountBalance accountFrom;
+
+  private AccountBalance accountTo;
+
+  private final long amount = 1_000;
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContext.start();
+    validator = context.getBean(FundTransferValidator.class);
+
+    accountFrom = new AccountBalance(BenchmarkContext.accountId(0), 100_000);
+    accountTo = new AccountBalance(BenchmarkContext.accountId(1), 100_000);
+    switch (outcome) {
+      case "insufficientFunds":
+        accountFrom = new AccountBalance(BenchmarkContext.accountId(0), amount - 1);
+        break;
+      case "missingAccount":
+        accountTo = null;
+        break;
+      case "sameAccount":
+        accountTo = accountFrom;
+        break;
+      default:
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public Response validate() {
+    return validator.validate(accountFrom, accountTo, amount);
+  }
+}
@@ -0,0 +1,103 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.exception.Response;
+import com.db.awmd.challenge.exception.ValidationResult;
+import com.db.awmd.challenge.utility.Money;
+import com.db.awmd.challenge.utility.TransferCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.validation.Validator;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the web layer does per transfer besides the transfer itself, in each wire format: the
+ * request body read into a transfer with its fields checked, and the response body written.
+ * JSON is bound by the application's {@link ObjectMapper} and checked by bean validation; a
+ * rejection is rendered as the error JSON. See {@code LoadTestMain} for the formats over HTTP
+ * and their bytes on the wire.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+  private static final String ACCEPTED_MESSAGE = "Amount transferred successfully.";
+
+  @Param({"accepted", "insufficientFunds"})
+  public String outcome;
+
+  private ConfigurableApplicationContext context;
+
+  private ObjectMapper objectMapper;
+
+  private Validator fieldValidator;
+
+  private byte[] jsonRequest;
+
+  private byte[] binaryRequest;
+
+  @Setup(Level.Trial)
+  public void start() throws IOException {
+    context = BenchmarkContext.start();
+    objectMapper = context.getBean(ObjectMapper.class);
+    fieldValidator = context.getBean(Validator.class);
+
+    final String from = BenchmarkContext.accountId(0);
+    final String to = BenchmarkContext.accountId(1);
+    jsonRequest = objectMapper.writeValueAsBytes(new Transfer(from, to, new BigDecimal("12.50")));
+    final ByteBuffer buffer = ByteBuffer.allocate(256);
+    TransferCodec.encode(buffer, from, to, 1250, null);
+    binaryRequest = Arrays.copyOf(buffer.array(), buffer.position());
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public byte[] json(Blackhole blackhole) throws IOException {
+    final Transfer transfer = objectMapper.readValue(jsonRequest, Transfer.class);
+    blackhole.consume(fieldValidator.validate(transfer));
+    final long amount = Money.toMinorUnits(transfer.getAmount());
+    if (outcome.equals("accepted")) {
+      return ACCEPTED_MESSAGE.getBytes(StandardCharsets.UTF_8);
+    }
+    return objectMapper.writeValueAsBytes(
+      Response.rejected(ValidationResult.INSUFFICIENT_FUNDS, transfer.getAccountFromId(), amount - 1));
+  }
+
+  @Benchmark
+  public byte[] binary() {
+    final TransferCodec.Request transfer = TransferCodec.decode(ByteBuffer.wrap(binaryRequest));
+    if (outcome.equals("accepted")) {
+      return TransferCodec.encode(Response.ACCEPTED);
+    }
+    return TransferCodec.encode(
+      Response.rejected(ValidationResult.INSUFFICIENT_FUNDS, transfer.getAccountFromId(), transfer.getAmount() - 1));
+  }
+}
@@ -1,18 +1,18 @@
 package com.db.awmd.challenge.domain;
 
+import com.db.awmd.challenge.utility.Money;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import org.hibernate.validator.constraints.NotEmpty;
 
+import javax.validation.constraints.Digits;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
 
 @Data
-@JsonIgnoreProperties(value = { "amountToBeDeposit" })
 public class Account {
 
   @NotEmpty(message = "Account Id should not be empty or null")
@@ -20,10 +20,9 @@ public class Account {
 
   @NotNull
   @Min(value = 0, message = "Initial balance must be positive.")
+  @Digits(integer = Money.MAX_INTEGER_DIGITS, fraction = Money.SCALE)
   private BigDecimal balance;
 
-  private BigDecimal amountToBeDeposit;
-
   public Account(String accountId) {
     this.accountId = accountId;
     this.balance = BigDecimal.ZERO;
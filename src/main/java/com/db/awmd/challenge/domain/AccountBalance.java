@@ -0,0 +1,36 @@
+package com.db.awmd.challenge.domain;
+
+import com.db.awmd.challenge.utility.Money;
+import lombok.Getter;
+
+/**
+ * Balance of one account as the repositories keep it, in minor units. {@link Account} is
+ * only built from it at the API boundary.
+ */
+@Getter
+public class AccountBalance {
+
+  private final String accountId;
+
+  private volatile long balance;
+
+  public AccountBalance(String accountId, long balance) {
+    this.accountId = accountId;
+    this.balance = balance;
+  }
+
+  public AccountBalance(Account account) {
+    this(account.getAccountId(), Money.toMinorUnits(account.getBalance()));
+  }
+
+  /**
+   * Only called by the owning repository while it holds this account.
+   */
+  public void setBalance(long balance) {
+    this.balance = balance;
+  }
+
+  public Account toAccount() {
+    return new Account(accountId, Money.toDecimal(getBalance()));
+  }
+}
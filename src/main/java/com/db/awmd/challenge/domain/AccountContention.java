@@ -0,0 +1,17 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+@Data
+public class AccountContention {
+
+  private final String accountId;
+
+  private final long attempts;
+
+  private final long conflicts;
+
+  public double getConflictRate() {
+    return attempts == 0 ? 0d : (double) conflicts / attempts;
+  }
+}
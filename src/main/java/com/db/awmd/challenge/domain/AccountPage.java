@@ -0,0 +1,17 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of an account listing.
+ */
+@Data
+public class AccountPage {
+
+  private final List<Account> accounts;
+
+  /** Cursor of the next page, or null if this is the last one. */
+  private final String nextCursor;
+}
@@ -0,0 +1,50 @@
+package com.db.awmd.challenge.domain;
+
+import com.db.awmd.challenge.utility.Money;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+
+/**
+ * Balance of an account at one point in time, never changed afterwards. Repositories may
+ * hand out the same snapshot until the balance changes, so its JSON is rendered only once.
+ */
+@Getter
+public class AccountSnapshot {
+
+  private final String accountId;
+
+  /** In minor units. */
+  private final long balance;
+
+  /**
+   * Entity tag of the account's JSON. The JSON only changes with the balance, so the balance
+   * in minor units serves as its version.
+   */
+  private final String eTag;
+
+  // Rendered on first use; threads racing on it render the same bytes.
+  private volatile byte[] json;
+
+  public AccountSnapshot(String accountId, long balance) {
+    this.accountId = accountId;
+    this.balance = balance;
+    this.eTag = "\"" + balance + "\"";
+  }
+
+  public Account toAccount() {
+    return new Account(accountId, Money.toDecimal(balance));
+  }
+
+  /**
+   * The {@link Account} as JSON, rendered by the mapper on the first call.
+   */
+  public byte[] toJson(ObjectMapper objectMapper) throws JsonProcessingException {
+    byte[] bytes = json;
+    if (bytes == null) {
+      bytes = objectMapper.writeValueAsBytes(toAccount());
+      json = bytes;
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,22 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * The ledger entries of one account in a time range, oldest first.
+ */
+@Data
+public class AccountTransactions {
+
+  private final String accountId;
+
+  private final List<LedgerEntry> transactions;
+
+  /**
+   * True if the range holds more entries than listed. A query from the time of the last one
+   * listed continues the list, starting again with the entries of that millisecond.
+   */
+  private final boolean truncated;
+}
@@ -0,0 +1,18 @@
+package com.db.awmd.challenge.domain;
+
+import com.db.awmd.challenge.exception.Response;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch transfer: one result per transfer, in request order. When any of
+ * them carries errors the batch was not applied.
+ */
+@Data
+public class BatchTransferResult {
+
+  private final boolean applied;
+
+  private final List<Response> results;
+}
@@ -0,0 +1,20 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+@Data
+public class GatewayStats {
+
+  private final int port;
+
+  private final long openConnections;
+
+  private final long acceptedConnections;
+
+  private final long transfers;
+
+  /** Writes of responses to the network; transfers per flush is the average batch. */
+  private final long flushes;
+
+  private final long protocolErrors;
+}
@@ -0,0 +1,22 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+@Data
+public class IdempotencyStats {
+
+  private final long size;
+
+  /**
+   * Transfers still running; they are kept on top of the capacity until they complete.
+   */
+  private final long pending;
+
+  private final long capacity;
+
+  private final long hits;
+
+  private final long misses;
+
+  private final long evictions;
+}
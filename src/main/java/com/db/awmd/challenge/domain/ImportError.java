@@ -0,0 +1,21 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+/**
+ * Why one line of a bulk account import was rejected.
+ */
+@Data
+public class ImportError {
+
+  /** Line of the request body, counting from 1. */
+  private final long line;
+
+  /** Account id of the line, if it could be read. */
+  private final String accountId;
+
+  /** The field in error, or {@code line} if the line itself could not be read. */
+  private final String code;
+
+  private final String description;
+}
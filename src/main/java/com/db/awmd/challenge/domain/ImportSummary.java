@@ -0,0 +1,24 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk account import. Every line is either created or rejected; the errors
+ * list the first rejections only.
+ */
+@Data
+public class ImportSummary {
+
+  private final long lines;
+
+  private final long created;
+
+  private final long rejected;
+
+  private final List<ImportError> errors;
+
+  /** True if more lines were rejected than errors are listed. */
+  private final boolean errorsTruncated;
+}
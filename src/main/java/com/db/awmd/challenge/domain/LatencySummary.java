@@ -0,0 +1,25 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+/**
+ * Latencies of one operation since startup, in nanoseconds. Percentiles are bucket upper
+ * bounds, accurate to about 3%.
+ */
+@Data
+public class LatencySummary {
+
+  private final long count;
+
+  private final long meanNanos;
+
+  private final long p50Nanos;
+
+  private final long p90Nanos;
+
+  private final long p99Nanos;
+
+  private final long p999Nanos;
+
+  private final long maxNanos;
+}
@@ -0,0 +1,21 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * One applied transfer as recorded in the ledger.
+ */
+@Data
+public class LedgerEntry {
+
+  /** When the transfer was recorded, as an ISO-8601 instant. */
+  private final String time;
+
+  private final String accountFromId;
+
+  private final String accountToId;
+
+  private final BigDecimal amount;
+}
@@ -0,0 +1,17 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+public class MetricsStats {
+
+  private final int accounts;
+
+  /** Latency per operation, keyed by operation name. */
+  private final Map<String, LatencySummary> latencies;
+
+  /** Rejected transfers per validation result. */
+  private final Map<String, Long> rejections;
+}
@@ -0,0 +1,26 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+@Data
+public class NotificationStats {
+
+  private final int queueDepth;
+
+  private final int queueCapacity;
+
+  private final long enqueued;
+
+  private final long dispatched;
+
+  private final long notificationsSent;
+
+  private final long dropped;
+
+  private final long failed;
+
+  /** Time the oldest event of the last dispatched batch spent queued. */
+  private final long lastLagMillis;
+
+  private final long maxLagMillis;
+}
@@ -0,0 +1,17 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+@Data
+public class RateLimitStats {
+
+  private final long trackedAccounts;
+
+  private final long maxAccounts;
+
+  private final long globalRejections;
+
+  private final long accountRejections;
+
+  private final long evictions;
+}
@@ -0,0 +1,38 @@
+package com.db.awmd.challenge.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Transfer rate limits, all transfers together and per source account. A rate of 0 means no
+ * limit; the burst is how many transfers may arrive at once after a quiet spell.
+ */
+@Data
+public class RateLimits {
+
+  @Min(0)
+  private final long globalPerSecond;
+
+  @Min(1)
+  private final long globalBurst;
+
+  @Min(0)
+  private final long accountPerSecond;
+
+  @Min(1)
+  private final long accountBurst;
+
+  @JsonCreator
+  public RateLimits(@JsonProperty("globalPerSecond") long globalPerSecond,
+                    @JsonProperty("globalBurst") long globalBurst,
+                    @JsonProperty("accountPerSecond") long accountPerSecond,
+                    @JsonProperty("accountBurst") long accountBurst) {
+    this.globalPerSecond = globalPerSecond;
+    this.globalBurst = globalBurst;
+    this.accountPerSecond = accountPerSecond;
+    this.accountBurst = accountBurst;
+  }
+}
@@ -0,0 +1,13 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+@Data
+public class ShardStats {
+
+  private final int shard;
+
+  private final int queueDepth;
+
+  private final long completedOperations;
+}
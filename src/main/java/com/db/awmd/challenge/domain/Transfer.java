@@ -1,12 +1,15 @@
 package com.db.awmd.challenge.domain;
 
+import com.db.awmd.challenge.utility.Money;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import org.hibernate.validator.constraints.NotEmpty;
 
+import javax.validation.constraints.Digits;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 import java.math.BigDecimal;
 
 /**
@@ -23,15 +26,29 @@ public class Transfer {
 
     @NotNull
     @Min(value = 1, message = "Transfer amount must be positive.")
+    @Digits(integer = Money.MAX_INTEGER_DIGITS, fraction = Money.SCALE)
     private BigDecimal amount;
 
+    /**
+     * Optional client-chosen idempotency key. A retried transfer with the same key gets the
+     * result of the first one instead of moving the money again.
+     */
+    @Size(max = 128, message = "Transfer id must not be longer than 128 characters.")
+    private String transferId;
+
+    public Transfer(String accountFromId, String accountToId, BigDecimal amount) {
+        this(accountFromId, accountToId, amount, null);
+    }
+
     @JsonCreator
     public Transfer(@JsonProperty("accountFromId") String accountFromId,
                     @JsonProperty("accountToId") String accountToId,
-                    @JsonProperty("amount") BigDecimal amount){
+                    @JsonProperty("amount") BigDecimal amount,
+                    @JsonProperty("transferId") String transferId){
         this.accountFromId = accountFromId;
         this.accountToId = accountToId;
         this.amount = amount;
+        this.transferId = transferId;
     }
 
 }
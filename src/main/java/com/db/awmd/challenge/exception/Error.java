@@ -17,4 +17,12 @@ public class Error {
         this.code = code;
         this.description = description;
     }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
 }
@@ -1,11 +0,0 @@
-package com.db.awmd.challenge.exception;
-
-/**
- * Created by sonk01 on 05/12/17.
- */
-public class InsufficientFundException extends RuntimeException{
-
-    public InsufficientFundException(String message) {
-        super(message);
-    }
-}
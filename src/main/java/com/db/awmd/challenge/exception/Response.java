@@ -1,17 +1,96 @@
 package com.db.awmd.challenge.exception;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by sonk01 on 05/12/17.
  */
 public class Response {
 
-    List<Error> errors = new ArrayList<>();
+    /**
+     * Response of every accepted transfer. Shared, so it never carries errors.
+     */
+    public static final Response ACCEPTED = new Response(ValidationResult.VALID, null, 0, Collections.emptyList());
+
+    private static final Map<ValidationResult, Response> SHARED_REJECTIONS = new EnumMap<>(ValidationResult.class);
+
+    static {
+        SHARED_REJECTIONS.put(ValidationResult.ACCOUNT_NOT_FOUND, new Response(ValidationResult.ACCOUNT_NOT_FOUND, null, 0, null));
+        SHARED_REJECTIONS.put(ValidationResult.SAME_ACCOUNT, new Response(ValidationResult.SAME_ACCOUNT, null, 0, null));
+    }
+
+    private final ValidationResult result;
+    private final String accountId;
+    private final long balance;
+
+    // Rendered from the result on first access for validator rejections.
+    private volatile List<Error> errors;
+
+    public Response() {
+        this(ValidationResult.VALID, null, 0, new ArrayList<>());
+    }
+
+    private Response(ValidationResult result, String accountId, long balance, List<Error> errors) {
+        this.result = result;
+        this.accountId = accountId;
+        this.balance = balance;
+        this.errors = errors;
+    }
+
+    /**
+     * Response of a rejected transfer. Rejections without details are shared instances.
+     *
+     * @param accountId source account of the transfer.
+     * @param balance   its balance at the time of the rejection, in minor units.
+     */
+    public static Response rejected(ValidationResult result, String accountId, long balance) {
+        Response shared = SHARED_REJECTIONS.get(result);
+        return shared != null ? shared : new Response(result, accountId, balance, null);
+    }
+
+    /**
+     * True if the response carries no errors; unlike {@link #getErrors()} it never renders them.
+     */
+    @JsonIgnore
+    public boolean isAccepted() {
+        if (result != ValidationResult.VALID) {
+            return false;
+        }
+        return errors.isEmpty();
+    }
+
+    @JsonIgnore
+    public ValidationResult getResult() {
+        return result;
+    }
+
+    /**
+     * Balance of the source account when the transfer was rejected, in minor units; 0 for
+     * results that carry none.
+     */
+    @JsonIgnore
+    public long getBalance() {
+        return balance;
+    }
 
     public List<Error> getErrors() {
-        return errors;
+        List<Error> rendered = errors;
+        if (rendered == null) {
+            synchronized (this) {
+                rendered = errors;
+                if (rendered == null) {
+                    rendered = Collections.singletonList(new Error(result.getCode(), result.describe(accountId, balance)));
+                    errors = rendered;
+                }
+            }
+        }
+        return rendered;
     }
 }
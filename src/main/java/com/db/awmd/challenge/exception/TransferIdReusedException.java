@@ -0,0 +1,13 @@
+package com.db.awmd.challenge.exception;
+
+/**
+ * Thrown when a transfer id is sent again with a different transfer.
+ */
+public class TransferIdReusedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TransferIdReusedException(String message) {
+        super(message);
+    }
+}
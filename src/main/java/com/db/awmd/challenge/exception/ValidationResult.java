@@ -0,0 +1,51 @@
+package com.db.awmd.challenge.exception;
+
+import com.db.awmd.challenge.utility.Money;
+
+/**
+ * Outcome of a {@link com.db.awmd.challenge.validator.Validator}. Rejections carry the error
+ * code and build their description only when a response is rendered.
+ */
+public enum ValidationResult {
+
+    VALID(null) {
+        @Override
+        String describe(String accountId, long balance) {
+            return null;
+        }
+    },
+    ACCOUNT_NOT_FOUND("Account") {
+        @Override
+        String describe(String accountId, long balance) {
+            return "Account not exist.";
+        }
+    },
+    SAME_ACCOUNT("Account") {
+        @Override
+        String describe(String accountId, long balance) {
+            return "Transfer to self not permitted.";
+        }
+    },
+    INSUFFICIENT_FUNDS("Fund") {
+        @Override
+        String describe(String accountId, long balance) {
+            return "Insufficient funds on account [" + accountId + "], available balance= " + Money.toDecimal(balance);
+        }
+    };
+
+    private final String code;
+
+    ValidationResult(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * @param accountId source account of the rejected transfer.
+     * @param balance   its balance when the transfer was rejected, in minor units.
+     */
+    abstract String describe(String accountId, long balance);
+}
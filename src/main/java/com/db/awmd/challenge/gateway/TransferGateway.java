@@ -0,0 +1,322 @@
+package com.db.awmd.challenge.gateway;
+
+import com.db.awmd.challenge.domain.GatewayStats;
+import com.db.awmd.challenge.exception.TransferIdReusedException;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.TransferRateLimiter;
+import com.db.awmd.challenge.utility.TransferCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transfers over plain TCP, for internal clients with too much volume for HTTP. It runs next
+ * to the HTTP API and applies transfers through the same {@link AccountsService}, so
+ * idempotency, the ledger, notifications, metrics and the rate limits all apply as they do
+ * over HTTP.
+ *
+ * <p>A connection carries frames: each request is an unsigned 16-bit length followed by a
+ * {@link TransferCodec} request, and each is answered by a {@link TransferCodec} response,
+ * in the order the requests came in. Clients may pipeline, sending further requests without
+ * waiting for the answers.
+ *
+ * <p>One acceptor thread hands connections round robin to {@code io-threads} selector
+ * threads. A selector thread runs every request that is complete in what it has read,
+ * writes their responses into the connection's output buffer, and then writes that buffer
+ * with a single call. A pipelined burst is therefore answered in as few packets as the
+ * socket allows, rather than one per transfer. While a client leaves responses unread, its
+ * connection is not read any further.
+ *
+ * <p>Transfers run on the selector thread. The locking and optimistic repositories never
+ * block there for long, but the sharded and sequenced ones wait for their own threads. A
+ * request that is not a valid transfer is answered with
+ * {@link TransferCodec#INVALID_REQUEST}. A frame length of 0 closes the connection, since
+ * the stream can no longer be trusted.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "gateway.enabled", havingValue = "true")
+public class TransferGateway {
+
+  /** Largest frame, so a whole one always fits into the input buffer. */
+  private static final int MAX_FRAME_LENGTH = 0xFFFF;
+
+  private static final int INPUT_CAPACITY = 2 + MAX_FRAME_LENGTH;
+
+  /**
+   * Room for the responses to a full input buffer of the shortest possible requests, which
+   * have two one-byte ids and take 18 bytes with their length.
+   */
+  private static final int OUTPUT_CAPACITY = INPUT_CAPACITY / 18 * TransferCodec.RESPONSE_LENGTH;
+
+  private final AccountsService accountsService;
+  private final TransferRateLimiter rateLimiter;
+  private final ServerSocketChannel server;
+  private final Worker[] workers;
+  private final Thread acceptor;
+  private volatile boolean running = true;
+
+  private final LongAdder openConnections = new LongAdder();
+  private final LongAdder acceptedConnections = new LongAdder();
+  private final LongAdder transfers = new LongAdder();
+  private final LongAdder flushes = new LongAdder();
+  private final LongAdder protocolErrors = new LongAdder();
+
+  @Autowired
+  public TransferGateway(AccountsService accountsService, TransferRateLimiter rateLimiter,
+                         @Value("${gateway.bind-address:0.0.0.0}") String bindAddress,
+                         @Value("${gateway.port:7070}") int port,
+                         @Value("${gateway.io-threads:0}") int ioThreads) throws IOException {
+    this.accountsService = accountsService;
+    this.rateLimiter = rateLimiter;
+    this.server = ServerSocketChannel.open();
+    server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+    server.bind(new InetSocketAddress(bindAddress, port), 1024);
+
+    final int count = ioThreads > 0 ? ioThreads : Runtime.getRuntime().availableProcessors();
+    this.workers = new Worker[count];
+    for (int i = 0; i < count; i++) {
+      workers[i] = new Worker(Selector.open());
+      Thread thread = new Thread(workers[i], "transfer-gateway-io-" + i);
+      thread.setDaemon(true);
+      thread.start();
+    }
+    this.acceptor = new Thread(this::accept, "transfer-gateway-acceptor");
+    acceptor.setDaemon(true);
+    acceptor.start();
+    log.info("Transfer gateway listening on {} with {} I/O threads", server.getLocalAddress(), count);
+  }
+
+  /**
+   * The port the gateway listens on, the one bound if it was configured as 0.
+   */
+  public int getPort() {
+    try {
+      return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  public GatewayStats getStats() {
+    return new GatewayStats(getPort(), openConnections.sum(), acceptedConnections.sum(), transfers.sum(),
+      flushes.sum(), protocolErrors.sum());
+  }
+
+  @PreDestroy
+  public void close() throws IOException {
+    running = false;
+    server.close();
+    for (Worker worker : workers) {
+      worker.selector.wakeup();
+    }
+    try {
+      acceptor.join(TimeUnit.SECONDS.toMillis(1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void accept() {
+    int next = 0;
+    while (running) {
+      try {
+        final SocketChannel channel = server.accept();
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        acceptedConnections.increment();
+        workers[next].add(channel);
+        next = (next + 1) % workers.length;
+      } catch (ClosedChannelException e) {
+        return;
+      } catch (IOException e) {
+        log.warn("Transfer gateway failed to accept a connection", e);
+      }
+    }
+  }
+
+  /**
+   * Runs the requests that are complete in the connection's input, as long as their
+   * responses fit into its output.
+   *
+   * @return whether complete requests were left for lack of room in the output.
+   * @throws IOException on a frame length of 0.
+   */
+  private boolean serve(Connection connection) throws IOException {
+    final ByteBuffer in = connection.in;
+    final ByteBuffer out = connection.out;
+    in.flip();
+    boolean full = false;
+    while (in.remaining() >= 2) {
+      if (out.remaining() < TransferCodec.RESPONSE_LENGTH) {
+        full = true;
+        break;
+      }
+      final int start = in.position();
+      final int length = in.getShort(start) & 0xFFFF;
+      if (length == 0) {
+        protocolErrors.increment();
+        throw new IOException("Empty frame");
+      }
+      final int end = start + 2 + length;
+      if (end > in.limit()) {
+        break;
+      }
+      final int limit = in.limit();
+      in.position(start + 2);
+      in.limit(end);
+      transfer(in, out);
+      in.limit(limit);
+      in.position(end);
+    }
+    in.compact();
+    return full;
+  }
+
+  private void transfer(ByteBuffer request, ByteBuffer out) {
+    TransferCodec.Request transfer = null;
+    try {
+      transfer = TransferCodec.decode(request);
+    } catch (IllegalArgumentException e) {
+      // Rate limited like an HTTP transfer without a source account.
+    }
+    final long wait = rateLimiter.acquire(transfer == null ? null : transfer.getAccountFromId());
+    if (wait > 0) {
+      TransferCodec.encode(out, TransferCodec.RATE_LIMITED, wait);
+    } else if (transfer == null) {
+      TransferCodec.encode(out, TransferCodec.INVALID_REQUEST, 0);
+    } else {
+      try {
+        TransferCodec.encode(out, accountsService.transfer(transfer.getAccountFromId(), transfer.getAccountToId(),
+          transfer.getAmount(), transfer.getTransferId()));
+      } catch (TransferIdReusedException e) {
+        TransferCodec.encode(out, TransferCodec.TRANSFER_ID_REUSED, 0);
+      }
+    }
+    transfers.increment();
+  }
+
+  private static final class Connection {
+
+    private final SocketChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocate(INPUT_CAPACITY);
+    private final ByteBuffer out = ByteBuffer.allocateDirect(OUTPUT_CAPACITY);
+
+    private Connection(SocketChannel channel) {
+      this.channel = channel;
+    }
+  }
+
+  private final class Worker implements Runnable {
+
+    private final Selector selector;
+    private final Queue<SocketChannel> added = new ConcurrentLinkedQueue<>();
+
+    private Worker(Selector selector) {
+      this.selector = selector;
+    }
+
+    private void add(SocketChannel channel) {
+      added.add(channel);
+      selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (running) {
+          selector.select();
+          SocketChannel channel;
+          while ((channel = added.poll()) != null) {
+            channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+            openConnections.increment();
+          }
+          final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while (keys.hasNext()) {
+            final SelectionKey key = keys.next();
+            keys.remove();
+            handle(key, (Connection) key.attachment());
+          }
+        }
+      } catch (IOException e) {
+        log.error("Transfer gateway I/O thread failed", e);
+      } finally {
+        final List<SelectionKey> keys = new ArrayList<>(selector.keys());
+        for (SelectionKey key : keys) {
+          close(key, (Connection) key.attachment());
+        }
+        try {
+          selector.close();
+        } catch (IOException e) {
+          log.warn("Failed to close a transfer gateway selector", e);
+        }
+      }
+    }
+
+    private void handle(SelectionKey key, Connection connection) {
+      try {
+        if (key.isReadable() && connection.channel.read(connection.in) < 0) {
+          close(key, connection);
+          return;
+        }
+        boolean more;
+        do {
+          more = serve(connection);
+          flush(key, connection);
+        } while (more && connection.out.position() == 0);
+      } catch (IOException e) {
+        close(key, connection);
+      } catch (RuntimeException e) {
+        log.error("Transfer gateway closed a connection after a failed transfer", e);
+        close(key, connection);
+      }
+    }
+
+    /**
+     * Writes what the connection's output holds, reading on only once it is all written.
+     */
+    private void flush(SelectionKey key, Connection connection) throws IOException {
+      final ByteBuffer out = connection.out;
+      if (out.position() > 0) {
+        out.flip();
+        connection.channel.write(out);
+        out.compact();
+        flushes.increment();
+      }
+      key.interestOps(out.position() > 0 ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    private void close(SelectionKey key, Connection connection) {
+      if (!key.isValid()) {
+        return;
+      }
+      key.cancel();
+      try {
+        connection.channel.close();
+      } catch (IOException e) {
+        log.debug("Failed to close a transfer gateway connection", e);
+      }
+      openConnections.decrement();
+    }
+  }
+}
@@ -0,0 +1,341 @@
+package com.db.awmd.challenge.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+/**
+ * Accounts by id, each interned to a dense int handle when it is added, so the structures
+ * around the accounts can be keyed by int instead of hashing the id again. The id is hashed
+ * once per lookup, in an open-addressing table that holds the accounts themselves: finding
+ * one touches the table slot and the account with its id, and there is no node object per
+ * entry for the lookup to chase or the collector to trace.
+ *
+ * <p>Adding and removing is serialised and published through the volatile handle count: a
+ * lookup only trusts accounts with a handle below the count it read and retries under the
+ * creation lock otherwise, so it takes no lock and reads the table as a plain array. A rehash
+ * fills the new table completely before it replaces the old one through a volatile field, so
+ * a lookup that reads the table after the count finds every account counted. Handles are
+ * never reused, not even after a {@link #clear()}, so a lookup racing a clear cannot take a
+ * new account for a published one. A removed account leaves a marker in the table until it
+ * is next rebuilt.
+ *
+ * <p>Besides the table, accounts are kept in handle order in fixed-size chunks, so they can be
+ * walked page by page from a handle on while accounts are added.
+ */
+public class AccountIndex<V extends AccountIndex.Entry> implements Iterable<V> {
+
+  /**
+   * What the index keeps of an account. Both values are expected in final fields, as lookups
+   * read them before they know the account is published.
+   */
+  public interface Entry {
+
+    String getAccountId();
+
+    /** The handle passed to the factory of {@link #add}. */
+    int getHandle();
+  }
+
+  private static final int MIN_BUCKETS = 16;
+  private static final int MAX_BUCKETS = 1 << 30;
+  private static final Object REMOVED = new Object();
+  private static final int CHUNK_SHIFT = 12;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+  private final ReentrantLock creationLock = new ReentrantLock();
+
+  // Written under creationLock. Only ever replaced by a filled copy.
+  private volatile Object[] table;
+  // Accounts by handle - base, see walk(). Written under creationLock.
+  private volatile Object[][] chunks = new Object[16][];
+  // Guarded by creationLock, published through handles.
+  private int used;
+  private int base;
+
+  private volatile int handles;
+  private volatile int size;
+
+  public AccountIndex() {
+    this(1024);
+  }
+
+  /**
+   * @param expected accounts to size the table for, so adding them does not rehash.
+   */
+  public AccountIndex(long expected) {
+    this.table = new Object[buckets(expected)];
+  }
+
+  /**
+   * The account with this id, or null.
+   */
+  @SuppressWarnings("unchecked")
+  public V get(String accountId) {
+    if (accountId == null) {
+      return null;
+    }
+    final int published = handles;
+    final Object[] table = this.table;
+    final int mask = table.length - 1;
+    for (int bucket = spread(accountId.hashCode()) & mask; ; bucket = (bucket + 1) & mask) {
+      final Object entry = table[bucket];
+      if (entry == null) {
+        return null;
+      }
+      if (entry != REMOVED && accountId.equals(((V) entry).getAccountId())) {
+        // Added after the count was read, the account may not be visible to this thread yet.
+        return ((V) entry).getHandle() < published ? (V) entry : getAdded(accountId);
+      }
+    }
+  }
+
+  /**
+   * The account with this handle, or null.
+   */
+  @SuppressWarnings("unchecked")
+  public V getByHandle(int handle) {
+    final int published = handles;
+    final Object[][] chunks = this.chunks;
+    final int offset = handle - base;
+    if (handle >= published || offset < 0 || (offset >>> CHUNK_SHIFT) >= chunks.length) {
+      return null;
+    }
+    final Object[] chunk = chunks[offset >>> CHUNK_SHIFT];
+    final Object entry = chunk == null ? null : chunk[offset & (CHUNK_SIZE - 1)];
+    // A chunk read across a clear may hold another handle there.
+    return entry != null && ((V) entry).getHandle() == handle ? (V) entry : null;
+  }
+
+  /**
+   * Adds an account unless one with the id exists.
+   *
+   * @param create builds the account from its handle, the next unused one. It runs under the
+   *               creation lock, before the account can be found.
+   * @return the new account, or null if the id is taken.
+   */
+  public V add(String accountId, IntFunction<V> create) {
+    creationLock.lock();
+    try {
+      if (getAdded(accountId) != null) {
+        return null;
+      }
+      final int handle = handles;
+      if (handle == Integer.MAX_VALUE || size >= MAX_BUCKETS >>> 1) {
+        throw new IllegalStateException("Account index is full");
+      }
+      if (used >= table.length >>> 1) {
+        table = rehash(size >= table.length >>> 2 ? table.length << 1 : table.length);
+      }
+
+      final V account = create.apply(handle);
+      insert(table, account);
+      used++;
+      final int chunk = (handle - base) >>> CHUNK_SHIFT;
+      if (chunk == chunks.length) {
+        chunks = Arrays.copyOf(chunks, chunks.length << 1);
+      }
+      if (chunks[chunk] == null) {
+        chunks[chunk] = new Object[CHUNK_SIZE];
+      }
+      chunks[chunk][(handle - base) & (CHUNK_SIZE - 1)] = account;
+      size = size + 1;
+      handles = handle + 1;
+      return account;
+    } finally {
+      creationLock.unlock();
+    }
+  }
+
+  /**
+   * Grows the table for this many more accounts at once, so adding them does not rehash.
+   */
+  public void reserve(int additional) {
+    creationLock.lock();
+    try {
+      final int buckets = buckets((long) size + additional);
+      if (buckets > table.length) {
+        table = rehash(buckets);
+      }
+    } finally {
+      creationLock.unlock();
+    }
+  }
+
+  /**
+   * Removes the account if it is still the one held for its id.
+   */
+  public boolean remove(V account) {
+    creationLock.lock();
+    try {
+      final int mask = table.length - 1;
+      for (int bucket = spread(account.getAccountId().hashCode()) & mask; ; bucket = (bucket + 1) & mask) {
+        final Object entry = table[bucket];
+        if (entry == null) {
+          return false;
+        }
+        if (entry == account) {
+          table[bucket] = REMOVED;
+          final int offset = account.getHandle() - base;
+          chunks[offset >>> CHUNK_SHIFT][offset & (CHUNK_SIZE - 1)] = null;
+          size = size - 1;
+          return true;
+        }
+      }
+    } finally {
+      creationLock.unlock();
+    }
+  }
+
+  public void clear() {
+    creationLock.lock();
+    try {
+      table = new Object[MIN_BUCKETS];
+      used = 0;
+      chunks = new Object[16][];
+      base = handles;
+      size = 0;
+      // Publishes the new base.
+      handles = handles;
+    } finally {
+      creationLock.unlock();
+    }
+  }
+
+  /**
+   * Handles given out so far. Every account has a handle below it.
+   */
+  public int handles() {
+    return handles;
+  }
+
+  /**
+   * Accounts in the index.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Up to {@code limit} accounts with a handle from {@code fromHandle} on, in handle order. As
+   * handles are handed out in ascending order, accounts added meanwhile only ever show up
+   * after the ones already walked, so a walk can be continued from the handle after the last
+   * account it returned. Accounts removed meanwhile may or may not be returned.
+   */
+  @SuppressWarnings("unchecked")
+  public List<V> walk(int fromHandle, int limit) {
+    final int published = handles;
+    final Object[][] chunks = this.chunks;
+    final int base = this.base;
+    final List<V> found = new ArrayList<>(Math.min(limit, 1024));
+    for (int handle = Math.max(fromHandle, base); handle < published && found.size() < limit; handle++) {
+      final int chunk = (handle - base) >>> CHUNK_SHIFT;
+      if (chunk >= chunks.length || chunks[chunk] == null) {
+        // Read across a clear; the rest belongs to the accounts cleared.
+        break;
+      }
+      final Object entry = chunks[chunk][(handle - base) & (CHUNK_SIZE - 1)];
+      // A chunk read across a clear may hold another handle there.
+      if (entry != null && ((V) entry).getHandle() == handle) {
+        found.add((V) entry);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Walks the accounts in table order. Accounts added or removed meanwhile may or may not be
+   * seen.
+   */
+  @Override
+  public Iterator<V> iterator() {
+    final int published = handles;
+    final Object[] table = this.table;
+    return new Iterator<V>() {
+
+      private int bucket = advance(0);
+
+      @Override
+      public boolean hasNext() {
+        return bucket < table.length;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public V next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        final V account = (V) table[bucket];
+        bucket = advance(bucket + 1);
+        return account;
+      }
+
+      @SuppressWarnings("unchecked")
+      private int advance(int from) {
+        int next = from;
+        for (Object entry; next < table.length && ((entry = table[next]) == null || entry == REMOVED
+          || ((V) entry).getHandle() >= published); next++) {
+          // Skips free and removed slots and accounts added since the walk started.
+        }
+        return next;
+      }
+    };
+  }
+
+  // The table only ever holds REMOVED and accounts of type V.
+  @SuppressWarnings("unchecked")
+  private V getAdded(String accountId) {
+    creationLock.lock();
+    try {
+      final int mask = table.length - 1;
+      for (int bucket = spread(accountId.hashCode()) & mask; ; bucket = (bucket + 1) & mask) {
+        final Object entry = table[bucket];
+        if (entry == null) {
+          return null;
+        }
+        if (entry != REMOVED && accountId.equals(((V) entry).getAccountId())) {
+          return (V) entry;
+        }
+      }
+    } finally {
+      creationLock.unlock();
+    }
+  }
+
+  private Object[] rehash(int buckets) {
+    final Object[] rehashed = new Object[Math.min(buckets, MAX_BUCKETS)];
+    used = 0;
+    for (Object entry : table) {
+      if (entry != null && entry != REMOVED) {
+        insert(rehashed, (Entry) entry);
+        used++;
+      }
+    }
+    return rehashed;
+  }
+
+  private static void insert(Object[] table, Entry account) {
+    final int mask = table.length - 1;
+    int bucket = spread(account.getAccountId().hashCode()) & mask;
+    while (table[bucket] != null) {
+      bucket = (bucket + 1) & mask;
+    }
+    table[bucket] = account;
+  }
+
+  private static int buckets(long expected) {
+    // At most half full, so probe sequences stay short.
+    final long buckets = Long.highestOneBit(Math.max(MIN_BUCKETS / 2, expected) * 2 - 1) << 1;
+    return (int) Math.min(buckets, MAX_BUCKETS);
+  }
+
+  private static int spread(int hash) {
+    final int h = hash * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
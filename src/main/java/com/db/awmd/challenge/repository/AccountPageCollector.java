@@ -0,0 +1,60 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountPage;
+import com.db.awmd.challenge.utility.Money;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Collects one page of an account listing in account id order, from accounts offered in any
+ * order, for repositories that keep no creation order to page through. The cursor is the id of
+ * the last account of the page before, so a listing continues after it whatever was created
+ * or removed meanwhile. Each page costs a pass over all accounts, keeping only the smallest
+ * {@code limit} ids after the cursor.
+ */
+final class AccountPageCollector {
+
+  private final String after;
+  private final int limit;
+  private final TreeMap<String, Long> page = new TreeMap<>();
+
+  /**
+   * @param cursor the next cursor of the page before, or null for the first page.
+   */
+  AccountPageCollector(String cursor, int limit) {
+    this.after = cursor;
+    this.limit = limit;
+  }
+
+  /**
+   * @param balance balance in minor units.
+   */
+  void offer(String accountId, long balance) {
+    if (after != null && accountId.compareTo(after) <= 0) {
+      return;
+    }
+    if (page.size() == limit) {
+      if (accountId.compareTo(page.lastKey()) >= 0) {
+        return;
+      }
+      page.pollLastEntry();
+    }
+    page.put(accountId, balance);
+  }
+
+  /**
+   * Takes over the accounts collected for the same page by another collector.
+   */
+  void offerAll(AccountPageCollector other) {
+    other.page.forEach(this::offer);
+  }
+
+  AccountPage toPage() {
+    final List<Account> accounts = new ArrayList<>(page.size());
+    page.forEach((accountId, balance) -> accounts.add(new Account(accountId, Money.toDecimal(balance))));
+    return new AccountPage(accounts, page.size() < limit ? null : page.lastKey());
+  }
+}
@@ -1,17 +1,94 @@
 package com.db.awmd.challenge.repository;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountPage;
+import com.db.awmd.challenge.domain.AccountSnapshot;
+import com.db.awmd.challenge.domain.Transfer;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.exception.Response;
+import com.db.awmd.challenge.utility.Money;
+import com.db.awmd.challenge.validator.FundTransferValidator;
 
+import java.io.IOException;
 import java.util.List;
 
 public interface AccountsRepository {
 
   void createAccount(Account account) throws DuplicateAccountIdException;
 
+  /**
+   * Creates the accounts of an import batch. An account whose id is taken is skipped and the
+   * rest are still created.
+   *
+   * @return for each account, in order, whether it was created.
+   */
+  default boolean[] createAccounts(List<Account> accounts) {
+    final boolean[] created = new boolean[accounts.size()];
+    for (int i = 0; i < created.length; i++) {
+      try {
+        createAccount(accounts.get(i));
+        created[i] = true;
+      } catch (DuplicateAccountIdException e) {
+        created[i] = false;
+      }
+    }
+    return created;
+  }
+
   Account getAccount(String accountId);
 
+  /**
+   * The account's current balance as an immutable snapshot, or null if there is no such
+   * account. Repositories that can tell cheaply whether a balance changed hand out the same
+   * snapshot until it does.
+   */
+  default AccountSnapshot getAccountSnapshot(String accountId) {
+    final Account account = getAccount(accountId);
+    return account == null ? null : new AccountSnapshot(accountId, Money.toMinorUnits(account.getBalance()));
+  }
+
   void clearAccounts();
 
-  boolean transfer(List<Account> accounts);
+  /**
+   * Passes every account to the sink, with the balances of one point in time, without holding
+   * up transfers meanwhile.
+   *
+   * @return the number of accounts passed.
+   * @throws UnsupportedOperationException if the repository cannot export its accounts.
+   */
+  default long exportAccounts(SnapshotStore.Sink sink) throws IOException {
+    throw new UnsupportedOperationException("Accounts cannot be exported in this repository mode");
+  }
+
+  /**
+   * Up to {@code limit} accounts, continuing a listing. The balances are read one account at a
+   * time; use {@link #exportAccounts} for a consistent view.
+   *
+   * @param cursor the next cursor of the page before, or null for the first page.
+   * @throws IllegalArgumentException if the cursor is not one handed out by this repository.
+   */
+  AccountPage listAccounts(String cursor, int limit);
+
+  /**
+   * Number of accounts stored; may lag behind accounts being created concurrently.
+   */
+  int size();
+
+  /**
+   * Validates and applies the transfer as one atomic step. The validator sees the same
+   * balances that are debited, so no other transfer can slip in between check and apply.
+   *
+   * @param amount amount in minor units, see {@link com.db.awmd.challenge.utility.Money}.
+   * @return the validation response; the balances are untouched when it carries errors.
+   */
+  Response transfer(String accountFromId, String accountToId, long amount, FundTransferValidator validator);
+
+  /**
+   * Validates and applies a batch of transfers as one atomic step. Each transfer is validated
+   * against the balances left by the transfers before it; either all of them are applied or
+   * none is.
+   *
+   * @return one response per transfer, in order; nothing was applied when any carries errors.
+   */
+  List<Response> transferAll(List<Transfer> transfers, FundTransferValidator validator);
 }
@@ -1,50 +1,810 @@
 package com.db.awmd.challenge.repository;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountBalance;
+import com.db.awmd.challenge.domain.AccountPage;
+import com.db.awmd.challenge.domain.AccountSnapshot;
+import com.db.awmd.challenge.domain.Transfer;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.exception.Response;
+import com.db.awmd.challenge.utility.Money;
+import com.db.awmd.challenge.validator.FundTransferValidator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
+@Slf4j
 @Repository
+@ConditionalOnProperty(name = "accounts.repository.mode", havingValue = "locking", matchIfMissing = true)
 public class AccountsRepositoryInMemory implements AccountsRepository {
 
-  private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+  private static final int LOCK_STRIPES = 4096;
+
+  // Only replaced by recover(), with an index sized for the snapshot.
+  private AccountIndex<IndexedBalance> accounts = new AccountIndex<>();
+
+  /** Balances are guarded by the stripe of their account handle, see stripe(). */
+  private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+
+  private TransferJournal journal;
+
+  private SnapshotStore snapshots;
+
+  private ScheduledExecutorService snapshotScheduler;
+
+  /** Held while a snapshot or export reads the balances, so the accounts cannot be cleared under it. */
+  private final ReentrantLock snapshotLock = new ReentrantLock();
+
+  /**
+   * Sequence number of the last journal record the running snapshot covers, the negative cut
+   * of the running export, or {@link Long#MAX_VALUE} if none is running. Accounts changed
+   * after the cut keep their balance from the cut until it has read them.
+   */
+  private volatile long snapshotCut = Long.MAX_VALUE;
+
+  /** Cut of the last export, guarded by snapshotLock. */
+  private long lastExportCut;
+
+  /** Ids of the accounts whose balance is split into cells, see configureHotAccounts(). */
+  private Set<String> hotAccountIds = Collections.emptySet();
+
+  private int hotCells;
+
+  public AccountsRepositoryInMemory() {
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+  }
+
+  /**
+   * Optional write-ahead journal. Records are appended while the accounts are held, so the
+   * journal order agrees with the order changes were applied in; callers then wait for
+   * durability after releasing the locks, so concurrent transfers share one flush.
+   */
+  @Autowired(required = false)
+  public void setJournal(TransferJournal journal) {
+    this.journal = journal;
+  }
+
+  /**
+   * Optional snapshots, only used together with the journal.
+   */
+  @Autowired(required = false)
+  public void setSnapshots(SnapshotStore snapshots) {
+    this.snapshots = snapshots;
+  }
+
+  /**
+   * Accounts that take part in a large share of all transfers, such as fee or settlement
+   * accounts. The balance of each is split into {@code cells} parts, in the manner of a
+   * {@link java.util.concurrent.atomic.LongAdder}, each guarded by a stripe of its own: a
+   * transfer only holds the one cell it credits or debits, so transfers on the account rarely
+   * wait for each other. See {@link #transferHot}. Applies to accounts created or recovered
+   * afterwards.
+   */
+  @Autowired
+  public void configureHotAccounts(@Value("${accounts.hot.account-ids:}") String[] accountIds,
+                                   @Value("${accounts.hot.cells:16}") int cells) {
+    final Set<String> ids = new HashSet<>();
+    for (String accountId : accountIds) {
+      if (!accountId.trim().isEmpty()) {
+        ids.add(accountId.trim());
+      }
+    }
+    this.hotAccountIds = ids;
+    this.hotCells = Math.max(1, Math.min(cells, LOCK_STRIPES));
+  }
+
+  @PostConstruct
+  public void recover() throws IOException {
+    if (journal == null) {
+      return;
+    }
+    long started = System.nanoTime();
+    long from = -1;
+    if (snapshots != null) {
+      from = snapshots.load(journal.position(), new SnapshotStore.Sink() {
+        @Override
+        public void expect(long count) {
+          accounts = new AccountIndex<>(count);
+        }
+
+        @Override
+        public void account(String accountId, long balance) {
+          accounts.add(accountId, handle -> newBalance(accountId, balance, handle));
+        }
+      });
+      if (from >= 0) {
+        log.info("Loaded {} accounts from snapshot in {} ms", accounts.size(), (System.nanoTime() - started) / 1_000_000);
+      }
+    }
+    long records = journal.replay(Math.max(from, 0), new TransferJournal.Visitor() {
+      @Override
+      public void created(String accountId, long balance) {
+        accounts.add(accountId, handle -> newBalance(accountId, balance, handle));
+      }
+
+      @Override
+      public void transferred(String accountFromId, String accountToId, long amount) {
+        IndexedBalance accountFrom = accounts.get(accountFromId);
+        IndexedBalance accountTo = accounts.get(accountToId);
+        accountFrom.setBalance(Money.subtract(accountFrom.getBalance(), amount));
+        accountTo.setBalance(Money.add(accountTo.getBalance(), amount));
+      }
+
+      @Override
+      public void cleared() {
+        accounts.clear();
+      }
+    });
+    log.info("Replayed {} journal records into {} accounts in {} ms", records, accounts.size(),
+      (System.nanoTime() - started) / 1_000_000);
+
+    if (snapshots != null && snapshots.getIntervalMillis() > 0) {
+      snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "accounts-snapshot");
+        thread.setDaemon(true);
+        return thread;
+      });
+      snapshotScheduler.scheduleWithFixedDelay(this::scheduledSnapshot, snapshots.getIntervalMillis(),
+        snapshots.getIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Writes a snapshot of all balances as of the current end of the journal, without stopping
+   * transfers. The cut is taken under the journal's append lock; a transfer journaled after it
+   * saves the balances it overwrites if the snapshot has not read them yet, and the snapshot
+   * prefers those saved balances.
+   *
+   * @return the number of accounts written.
+   */
+  public long snapshot() throws IOException {
+    if (journal == null || snapshots == null) {
+      throw new IllegalStateException("Snapshots need the journal and a snapshot store");
+    }
+    snapshotLock.lock();
+    try {
+      long started = System.nanoTime();
+      final long position = journal.cut(sequence -> snapshotCut = sequence);
+      final long cut = snapshotCut;
+      try {
+        // The snapshot must never be ahead of what the journal holds on disk.
+        journal.flush(cut);
+        long written = snapshots.write(position, sink -> readBalances(cut, sink));
+        log.info("Wrote snapshot of {} accounts at journal position {} in {} ms", written, position,
+          (System.nanoTime() - started) / 1_000_000);
+        return written;
+      } finally {
+        snapshotCut = Long.MAX_VALUE;
+      }
+    } finally {
+      snapshotLock.unlock();
+    }
+  }
+
+  /**
+   * Reads all balances as of one point in time, without stopping transfers, in the same way
+   * as {@link #snapshot()}: a transfer that sees the export running saves the balances it
+   * overwrites if the export has not read them yet. The cut is not tied to the journal, so a
+   * negative one is used, below every journal sequence, and each export gets its own.
+   */
+  @Override
+  public long exportAccounts(SnapshotStore.Sink sink) throws IOException {
+    snapshotLock.lock();
+    try {
+      final long cut = --lastExportCut;
+      snapshotCut = cut;
+      try {
+        return readBalances(cut, sink);
+      } finally {
+        snapshotCut = Long.MAX_VALUE;
+      }
+    } finally {
+      snapshotLock.unlock();
+    }
+  }
+
+  /**
+   * The cursor is the handle to continue from, accounts are listed in creation order.
+   */
+  @Override
+  public AccountPage listAccounts(String cursor, int limit) {
+    int from = 0;
+    if (cursor != null) {
+      try {
+        from = Integer.parseInt(cursor);
+      } catch (NumberFormatException e) {
+        from = -1;
+      }
+      if (from < 0) {
+        throw new IllegalArgumentException("Invalid cursor " + cursor);
+      }
+    }
+    final List<IndexedBalance> found = accounts.walk(from, limit);
+    final List<Account> page = new ArrayList<>(found.size());
+    for (IndexedBalance account : found) {
+      page.add(account.toAccount());
+    }
+    final String next = found.size() < limit ? null : Integer.toString(found.get(found.size() - 1).handle + 1);
+    return new AccountPage(page, next);
+  }
+
+  /**
+   * Passes the balances as of the cut to the sink, preferring those saved by transfers after it.
+   *
+   * @return the number of accounts passed.
+   */
+  private long readBalances(long cut, SnapshotStore.Sink sink) throws IOException {
+    long read = 0;
+    for (IndexedBalance account : accounts) {
+      boolean created = true;
+      long balance = 0;
+      // Cells are read one at a time: each has its balance of the cut, so their sum does too.
+      for (int i = 0; i < account.parts() && created; i++) {
+        final IndexedBalance part = account.part(i);
+        final ReentrantLock stripe = stripe(part);
+        stripe.lock();
+        try {
+          // Only journal cuts are positive. An account created after one is in the journal after it.
+          created = cut < 0 || account.createdSequence <= cut;
+          balance += part.preservedCut == cut ? part.preservedBalance : part.getBalance();
+        } finally {
+          stripe.unlock();
+        }
+      }
+      if (created) {
+        sink.account(account.getAccountId(), balance);
+        read++;
+      }
+    }
+    return read;
+  }
+
+  @PreDestroy
+  public void shutdown() throws IOException {
+    if (journal == null || snapshots == null) {
+      return;
+    }
+    if (snapshotScheduler != null) {
+      snapshotScheduler.shutdownNow();
+    }
+    // The next start then has no journal tail to replay.
+    snapshot();
+  }
+
+  private void scheduledSnapshot() {
+    try {
+      snapshot();
+    } catch (IOException | RuntimeException e) {
+      log.error("Snapshot failed", e);
+    }
+  }
 
   @Override
   public void createAccount(Account account) throws DuplicateAccountIdException {
-    Account previousAccount = accounts.putIfAbsent(account.getAccountId(), account);
-    if (previousAccount != null) {
+    final long sequence = create(account);
+    if (sequence < 0) {
       throw new DuplicateAccountIdException(
         "Account id " + account.getAccountId() + " already exists!");
     }
+    awaitDurable(sequence);
+  }
+
+  /**
+   * Sizes the index for the whole batch up front and waits for the journal once, after the
+   * last account.
+   */
+  @Override
+  public boolean[] createAccounts(List<Account> batch) {
+    accounts.reserve(batch.size());
+    final boolean[] created = new boolean[batch.size()];
+    long sequence = 0;
+    for (int i = 0; i < created.length; i++) {
+      final long appended = create(batch.get(i));
+      created[i] = appended >= 0;
+      sequence = Math.max(sequence, appended);
+    }
+    awaitDurable(sequence);
+    return created;
+  }
+
+  /**
+   * @return the journal sequence of the creation, 0 without journal, or -1 if the id is taken.
+   */
+  private long create(Account account) {
+    final long balance = Money.toMinorUnits(account.getBalance());
+    long sequence = 0;
+    // Locked before it can be found and held until the creation is journaled, so no transfer
+    // on the new account is journaled first.
+    final IndexedBalance created = accounts.add(account.getAccountId(), handle -> {
+      final IndexedBalance added = newBalance(account.getAccountId(), balance, handle);
+      lockParts(added);
+      return added;
+    });
+    if (created == null) {
+      return -1;
+    }
+    try {
+      if (journal != null) {
+        try {
+          sequence = journal.appendCreate(created.getAccountId(), created.getBalance());
+          created.createdSequence = sequence;
+        } catch (RuntimeException e) {
+          accounts.remove(created);
+          throw e;
+        }
+      }
+    } finally {
+      unlockParts(created);
+    }
+    return sequence;
+  }
+
+  private IndexedBalance newBalance(String accountId, long balance, int handle) {
+    final IndexedBalance account = new IndexedBalance(accountId, balance, handle);
+    if (hotCells > 1 && hotAccountIds.contains(accountId)) {
+      account.split(hotCells);
+    }
+    return account;
+  }
+
+  /**
+   * Locks the stripes of all parts of the account, in index order.
+   */
+  private void lockParts(IndexedBalance account) {
+    if (account.cellStripes == null) {
+      stripe(account).lock();
+      return;
+    }
+    for (int stripe : account.cellStripes) {
+      stripes[stripe].lock();
+    }
+  }
+
+  private void unlockParts(IndexedBalance account) {
+    if (account.cellStripes == null) {
+      stripe(account).unlock();
+      return;
+    }
+    for (int i = account.cellStripes.length - 1; i >= 0; i--) {
+      stripes[account.cellStripes[i]].unlock();
+    }
   }
 
   @Override
   public Account getAccount(String accountId) {
-    return accounts.get(accountId);
+    AccountBalance account = accounts.get(accountId);
+    return account == null ? null : account.toAccount();
+  }
+
+  /**
+   * Lock-free: the balance is read once and the account's last snapshot is reused if it still
+   * has that balance. Transfers never touch the snapshot, a stale one is just replaced by the
+   * next read.
+   */
+  @Override
+  public AccountSnapshot getAccountSnapshot(String accountId) {
+    final IndexedBalance account = accounts.get(accountId);
+    if (account == null) {
+      return null;
+    }
+    final long balance = account.getBalance();
+    AccountSnapshot snapshot = account.lastRead;
+    if (snapshot == null || snapshot.getBalance() != balance) {
+      snapshot = new AccountSnapshot(accountId, balance);
+      account.lastRead = snapshot;
+    }
+    return snapshot;
+  }
+
+  @Override
+  public int size() {
+    return accounts.size();
   }
 
   @Override
   public void clearAccounts() {
-    accounts.clear();
+    if (journal != null) {
+      long sequence;
+      snapshotLock.lock();
+      try {
+        sequence = journal.appendClear();
+        accounts.clear();
+      } finally {
+        snapshotLock.unlock();
+      }
+      awaitDurable(sequence);
+    } else {
+      accounts.clear();
+    }
   }
 
   @Override
-  public boolean transfer(List<Account> accounts) {
-    accounts.forEach(this::updateAccount);
-    return true;
+  public Response transfer(String accountFromId, String accountToId, long amount, FundTransferValidator validator) {
+    final IndexedBalance accountFrom = accounts.get(accountFromId);
+    final IndexedBalance accountTo = accounts.get(accountToId);
+
+    if (accountFrom == null || accountTo == null || accountFrom == accountTo) {
+      // Missing accounts and self transfers are always rejected, there is nothing to lock.
+      return validator.validate(accountFrom, accountTo, amount);
+    }
+    if (accountFrom.cells != null || accountTo.cells != null) {
+      return transferHot(accountFrom, accountTo, amount, validator);
+    }
+    return transferParts(accountFrom, accountTo, amount, validator, false);
   }
 
-  private void updateAccount(final Account account){
-    final String accountId = account.getAccountId();
+  /**
+   * Transfers between two accounts or cells under their two stripes.
+   *
+   * @param debitsCell whether {@code accountFrom} is a cell, which must cover the amount on its
+   *                   own.
+   * @return null, with nothing changed, if the cell debited does not cover the amount.
+   */
+  private Response transferParts(IndexedBalance accountFrom, IndexedBalance accountTo, long amount,
+                                 FundTransferValidator validator, boolean debitsCell) {
+    // Stripes are always taken in index order, so two opposite transfers cannot deadlock. Two
+    // accounts on one stripe take it twice, the locks are reentrant.
+    final ReentrantLock stripeFrom = stripe(accountFrom);
+    final ReentrantLock stripeTo = stripe(accountTo);
+    final boolean fromFirst = (accountFrom.handle & (LOCK_STRIPES - 1)) < (accountTo.handle & (LOCK_STRIPES - 1));
+    final ReentrantLock first = fromFirst ? stripeFrom : stripeTo;
+    final ReentrantLock second = fromFirst ? stripeTo : stripeFrom;
 
-    accounts.computeIfPresent(accountId, (key, value) -> {
-      value.setBalance(value.getBalance().add(account.getAmountToBeDeposit()));
-      return value;
-    });
+    final Response response;
+    long sequence = 0;
+    first.lock();
+    try {
+      second.lock();
+      try {
+        if (debitsCell && accountFrom.getBalance() < amount) {
+          // Drawn down since it was picked.
+          return null;
+        }
+        response = validator.validate(accountFrom, accountTo, amount);
+        if (response.isAccepted()) {
+          // Both results are computed and journaled before either is stored, so a failure changes nothing.
+          final long balanceFrom = Money.subtract(accountFrom.getBalance(), amount);
+          final long balanceTo = Money.add(accountTo.getBalance(), amount);
+          if (journal != null) {
+            sequence = journal.appendTransfer(accountFrom.getAccountId(), accountTo.getAccountId(), amount);
+          }
+          final long cut = snapshotCut;
+          accountFrom.preserve(sequence, cut);
+          accountTo.preserve(sequence, cut);
+          accountFrom.setBalance(balanceFrom);
+          accountTo.setBalance(balanceTo);
+        }
+      } finally {
+        second.unlock();
+      }
+    } finally {
+      first.unlock();
+    }
+    awaitDurable(sequence);
+    return response;
+  }
+
+  /**
+   * A transfer from or to a hot account. A credit goes to a random cell. A debit is drawn from
+   * a cell that covers the amount; if none does, all cells of the account are locked, the
+   * transfer is checked against their sum, and the rest is spread evenly over the cells again.
+   * So no transfer takes more than the account holds in total.
+   */
+  private Response transferHot(IndexedBalance accountFrom, IndexedBalance accountTo, long amount,
+                               FundTransferValidator validator) {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    final IndexedBalance partTo = accountTo.cells == null ? accountTo
+      : accountTo.cells[random.nextInt(accountTo.cells.length)];
+    if (accountFrom.cells == null) {
+      return transferParts(accountFrom, partTo, amount, validator, false);
+    }
+    final IndexedBalance[] cells = accountFrom.cells;
+    final int start = random.nextInt(cells.length);
+    for (int i = 0; i < cells.length; i++) {
+      final IndexedBalance cell = cells[(start + i) & (cells.length - 1)];
+      // A cell of balance 0 is left to the validator, which rejects debits of empty accounts.
+      if (cell.getBalance() >= amount && cell.getBalance() > 0) {
+        final Response response = transferParts(cell, partTo, amount, validator, true);
+        if (response != null) {
+          return response;
+        }
+      }
+    }
+    return transferRebalancing(accountFrom, partTo, amount, validator);
+  }
+
+  private Response transferRebalancing(IndexedBalance accountFrom, IndexedBalance accountTo, long amount,
+                                       FundTransferValidator validator) {
+    final int[] stripeOrder = Arrays.copyOf(accountFrom.cellStripes, accountFrom.cellStripes.length + 1);
+    stripeOrder[stripeOrder.length - 1] = accountTo.handle & (LOCK_STRIPES - 1);
+    Arrays.sort(stripeOrder);
+    final Response response;
+    long sequence = 0;
+    int locked = 0;
+    try {
+      for (; locked < stripeOrder.length; locked++) {
+        stripes[stripeOrder[locked]].lock();
+      }
+      // All cells are held, so nothing moves between them meanwhile.
+      final AccountBalance total = new AccountBalance(accountFrom.getAccountId(), accountFrom.getBalance());
+      response = validator.validate(total, accountTo, amount);
+      if (response.isAccepted()) {
+        final long balanceFrom = Money.subtract(total.getBalance(), amount);
+        final long balanceTo = Money.add(accountTo.getBalance(), amount);
+        if (journal != null) {
+          sequence = journal.appendTransfer(accountFrom.getAccountId(), accountTo.getAccountId(), amount);
+        }
+        final long cut = snapshotCut;
+        accountFrom.preserve(sequence, cut);
+        accountTo.preserve(sequence, cut);
+        accountFrom.setBalance(balanceFrom);
+        accountTo.setBalance(balanceTo);
+      }
+    } finally {
+      for (int i = locked - 1; i >= 0; i--) {
+        stripes[stripeOrder[i]].unlock();
+      }
+    }
+    awaitDurable(sequence);
+    return response;
+  }
+
+  @Override
+  public List<Response> transferAll(List<Transfer> transfers, FundTransferValidator validator) {
+    final Map<String, IndexedBalance> involved = new HashMap<>();
+    for (Transfer transfer : transfers) {
+      involve(involved, transfer.getAccountFromId());
+      involve(involved, transfer.getAccountToId());
+    }
+
+    final IndexedBalance[] lockOrder = involved.values().toArray(new IndexedBalance[0]);
+    int parts = 0;
+    for (IndexedBalance account : lockOrder) {
+      parts += account.parts();
+    }
+    // A hot account is held with all its cells.
+    final int[] stripeOrder = new int[parts];
+    parts = 0;
+    for (IndexedBalance account : lockOrder) {
+      for (int i = 0; i < account.parts(); i++) {
+        stripeOrder[parts++] = account.part(i).handle & (LOCK_STRIPES - 1);
+      }
+    }
+    Arrays.sort(stripeOrder);
+    int stripeCount = 0;
+    for (int stripe : stripeOrder) {
+      if (stripeCount == 0 || stripeOrder[stripeCount - 1] != stripe) {
+        stripeOrder[stripeCount++] = stripe;
+      }
+    }
+
+    int locked = 0;
+    long sequence = 0;
+    try {
+      for (int i = 0; i < stripeCount; i++) {
+        stripes[stripeOrder[i]].lock();
+        locked++;
+      }
+
+      // Each account touched by the batch gets one working copy. The transfers run against
+      // the copies in order and the real balances are only written once all of them passed,
+      // so a rejected batch never leaves a trace.
+      final Map<String, AccountBalance> working = new HashMap<>(involved.size() * 2);
+      for (IndexedBalance account : lockOrder) {
+        working.put(account.getAccountId(), new AccountBalance(account.getAccountId(), account.getBalance()));
+      }
+
+      final List<Response> responses = new ArrayList<>(transfers.size());
+      boolean rejected = false;
+      for (Transfer transfer : transfers) {
+        final AccountBalance accountFrom = working.get(transfer.getAccountFromId());
+        final AccountBalance accountTo = working.get(transfer.getAccountToId());
+        final long amount = Money.toMinorUnits(transfer.getAmount());
+
+        Response response = validator.validate(accountFrom, accountTo, amount);
+        if (response.isAccepted()) {
+          final long balanceFrom = Money.subtract(accountFrom.getBalance(), amount);
+          final long balanceTo = Money.add(accountTo.getBalance(), amount);
+          accountFrom.setBalance(balanceFrom);
+          accountTo.setBalance(balanceTo);
+        } else {
+          rejected = true;
+        }
+        responses.add(response);
+      }
+
+      if (!rejected) {
+        if (journal != null) {
+          sequence = journalBatch(transfers);
+        }
+        final long cut = snapshotCut;
+        for (IndexedBalance account : lockOrder) {
+          account.preserve(sequence, cut);
+        }
+        for (IndexedBalance account : lockOrder) {
+          account.setBalance(working.get(account.getAccountId()).getBalance());
+        }
+      }
+      return responses;
+    } finally {
+      for (int i = locked - 1; i >= 0; i--) {
+        stripes[stripeOrder[i]].unlock();
+      }
+      awaitDurable(sequence);
+    }
+  }
+
+  private long journalBatch(List<Transfer> transfers) {
+    final int count = transfers.size();
+    final String[] accountFromIds = new String[count];
+    final String[] accountToIds = new String[count];
+    final long[] amounts = new long[count];
+    for (int i = 0; i < count; i++) {
+      Transfer transfer = transfers.get(i);
+      accountFromIds[i] = transfer.getAccountFromId();
+      accountToIds[i] = transfer.getAccountToId();
+      amounts[i] = Money.toMinorUnits(transfer.getAmount());
+    }
+    return journal.appendBatch(accountFromIds, accountToIds, amounts);
+  }
+
+  private void awaitDurable(long sequence) {
+    if (sequence != 0) {
+      journal.awaitDurable(sequence);
+    }
+  }
+
+  private ReentrantLock stripe(IndexedBalance account) {
+    return stripes[account.handle & (LOCK_STRIPES - 1)];
+  }
+
+  private void involve(Map<String, IndexedBalance> involved, String accountId) {
+    if (accountId != null && !involved.containsKey(accountId)) {
+      IndexedBalance account = accounts.get(accountId);
+      if (account != null) {
+        involved.put(accountId, account);
+      }
+    }
+  }
+
+  private static final class IndexedBalance extends AccountBalance implements AccountIndex.Entry {
+
+    private final int handle;
+
+    // Guarded by the stripe, see snapshot(). No cut is Long.MAX_VALUE.
+    private long createdSequence;
+    private long preservedCut = Long.MAX_VALUE;
+    private long preservedBalance;
+
+    // Last snapshot handed out, only written by readers, see getAccountSnapshot().
+    private volatile AccountSnapshot lastRead;
+
+    // Parts of the balance of a hot account and their stripes in index order, else null. A
+    // cell is an IndexedBalance of the same id, with a handle that only picks its stripe.
+    private IndexedBalance[] cells;
+    private int[] cellStripes;
+    // Odd while the balance is spread over the cells anew, see getBalance().
+    private volatile int spreading;
+
+    private IndexedBalance(String accountId, long balance, int handle) {
+      super(accountId, balance);
+      this.handle = handle;
+    }
+
+    @Override
+    public int getHandle() {
+      return handle;
+    }
+
+    /**
+     * Splits the balance into cells, rounded down to a power of two, the first one on the
+     * account's own stripe.
+     */
+    private void split(int count) {
+      final int cellCount = Integer.highestOneBit(count);
+      final int spacing = LOCK_STRIPES / cellCount;
+      cells = new IndexedBalance[cellCount];
+      cellStripes = new int[cellCount];
+      for (int i = 0; i < cellCount; i++) {
+        cells[i] = new IndexedBalance(getAccountId(), 0, handle + i * spacing);
+        cellStripes[i] = cells[i].handle & (LOCK_STRIPES - 1);
+      }
+      Arrays.sort(cellStripes);
+      spread(super.getBalance());
+    }
+
+    private int parts() {
+      return cells == null ? 1 : cells.length;
+    }
+
+    private IndexedBalance part(int index) {
+      return cells == null ? this : cells[index];
+    }
+
+    /**
+     * Of a hot account, the sum of its cells. Cells credited or debited meanwhile may be
+     * counted before or after the change, as with {@link java.util.concurrent.atomic.LongAdder#sum()};
+     * the sum is retried if the balance was spread anew meanwhile.
+     */
+    @Override
+    public long getBalance() {
+      if (cells == null) {
+        return super.getBalance();
+      }
+      while (true) {
+        final int before = spreading;
+        if ((before & 1) == 0) {
+          long balance = 0;
+          for (IndexedBalance cell : cells) {
+            balance += cell.getBalance();
+          }
+          if (spreading == before) {
+            return balance;
+          }
+        }
+        Thread.yield();
+      }
+    }
+
+    /**
+     * Of a hot account, spreads the balance evenly over the cells; only while all are held.
+     */
+    @Override
+    public void setBalance(long balance) {
+      if (cells == null) {
+        super.setBalance(balance);
+      } else {
+        spread(balance);
+      }
+    }
+
+    private void spread(long balance) {
+      spreading++;
+      final long share = balance / cells.length;
+      cells[0].setBalance(balance - share * (cells.length - 1));
+      for (int i = 1; i < cells.length; i++) {
+        cells[i].setBalance(share);
+      }
+      spreading++;
+    }
+
+    /**
+     * Saves the current balance for the running snapshot or export before a change after its
+     * cut. Without a journal the sequence is 0, after every export cut.
+     */
+    private void preserve(long sequence, long cut) {
+      if (cells != null) {
+        for (IndexedBalance cell : cells) {
+          cell.preserve(sequence, cut);
+        }
+        return;
+      }
+      if (sequence > cut && preservedCut != cut) {
+        preservedCut = cut;
+        preservedBalance = getBalance();
+      }
+    }
   }
 
 }
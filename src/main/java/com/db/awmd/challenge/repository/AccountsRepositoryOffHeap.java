@@ -0,0 +1,417 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountBalance;
+import com.db.awmd.challenge.domain.AccountPage;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.exception.Response;
+import com.db.awmd.challenge.utility.Money;
+import com.db.awmd.challenge.validator.FundTransferValidator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Repository keeping all account data in direct memory, for account counts where one heap
+ * object per account would dominate the heap and the collector's work.
+ *
+ * <p>Accounts live in numbered slots of {@code [balance][id reference]}, allocated in
+ * order. Ids are stored once as UTF-8 in an append-only id area, and an open-addressing
+ * table maps an id to its slot. The capacity is fixed at startup. {@link Account} and
+ * {@link AccountBalance} objects are only built for the caller and the validators.
+ *
+ * <p>Balances are guarded by a fixed set of lock stripes, taken in stripe order. Creation is
+ * serialised and published through the volatile account count: a reader only trusts slots
+ * below the count it read and retries under the creation lock otherwise.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.repository.mode", havingValue = "offheap")
+public class AccountsRepositoryOffHeap implements AccountsRepository {
+
+  private static final int SLOT_BYTES = 16;
+  private static final int SLOT_CHUNK_SHIFT = 20;
+  private static final int SLOT_CHUNK_MASK = (1 << SLOT_CHUNK_SHIFT) - 1;
+  private static final int ID_CHUNK_SHIFT = 24;
+  private static final int ID_CHUNK_BYTES = 1 << ID_CHUNK_SHIFT;
+  private static final int MAX_CAPACITY = 1 << 27;
+
+  private final int capacity;
+  private final int mask;
+  private final ByteBuffer index;
+  private final ByteBuffer[] slotChunks;
+  private final ReentrantLock[] stripes;
+  private final ReentrantLock creationLock = new ReentrantLock();
+
+  // Guarded by creationLock, published through size.
+  private ByteBuffer[] idChunks = new ByteBuffer[0];
+  private int idChunkCount;
+  private int idPosition = ID_CHUNK_BYTES;
+
+  private volatile int size;
+
+  @Autowired
+  public AccountsRepositoryOffHeap(@Value("${accounts.offheap.capacity:1048576}") int capacity,
+                                   @Value("${accounts.offheap.lock-stripes:4096}") int lockStripes) {
+    if (capacity <= 0 || capacity > MAX_CAPACITY) {
+      throw new IllegalArgumentException("Off-heap capacity must be between 1 and " + MAX_CAPACITY);
+    }
+    this.capacity = capacity;
+    // At most half full, so probe sequences stay short.
+    final int buckets = Integer.highestOneBit(capacity * 2 - 1) << 1;
+    this.mask = buckets - 1;
+    this.index = ByteBuffer.allocateDirect(buckets * 4);
+    this.slotChunks = new ByteBuffer[((capacity - 1) >>> SLOT_CHUNK_SHIFT) + 1];
+    this.stripes = new ReentrantLock[Integer.highestOneBit(Math.max(1, lockStripes))];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+  }
+
+  @Override
+  public void createAccount(Account account) throws DuplicateAccountIdException {
+    final String accountId = account.getAccountId();
+    final byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+    if (id.length > 0xFFFF) {
+      throw new IllegalArgumentException("Account id longer than " + 0xFFFF + " bytes");
+    }
+    final long balance = Money.toMinorUnits(account.getBalance());
+
+    creationLock.lock();
+    try {
+      int bucket = hash(accountId) & mask;
+      for (int entry; (entry = index.getInt(bucket << 2)) != 0; bucket = (bucket + 1) & mask) {
+        if (idEquals(entry - 1, accountId)) {
+          throw new DuplicateAccountIdException("Account id " + accountId + " already exists!");
+        }
+      }
+      final int slot = size;
+      if (slot == capacity) {
+        throw new IllegalStateException("Off-heap account store is full at " + capacity + " accounts");
+      }
+
+      ByteBuffer chunk = slotChunks[slot >>> SLOT_CHUNK_SHIFT];
+      if (chunk == null) {
+        chunk = ByteBuffer.allocateDirect(Math.min(capacity - (slot & ~SLOT_CHUNK_MASK), SLOT_CHUNK_MASK + 1) * SLOT_BYTES);
+        slotChunks[slot >>> SLOT_CHUNK_SHIFT] = chunk;
+      }
+      final int offset = (slot & SLOT_CHUNK_MASK) * SLOT_BYTES;
+      chunk.putLong(offset, balance);
+      chunk.putLong(offset + 8, appendId(id));
+      index.putInt(bucket << 2, slot + 1);
+      size = slot + 1;
+    } finally {
+      creationLock.unlock();
+    }
+  }
+
+  @Override
+  public Account getAccount(String accountId) {
+    final int slot = find(accountId);
+    if (slot < 0) {
+      return null;
+    }
+    final ReentrantLock stripe = stripe(slot);
+    stripe.lock();
+    try {
+      return new Account(accountId, Money.toDecimal(balance(slot)));
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  /**
+   * Accounts in creation order, the cursor being the slot to continue from. Slots are reused
+   * after a clear, so a listing continued across one goes on with the accounts created since.
+   */
+  @Override
+  public AccountPage listAccounts(String cursor, int limit) {
+    int from = 0;
+    if (cursor != null) {
+      try {
+        from = Integer.parseInt(cursor);
+      } catch (NumberFormatException e) {
+        from = -1;
+      }
+      if (from < 0) {
+        throw new IllegalArgumentException("Invalid cursor " + cursor);
+      }
+    }
+    final List<Account> page = new ArrayList<>(Math.min(limit, 1024));
+    int slot = from;
+    // Keeps a clear from reusing the id area while the ids are read.
+    creationLock.lock();
+    try {
+      for (final int end = (int) Math.min(size, (long) from + limit); slot < end; slot++) {
+        final ReentrantLock stripe = stripe(slot);
+        stripe.lock();
+        try {
+          page.add(new Account(readId(slot), Money.toDecimal(balance(slot))));
+        } finally {
+          stripe.unlock();
+        }
+      }
+    } finally {
+      creationLock.unlock();
+    }
+    return new AccountPage(page, page.size() < limit ? null : Integer.toString(slot));
+  }
+
+  @Override
+  public void clearAccounts() {
+    creationLock.lock();
+    try {
+      for (ReentrantLock stripe : stripes) {
+        stripe.lock();
+      }
+      try {
+        for (int i = 0; i < index.capacity(); i += 8) {
+          index.putLong(i, 0);
+        }
+        // The chunks are kept and reused by the next accounts.
+        idChunkCount = 0;
+        idPosition = ID_CHUNK_BYTES;
+        size = 0;
+      } finally {
+        for (ReentrantLock stripe : stripes) {
+          stripe.unlock();
+        }
+      }
+    } finally {
+      creationLock.unlock();
+    }
+  }
+
+  @Override
+  public Response transfer(String accountFromId, String accountToId, long amount, FundTransferValidator validator) {
+    final int slotFrom = find(accountFromId);
+    final int slotTo = find(accountToId);
+
+    if (slotFrom < 0 || slotTo < 0 || slotFrom == slotTo) {
+      // Missing accounts and self transfers are always rejected, there is nothing to lock.
+      return validator.validate(slotFrom < 0 ? null : new AccountBalance(accountFromId, balance(slotFrom)),
+        slotTo < 0 ? null : new AccountBalance(accountToId, balance(slotTo)), amount);
+    }
+
+    // Stripes are always taken in stripe order, so two opposite transfers cannot deadlock.
+    final int stripeFrom = slotFrom & (stripes.length - 1);
+    final int stripeTo = slotTo & (stripes.length - 1);
+    final ReentrantLock first = stripes[Math.min(stripeFrom, stripeTo)];
+    final ReentrantLock second = stripes[Math.max(stripeFrom, stripeTo)];
+
+    first.lock();
+    try {
+      second.lock();
+      try {
+        final long balanceFrom = balance(slotFrom);
+        final long balanceTo = balance(slotTo);
+        final Response response = validator.validate(new AccountBalance(accountFromId, balanceFrom),
+          new AccountBalance(accountToId, balanceTo), amount);
+        if (response.isAccepted()) {
+          final long updatedFrom = Money.subtract(balanceFrom, amount);
+          final long updatedTo = Money.add(balanceTo, amount);
+          setBalance(slotFrom, updatedFrom);
+          setBalance(slotTo, updatedTo);
+        }
+        return response;
+      } finally {
+        second.unlock();
+      }
+    } finally {
+      first.unlock();
+    }
+  }
+
+  @Override
+  public List<Response> transferAll(List<Transfer> transfers, FundTransferValidator validator) {
+    final Map<String, Integer> involved = new HashMap<>();
+    for (Transfer transfer : transfers) {
+      involve(involved, transfer.getAccountFromId());
+      involve(involved, transfer.getAccountToId());
+    }
+
+    final int[] lockOrder = new int[involved.size()];
+    int count = 0;
+    for (int slot : involved.values()) {
+      lockOrder[count++] = slot & (stripes.length - 1);
+    }
+    Arrays.sort(lockOrder);
+
+    int locked = 0;
+    try {
+      for (int i = 0; i < lockOrder.length; i++) {
+        if (i == 0 || lockOrder[i] != lockOrder[i - 1]) {
+          stripes[lockOrder[i]].lock();
+        }
+        locked = i + 1;
+      }
+
+      // Same as the locking repository: run the batch on working copies, store only if all passed.
+      final Map<String, AccountBalance> working = new HashMap<>(involved.size() * 2);
+      involved.forEach((accountId, slot) -> working.put(accountId, new AccountBalance(accountId, balance(slot))));
+
+      final List<Response> responses = new ArrayList<>(transfers.size());
+      boolean rejected = false;
+      for (Transfer transfer : transfers) {
+        final AccountBalance accountFrom = working.get(transfer.getAccountFromId());
+        final AccountBalance accountTo = working.get(transfer.getAccountToId());
+        final long amount = Money.toMinorUnits(transfer.getAmount());
+
+        Response response = validator.validate(accountFrom, accountTo, amount);
+        if (response.isAccepted()) {
+          final long balanceFrom = Money.subtract(accountFrom.getBalance(), amount);
+          final long balanceTo = Money.add(accountTo.getBalance(), amount);
+          accountFrom.setBalance(balanceFrom);
+          accountTo.setBalance(balanceTo);
+        } else {
+          rejected = true;
+        }
+        responses.add(response);
+      }
+
+      if (!rejected) {
+        involved.forEach((accountId, slot) -> setBalance(slot, working.get(accountId).getBalance()));
+      }
+      return responses;
+    } finally {
+      for (int i = locked - 1; i >= 0; i--) {
+        if (i == 0 || lockOrder[i] != lockOrder[i - 1]) {
+          stripes[lockOrder[i]].unlock();
+        }
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  private void involve(Map<String, Integer> involved, String accountId) {
+    if (accountId != null && !involved.containsKey(accountId)) {
+      int slot = find(accountId);
+      if (slot >= 0) {
+        involved.put(accountId, slot);
+      }
+    }
+  }
+
+  private int find(String accountId) {
+    if (accountId == null) {
+      return -1;
+    }
+    final int published = size;
+    for (int bucket = hash(accountId) & mask; ; bucket = (bucket + 1) & mask) {
+      final int entry = index.getInt(bucket << 2);
+      if (entry == 0) {
+        return -1;
+      }
+      if (entry > published) {
+        // Created after size was read, the slot may not be visible to this thread yet.
+        return findCreated(accountId);
+      }
+      if (idEquals(entry - 1, accountId)) {
+        return entry - 1;
+      }
+    }
+  }
+
+  private int findCreated(String accountId) {
+    creationLock.lock();
+    try {
+      for (int bucket = hash(accountId) & mask; ; bucket = (bucket + 1) & mask) {
+        final int entry = index.getInt(bucket << 2);
+        if (entry == 0) {
+          return -1;
+        }
+        if (idEquals(entry - 1, accountId)) {
+          return entry - 1;
+        }
+      }
+    } finally {
+      creationLock.unlock();
+    }
+  }
+
+  private boolean idEquals(int slot, String accountId) {
+    final long reference = slotChunks[slot >>> SLOT_CHUNK_SHIFT].getLong((slot & SLOT_CHUNK_MASK) * SLOT_BYTES + 8);
+    final ByteBuffer chunk = idChunks[(int) (reference >>> ID_CHUNK_SHIFT)];
+    final int offset = (int) reference & (ID_CHUNK_BYTES - 1);
+    final int length = chunk.getShort(offset) & 0xFFFF;
+    if (length < accountId.length()) {
+      return false;
+    }
+    if (length == accountId.length()) {
+      // Compares ASCII ids in place; anything else is decoded.
+      int i = 0;
+      for (byte b; i < length && (b = chunk.get(offset + 2 + i)) >= 0; i++) {
+        if (b != accountId.charAt(i)) {
+          return false;
+        }
+      }
+      if (i == length) {
+        return true;
+      }
+    }
+    return readId(slot).equals(accountId);
+  }
+
+  private String readId(int slot) {
+    final long reference = slotChunks[slot >>> SLOT_CHUNK_SHIFT].getLong((slot & SLOT_CHUNK_MASK) * SLOT_BYTES + 8);
+    final ByteBuffer chunk = idChunks[(int) (reference >>> ID_CHUNK_SHIFT)];
+    final int offset = (int) reference & (ID_CHUNK_BYTES - 1);
+    final byte[] id = new byte[chunk.getShort(offset) & 0xFFFF];
+    for (int i = 0; i < id.length; i++) {
+      id[i] = chunk.get(offset + 2 + i);
+    }
+    return new String(id, StandardCharsets.UTF_8);
+  }
+
+  private long appendId(byte[] id) {
+    if (idPosition + 2 + id.length > ID_CHUNK_BYTES) {
+      if (idChunkCount == idChunks.length) {
+        idChunks = Arrays.copyOf(idChunks, Math.max(4, idChunks.length * 2));
+      }
+      if (idChunks[idChunkCount] == null) {
+        idChunks[idChunkCount] = ByteBuffer.allocateDirect(ID_CHUNK_BYTES);
+      }
+      idChunkCount++;
+      idPosition = 0;
+    }
+    final ByteBuffer chunk = idChunks[idChunkCount - 1];
+    final long reference = ((long) (idChunkCount - 1) << ID_CHUNK_SHIFT) | idPosition;
+    chunk.putShort(idPosition, (short) id.length);
+    for (int i = 0; i < id.length; i++) {
+      chunk.put(idPosition + 2 + i, id[i]);
+    }
+    idPosition += 2 + id.length;
+    return reference;
+  }
+
+  private long balance(int slot) {
+    return slotChunks[slot >>> SLOT_CHUNK_SHIFT].getLong((slot & SLOT_CHUNK_MASK) * SLOT_BYTES);
+  }
+
+  private void setBalance(int slot, long balance) {
+    slotChunks[slot >>> SLOT_CHUNK_SHIFT].putLong((slot & SLOT_CHUNK_MASK) * SLOT_BYTES, balance);
+  }
+
+  private ReentrantLock stripe(int slot) {
+    return stripes[slot & (stripes.length - 1)];
+  }
+
+  private static int hash(String accountId) {
+    final int h = accountId.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
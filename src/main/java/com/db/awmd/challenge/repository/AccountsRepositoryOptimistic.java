@@ -0,0 +1,256 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountBalance;
+import com.db.awmd.challenge.domain.AccountContention;
+import com.db.awmd.challenge.domain.AccountPage;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.exception.Response;
+import com.db.awmd.challenge.utility.Money;
+import com.db.awmd.challenge.validator.FundTransferValidator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free repository: every account is an immutable {@link AccountBalance} snapshot held
+ * in an {@link AtomicReference} and replaced with compare-and-set.
+ *
+ * <p>A transfer runs in two phases. The debit validates against the current snapshots and
+ * commits by swapping the source snapshot, retrying on conflict; once it succeeds the
+ * transfer is accepted. The credit can never fail, so it simply retries until its swap wins.
+ * Between the two phases the amount is in flight and a reader summing balances sees it missing.
+ *
+ * <p>A batch validates against one snapshot of every involved account and nets the amounts
+ * per account. It then claims every involved account in account id order by swapping in a
+ * {@link Claim} of the validated snapshot, which still shows the old balance. If any snapshot
+ * is no longer current the claims taken are swapped back and the whole batch is validated
+ * again; nothing of it was ever visible. Once all are claimed the new balances replace the
+ * claims. Writers that meet a claim wait until it is replaced, so no transfer validates
+ * against a half-applied batch.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.repository.mode", havingValue = "optimistic")
+public class AccountsRepositoryOptimistic implements AccountsRepository {
+
+  private final Map<String, AccountCell> accounts = new ConcurrentHashMap<>();
+
+  @Override
+  public void createAccount(Account account) throws DuplicateAccountIdException {
+    AccountCell cell = new AccountCell(new AccountBalance(account));
+    AccountCell previousCell = accounts.putIfAbsent(account.getAccountId(), cell);
+    if (previousCell != null) {
+      throw new DuplicateAccountIdException(
+        "Account id " + account.getAccountId() + " already exists!");
+    }
+  }
+
+  @Override
+  public Account getAccount(String accountId) {
+    AccountCell cell = accounts.get(accountId);
+    return cell == null ? null : cell.state.get().toAccount();
+  }
+
+  /**
+   * Accounts in id order, the cursor being the last id of the page before.
+   */
+  @Override
+  public AccountPage listAccounts(String cursor, int limit) {
+    final AccountPageCollector page = new AccountPageCollector(cursor, limit);
+    accounts.forEach((accountId, cell) -> page.offer(accountId, cell.state.get().getBalance()));
+    return page.toPage();
+  }
+
+  @Override
+  public int size() {
+    return accounts.size();
+  }
+
+  @Override
+  public void clearAccounts() {
+    accounts.clear();
+  }
+
+  @Override
+  public Response transfer(String accountFromId, String accountToId, long amount, FundTransferValidator validator) {
+    final AccountCell cellFrom = accounts.get(accountFromId);
+    final AccountCell cellTo = accounts.get(accountToId);
+
+    if (cellFrom == null || cellTo == null || cellFrom == cellTo) {
+      return validator.validate(cellFrom == null ? null : cellFrom.state.get(),
+        cellTo == null ? null : cellTo.state.get(), amount);
+    }
+
+    while (true) {
+      AccountBalance accountFrom = cellFrom.current();
+      Response response = validator.validate(accountFrom, cellTo.current(), amount);
+      if (!response.isAccepted()) {
+        return response;
+      }
+      if (cellFrom.compareAndSet(accountFrom,
+        new AccountBalance(accountFrom.getAccountId(), Money.subtract(accountFrom.getBalance(), amount)))) {
+        break;
+      }
+    }
+
+    credit(cellTo, amount);
+    return new Response();
+  }
+
+  @Override
+  public List<Response> transferAll(List<Transfer> transfers, FundTransferValidator validator) {
+    // Sorted, so that batches claim their accounts in one global order.
+    final Map<String, AccountCell> involved = new TreeMap<>();
+    for (Transfer transfer : transfers) {
+      involve(involved, transfer.getAccountFromId());
+      involve(involved, transfer.getAccountToId());
+    }
+
+    while (true) {
+      final Map<String, AccountBalance> snapshots = new HashMap<>(involved.size() * 2);
+      final Map<String, AccountBalance> working = new HashMap<>(involved.size() * 2);
+      involved.forEach((accountId, cell) -> {
+        AccountBalance snapshot = cell.current();
+        snapshots.put(accountId, snapshot);
+        working.put(accountId, new AccountBalance(accountId, snapshot.getBalance()));
+      });
+
+      final List<Response> responses = new ArrayList<>(transfers.size());
+      boolean rejected = false;
+      for (Transfer transfer : transfers) {
+        final AccountBalance accountFrom = working.get(transfer.getAccountFromId());
+        final AccountBalance accountTo = working.get(transfer.getAccountToId());
+        final long amount = Money.toMinorUnits(transfer.getAmount());
+
+        Response response = validator.validate(accountFrom, accountTo, amount);
+        if (response.isAccepted()) {
+          accountFrom.setBalance(Money.subtract(accountFrom.getBalance(), amount));
+          accountTo.setBalance(Money.add(accountTo.getBalance(), amount));
+        } else {
+          rejected = true;
+        }
+        responses.add(response);
+      }
+      if (rejected) {
+        return responses;
+      }
+      if (commitBatch(involved, snapshots, working)) {
+        return responses;
+      }
+    }
+  }
+
+  private boolean commitBatch(Map<String, AccountCell> involved, Map<String, AccountBalance> snapshots,
+                              Map<String, AccountBalance> working) {
+    final List<String> claimed = new ArrayList<>(involved.size());
+    for (Map.Entry<String, AccountCell> entry : involved.entrySet()) {
+      final AccountBalance snapshot = snapshots.get(entry.getKey());
+      // A claim is only valid against the exact snapshot the batch was validated on.
+      if (!entry.getValue().compareAndSet(snapshot, new Claim(snapshot))) {
+        for (String claimedId : claimed) {
+          involved.get(claimedId).state.set(snapshots.get(claimedId));
+        }
+        return false;
+      }
+      claimed.add(entry.getKey());
+    }
+
+    // Only this batch can replace its own claims.
+    involved.forEach((accountId, cell) ->
+      cell.state.set(new AccountBalance(accountId, working.get(accountId).getBalance())));
+    return true;
+  }
+
+  private void credit(AccountCell cell, long amount) {
+    while (true) {
+      AccountBalance account = cell.current();
+      if (cell.compareAndSet(account, new AccountBalance(account.getAccountId(), Money.add(account.getBalance(), amount)))) {
+        return;
+      }
+    }
+  }
+
+  private void involve(Map<String, AccountCell> involved, String accountId) {
+    if (accountId != null && !involved.containsKey(accountId)) {
+      AccountCell cell = accounts.get(accountId);
+      if (cell != null) {
+        involved.put(accountId, cell);
+      }
+    }
+  }
+
+  public AccountContention getContention(String accountId) {
+    AccountCell cell = accounts.get(accountId);
+    return cell == null ? null : cell.contention();
+  }
+
+  /**
+   * Accounts that saw at least one failed compare-and-set, most contended first.
+   */
+  public List<AccountContention> getContendedAccounts() {
+    List<AccountContention> contended = new ArrayList<>();
+    accounts.values().forEach(cell -> {
+      if (cell.conflicts.sum() > 0) {
+        contended.add(cell.contention());
+      }
+    });
+    contended.sort((a, b) -> Long.compare(b.getConflicts(), a.getConflicts()));
+    return contended;
+  }
+
+  private static final class AccountCell {
+
+    private final AtomicReference<AccountBalance> state;
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+
+    private AccountCell(AccountBalance account) {
+      this.state = new AtomicReference<>(account);
+    }
+
+    /**
+     * The current snapshot, waiting while a batch holds the account claimed.
+     */
+    private AccountBalance current() {
+      AccountBalance account = state.get();
+      while (account instanceof Claim) {
+        Thread.yield();
+        account = state.get();
+      }
+      return account;
+    }
+
+    private boolean compareAndSet(AccountBalance expected, AccountBalance updated) {
+      attempts.increment();
+      if (state.compareAndSet(expected, updated)) {
+        return true;
+      }
+      conflicts.increment();
+      return false;
+    }
+
+    private AccountContention contention() {
+      return new AccountContention(state.get().getAccountId(), attempts.sum(), conflicts.sum());
+    }
+  }
+
+  /**
+   * Marks an account as held by a batch that is being committed. Shows the balance from
+   * before the batch, so readers never see part of it applied.
+   */
+  private static final class Claim extends AccountBalance {
+
+    private Claim(AccountBalance snapshot) {
+      super(snapshot.getAccountId(), snapshot.getBalance());
+    }
+  }
+}
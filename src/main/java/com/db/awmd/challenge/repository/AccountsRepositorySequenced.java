@@ -0,0 +1,471 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountBalance;
+import com.db.awmd.challenge.domain.AccountPage;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.exception.Response;
+import com.db.awmd.challenge.utility.Money;
+import com.db.awmd.challenge.validator.FundTransferValidator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Repository where one thread, the sequencer, owns all accounts and applies every operation in
+ * the order it was published, in the manner of the LMAX disruptor. Balances are plain fields
+ * no other thread touches, so nothing is locked, and the sequence is a total order of all
+ * changes that the journal, if enabled, is written in.
+ *
+ * <p>Callers claim a slot of a pre-allocated ring by sequence number, fill it in and publish
+ * it; the sequencer takes the slots in sequence order. A caller then waits on its thread's
+ * completion, which is reused, so publishing allocates nothing. When the ring is full callers
+ * wait for the sequencer to free a slot. Durability is awaited by the caller after the
+ * sequencer moved on, so concurrent transfers share a journal flush.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "accounts.repository.mode", havingValue = "sequenced")
+public class AccountsRepositorySequenced implements AccountsRepository {
+
+  private static final int CREATE = 1;
+  private static final int GET = 2;
+  private static final int CLEAR = 3;
+  private static final int TRANSFER = 4;
+  private static final int BATCH = 5;
+  private static final int LIST = 6;
+
+  /** Busy checks before a waiting thread yields, and yields before it parks. */
+  private static final int SPINS = 100;
+  private static final int YIELDS = 100;
+
+  private final Slot[] ring;
+  private final int mask;
+
+  /** Next sequence to claim. */
+  private final AtomicLong claimed = new AtomicLong();
+
+  /** Sequences below this one are processed and their slots free. */
+  private final AtomicLong processed = new AtomicLong();
+
+  private final ThreadLocal<Completion> completions = ThreadLocal.withInitial(Completion::new);
+
+  // Only touched by the sequencer thread.
+  private final Map<String, AccountBalance> accounts = new HashMap<>();
+
+  private volatile int size;
+
+  private TransferJournal journal;
+
+  private Thread sequencer;
+
+  private volatile boolean sequencerParked;
+
+  private volatile boolean running = true;
+
+  @Autowired
+  public AccountsRepositorySequenced(@Value("${accounts.sequenced.ring-size:65536}") int ringSize) {
+    final int capacity = Integer.highestOneBit(Math.max(2, ringSize - 1)) << 1;
+    this.ring = new Slot[capacity];
+    for (int i = 0; i < capacity; i++) {
+      // Slot i first carries sequence i; until then it reads as one lap behind.
+      ring[i] = new Slot(i - capacity);
+    }
+    this.mask = capacity - 1;
+  }
+
+  /**
+   * Optional write-ahead journal, appended to by the sequencer in sequence order.
+   */
+  @Autowired(required = false)
+  public void setJournal(TransferJournal journal) {
+    this.journal = journal;
+  }
+
+  /**
+   * Replays the journal, if any, and starts the sequencer.
+   */
+  @PostConstruct
+  public void start() throws IOException {
+    if (journal != null) {
+      final long started = System.nanoTime();
+      final long records = journal.replay(new TransferJournal.Visitor() {
+        @Override
+        public void created(String accountId, long balance) {
+          accounts.put(accountId, new AccountBalance(accountId, balance));
+        }
+
+        @Override
+        public void transferred(String accountFromId, String accountToId, long amount) {
+          AccountBalance accountFrom = accounts.get(accountFromId);
+          AccountBalance accountTo = accounts.get(accountToId);
+          accountFrom.setBalance(Money.subtract(accountFrom.getBalance(), amount));
+          accountTo.setBalance(Money.add(accountTo.getBalance(), amount));
+        }
+
+        @Override
+        public void cleared() {
+          accounts.clear();
+        }
+      });
+      size = accounts.size();
+      log.info("Replayed {} journal records into {} accounts in {} ms", records, accounts.size(),
+        (System.nanoTime() - started) / 1_000_000);
+    }
+    // Thread start publishes the replayed accounts to the sequencer.
+    sequencer = new Thread(this::run, "accounts-sequencer");
+    sequencer.setDaemon(true);
+    sequencer.start();
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    running = false;
+    LockSupport.unpark(sequencer);
+    sequencer.join(TimeUnit.SECONDS.toMillis(5));
+  }
+
+  @Override
+  public void createAccount(Account account) throws DuplicateAccountIdException {
+    final Slot slot = claim();
+    slot.type = CREATE;
+    slot.account = account;
+    publish(slot);
+  }
+
+  @Override
+  public Account getAccount(String accountId) {
+    final Slot slot = claim();
+    slot.type = GET;
+    slot.accountFromId = accountId;
+    return (Account) publish(slot);
+  }
+
+  /**
+   * Accounts in id order, the cursor being the last id of the page before. The sequencer
+   * collects the page in one pass over all accounts, holding up the operations behind it.
+   */
+  @Override
+  public AccountPage listAccounts(String cursor, int limit) {
+    final Slot slot = claim();
+    slot.type = LIST;
+    slot.accountFromId = cursor;
+    slot.amount = limit;
+    return (AccountPage) publish(slot);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public void clearAccounts() {
+    final Slot slot = claim();
+    slot.type = CLEAR;
+    publish(slot);
+  }
+
+  @Override
+  public Response transfer(String accountFromId, String accountToId, long amount, FundTransferValidator validator) {
+    final Slot slot = claim();
+    slot.type = TRANSFER;
+    slot.accountFromId = accountFromId;
+    slot.accountToId = accountToId;
+    slot.amount = amount;
+    slot.validator = validator;
+    return (Response) publish(slot);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<Response> transferAll(List<Transfer> transfers, FundTransferValidator validator) {
+    final Slot slot = claim();
+    slot.type = BATCH;
+    slot.transfers = transfers;
+    slot.validator = validator;
+    return (List<Response>) publish(slot);
+  }
+
+  /**
+   * Claims the next slot, waiting while the ring is full.
+   */
+  private Slot claim() {
+    final long sequence = claimed.getAndIncrement();
+    final Slot slot = ring[(int) sequence & mask];
+    int waits = 0;
+    while (sequence - ring.length >= processed.get()) {
+      idle(waits++);
+    }
+    slot.claimedSequence = sequence;
+    return slot;
+  }
+
+  /**
+   * Hands the filled slot to the sequencer and waits for its result.
+   */
+  private Object publish(Slot slot) {
+    final Completion completion = completions.get();
+    completion.reset();
+    slot.completion = completion;
+    slot.published = slot.claimedSequence;
+    if (sequencerParked) {
+      LockSupport.unpark(sequencer);
+    }
+    final Object result = completion.await();
+    if (completion.journalSequence != 0) {
+      journal.awaitDurable(completion.journalSequence);
+    }
+    return result;
+  }
+
+  private void run() {
+    long sequence = 0;
+    int waits = 0;
+    while (true) {
+      final Slot slot = ring[(int) sequence & mask];
+      if (slot.published != sequence) {
+        if (!running) {
+          return;
+        }
+        if (waits < SPINS + YIELDS) {
+          idle(waits++);
+        } else {
+          // Publishers check the flag after publishing, so either they see it or we see their slot.
+          sequencerParked = true;
+          if (slot.published != sequence && running) {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+          }
+          sequencerParked = false;
+        }
+        continue;
+      }
+      waits = 0;
+
+      final Completion completion = slot.completion;
+      try {
+        completion.result = apply(slot, completion);
+      } catch (RuntimeException e) {
+        completion.failure = e;
+      }
+      slot.clear();
+      processed.lazySet(sequence + 1);
+      completion.complete();
+      sequence++;
+    }
+  }
+
+  private Object apply(Slot slot, Completion completion) {
+    switch (slot.type) {
+      case CREATE:
+        return create(slot.account, completion);
+      case GET:
+        final AccountBalance account = accounts.get(slot.accountFromId);
+        return account == null ? null : account.toAccount();
+      case CLEAR:
+        if (journal != null) {
+          completion.journalSequence = journal.appendClear();
+        }
+        accounts.clear();
+        size = 0;
+        return null;
+      case TRANSFER:
+        return transfer(slot.accountFromId, slot.accountToId, slot.amount, slot.validator, completion);
+      case BATCH:
+        return transferAll(slot.transfers, slot.validator, completion);
+      case LIST:
+        final AccountPageCollector page = new AccountPageCollector(slot.accountFromId, (int) slot.amount);
+        accounts.forEach((accountId, listed) -> page.offer(accountId, listed.getBalance()));
+        return page.toPage();
+      default:
+        throw new IllegalStateException("Unknown operation " + slot.type);
+    }
+  }
+
+  private Object create(Account account, Completion completion) {
+    if (accounts.containsKey(account.getAccountId())) {
+      throw new DuplicateAccountIdException("Account id " + account.getAccountId() + " already exists!");
+    }
+    final AccountBalance created = new AccountBalance(account);
+    if (journal != null) {
+      completion.journalSequence = journal.appendCreate(created.getAccountId(), created.getBalance());
+    }
+    accounts.put(created.getAccountId(), created);
+    size = accounts.size();
+    return null;
+  }
+
+  private Response transfer(String accountFromId, String accountToId, long amount, FundTransferValidator validator,
+                            Completion completion) {
+    final AccountBalance accountFrom = accounts.get(accountFromId);
+    final AccountBalance accountTo = accounts.get(accountToId);
+    final Response response = validator.validate(accountFrom, accountTo, amount);
+    if (response.isAccepted()) {
+      final long balanceFrom = Money.subtract(accountFrom.getBalance(), amount);
+      final long balanceTo = Money.add(accountTo.getBalance(), amount);
+      if (journal != null) {
+        completion.journalSequence = journal.appendTransfer(accountFromId, accountToId, amount);
+      }
+      accountFrom.setBalance(balanceFrom);
+      accountTo.setBalance(balanceTo);
+    }
+    return response;
+  }
+
+  private List<Response> transferAll(List<Transfer> transfers, FundTransferValidator validator,
+                                     Completion completion) {
+    // Same as the locking repository: run the batch on working copies, store only if all passed.
+    final Map<String, AccountBalance> working = new HashMap<>();
+    final List<Response> responses = new ArrayList<>(transfers.size());
+    boolean rejected = false;
+    for (Transfer transfer : transfers) {
+      final AccountBalance accountFrom = workingCopy(working, transfer.getAccountFromId());
+      final AccountBalance accountTo = workingCopy(working, transfer.getAccountToId());
+      final long amount = Money.toMinorUnits(transfer.getAmount());
+
+      Response response = validator.validate(accountFrom, accountTo, amount);
+      if (response.isAccepted()) {
+        final long balanceFrom = Money.subtract(accountFrom.getBalance(), amount);
+        final long balanceTo = Money.add(accountTo.getBalance(), amount);
+        accountFrom.setBalance(balanceFrom);
+        accountTo.setBalance(balanceTo);
+      } else {
+        rejected = true;
+      }
+      responses.add(response);
+    }
+
+    if (!rejected) {
+      if (journal != null) {
+        completion.journalSequence = journalBatch(transfers);
+      }
+      working.forEach((accountId, account) -> accounts.get(accountId).setBalance(account.getBalance()));
+    }
+    return responses;
+  }
+
+  private long journalBatch(List<Transfer> transfers) {
+    final int count = transfers.size();
+    final String[] accountFromIds = new String[count];
+    final String[] accountToIds = new String[count];
+    final long[] amounts = new long[count];
+    for (int i = 0; i < count; i++) {
+      Transfer transfer = transfers.get(i);
+      accountFromIds[i] = transfer.getAccountFromId();
+      accountToIds[i] = transfer.getAccountToId();
+      amounts[i] = Money.toMinorUnits(transfer.getAmount());
+    }
+    return journal.appendBatch(accountFromIds, accountToIds, amounts);
+  }
+
+  private AccountBalance workingCopy(Map<String, AccountBalance> working, String accountId) {
+    if (accountId == null) {
+      return null;
+    }
+    AccountBalance copy = working.get(accountId);
+    if (copy == null) {
+      final AccountBalance account = accounts.get(accountId);
+      if (account != null) {
+        copy = new AccountBalance(account.getAccountId(), account.getBalance());
+        working.put(accountId, copy);
+      }
+    }
+    return copy;
+  }
+
+  private static void idle(int waits) {
+    if (waits < SPINS) {
+      return;
+    }
+    if (waits < SPINS + YIELDS) {
+      Thread.yield();
+    } else {
+      LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+    }
+  }
+
+  private static final class Slot {
+
+    /** Sequence the slot was last published with; the sequencer waits for the one it expects. */
+    private volatile long published;
+
+    // Written by the claiming thread before publishing, read by the sequencer after.
+    private long claimedSequence;
+    private int type;
+    private Account account;
+    private String accountFromId;
+    private String accountToId;
+    private long amount;
+    private List<Transfer> transfers;
+    private FundTransferValidator validator;
+    private Completion completion;
+
+    private Slot(long published) {
+      this.published = published;
+    }
+
+    /** Drops references, so a slot does not keep a request alive until it is reused. */
+    private void clear() {
+      account = null;
+      accountFromId = null;
+      accountToId = null;
+      transfers = null;
+      validator = null;
+      completion = null;
+    }
+  }
+
+  /**
+   * Result hand-over from the sequencer to one caller thread, reused for each of its calls.
+   */
+  private static final class Completion {
+
+    private final Thread waiter = Thread.currentThread();
+    private volatile boolean done;
+    // Written by the sequencer before done is set.
+    private Object result;
+    private RuntimeException failure;
+    private long journalSequence;
+
+    private void reset() {
+      done = false;
+      result = null;
+      failure = null;
+      journalSequence = 0;
+    }
+
+    private void complete() {
+      done = true;
+      LockSupport.unpark(waiter);
+    }
+
+    private Object await() {
+      int waits = 0;
+      while (!done) {
+        if (waits < SPINS + YIELDS) {
+          idle(waits++);
+        } else {
+          LockSupport.park(this);
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      return result;
+    }
+  }
+}
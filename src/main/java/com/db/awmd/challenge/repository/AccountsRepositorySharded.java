@@ -0,0 +1,344 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountBalance;
+import com.db.awmd.challenge.domain.AccountPage;
+import com.db.awmd.challenge.domain.ShardStats;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.exception.Response;
+import com.db.awmd.challenge.utility.Money;
+import com.db.awmd.challenge.validator.FundTransferValidator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Repository split into shards by account id. Every shard is owned by one thread that runs
+ * all operations on its accounts in arrival order, so a transfer within a shard needs no
+ * locks at all.
+ *
+ * <p>A transfer between two shards runs as a chain of steps on the owning threads: the
+ * destination shard reads the destination account, the source shard validates and takes
+ * the amount out, and the destination shard credits it. If the destination account is gone
+ * by then, the source shard gets the amount back and the transfer is rejected. Between the
+ * debit and the credit the amount is in flight.
+ *
+ * <p>A batch over several shards parks their threads, taken in shard order, runs against
+ * their accounts directly and then lets them continue.
+ *
+ * <p>By default the whole id is hashed. With a key delimiter, only the part before it is,
+ * so {@code customer-1:savings} and {@code customer-1:current} land in the same shard.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.repository.mode", havingValue = "sharded")
+public class AccountsRepositorySharded implements AccountsRepository {
+
+  private final Shard[] shards;
+  private final String keyDelimiter;
+
+  @Autowired
+  public AccountsRepositorySharded(@Value("${accounts.sharded.shards:0}") int shardCount,
+                                   @Value("${accounts.sharded.key-delimiter:}") String keyDelimiter) {
+    final int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+    this.shards = new Shard[count];
+    for (int i = 0; i < count; i++) {
+      shards[i] = new Shard(i);
+    }
+    this.keyDelimiter = keyDelimiter;
+  }
+
+  @Override
+  public void createAccount(Account account) throws DuplicateAccountIdException {
+    final Shard shard = shardOf(account.getAccountId());
+    await(shard.submit(() -> {
+      AccountBalance previousAccount = shard.accounts.putIfAbsent(account.getAccountId(), new AccountBalance(account));
+      if (previousAccount != null) {
+        throw new DuplicateAccountIdException(
+          "Account id " + account.getAccountId() + " already exists!");
+      }
+      return null;
+    }));
+  }
+
+  @Override
+  public Account getAccount(String accountId) {
+    final Shard shard = shardOf(accountId);
+    return await(shard.submit(() -> {
+      AccountBalance account = shard.accounts.get(accountId);
+      return account == null ? null : account.toAccount();
+    }));
+  }
+
+  /**
+   * Accounts in id order, the cursor being the last id of the page before. Every shard
+   * collects its candidates for the page on its own thread, between its other operations.
+   */
+  @Override
+  public AccountPage listAccounts(String cursor, int limit) {
+    final List<CompletableFuture<AccountPageCollector>> collected = new ArrayList<>(shards.length);
+    for (Shard shard : shards) {
+      collected.add(shard.submit(() -> {
+        final AccountPageCollector page = new AccountPageCollector(cursor, limit);
+        shard.accounts.forEach((accountId, account) -> page.offer(accountId, account.getBalance()));
+        return page;
+      }));
+    }
+    final AccountPageCollector page = new AccountPageCollector(cursor, limit);
+    for (CompletableFuture<AccountPageCollector> shardPage : collected) {
+      page.offerAll(await(shardPage));
+    }
+    return page.toPage();
+  }
+
+  @Override
+  public void clearAccounts() {
+    onParked(Arrays.asList(shards), () -> {
+      for (Shard shard : shards) {
+        shard.accounts.clear();
+      }
+      return null;
+    });
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Shard shard : shards) {
+      // Read without going through the shard thread; a gauge can live with a stale count.
+      size += shard.accounts.size();
+    }
+    return size;
+  }
+
+  @Override
+  public Response transfer(String accountFromId, String accountToId, long amount, FundTransferValidator validator) {
+    final Shard shardFrom = shardOf(accountFromId);
+    final Shard shardTo = shardOf(accountToId);
+
+    if (shardFrom == shardTo) {
+      return await(shardFrom.submit(() -> {
+        final AccountBalance accountFrom = shardFrom.accounts.get(accountFromId);
+        final AccountBalance accountTo = shardFrom.accounts.get(accountToId);
+        final Response response = validator.validate(accountFrom, accountTo, amount);
+        if (response.isAccepted()) {
+          final long balanceFrom = Money.subtract(accountFrom.getBalance(), amount);
+          final long balanceTo = Money.add(accountTo.getBalance(), amount);
+          accountFrom.setBalance(balanceFrom);
+          accountTo.setBalance(balanceTo);
+        }
+        return response;
+      }));
+    }
+
+    return await(shardTo.submit(() -> copyOf(shardTo.accounts.get(accountToId)))
+      .thenApplyAsync(accountTo -> {
+        // Phase one on the source shard: validate and take the amount out.
+        final AccountBalance accountFrom = shardFrom.accounts.get(accountFromId);
+        final Response response = validator.validate(accountFrom, accountTo, amount);
+        if (response.isAccepted()) {
+          accountFrom.setBalance(Money.subtract(accountFrom.getBalance(), amount));
+        }
+        return response;
+      }, shardFrom.executor)
+      .thenComposeAsync(response -> {
+        if (!response.isAccepted()) {
+          return CompletableFuture.completedFuture(response);
+        }
+        // Phase two on the destination shard: credit, or hand the amount back if the account is gone.
+        final AccountBalance accountTo = shardTo.accounts.get(accountToId);
+        if (accountTo != null) {
+          accountTo.setBalance(Money.add(accountTo.getBalance(), amount));
+          return CompletableFuture.completedFuture(response);
+        }
+        return shardFrom.submit(() -> {
+          final AccountBalance accountFrom = shardFrom.accounts.get(accountFromId);
+          if (accountFrom != null) {
+            accountFrom.setBalance(Money.add(accountFrom.getBalance(), amount));
+          }
+          return validator.validate(copyOf(accountFrom), null, amount);
+        });
+      }, shardTo.executor));
+  }
+
+  @Override
+  public List<Response> transferAll(List<Transfer> transfers, FundTransferValidator validator) {
+    final Map<Integer, Shard> involved = new TreeMap<>();
+    for (Transfer transfer : transfers) {
+      final Shard shardFrom = shardOf(transfer.getAccountFromId());
+      final Shard shardTo = shardOf(transfer.getAccountToId());
+      involved.put(shardFrom.id, shardFrom);
+      involved.put(shardTo.id, shardTo);
+    }
+
+    final Supplier<List<Response>> batch = () -> {
+      // Same as the locking repository: run the batch on working copies, store only if all passed.
+      final Map<String, AccountBalance> working = new HashMap<>();
+      final List<Response> responses = new ArrayList<>(transfers.size());
+      boolean rejected = false;
+      for (Transfer transfer : transfers) {
+        final AccountBalance accountFrom = workingCopy(working, transfer.getAccountFromId());
+        final AccountBalance accountTo = workingCopy(working, transfer.getAccountToId());
+        final long amount = Money.toMinorUnits(transfer.getAmount());
+
+        Response response = validator.validate(accountFrom, accountTo, amount);
+        if (response.isAccepted()) {
+          final long balanceFrom = Money.subtract(accountFrom.getBalance(), amount);
+          final long balanceTo = Money.add(accountTo.getBalance(), amount);
+          accountFrom.setBalance(balanceFrom);
+          accountTo.setBalance(balanceTo);
+        } else {
+          rejected = true;
+        }
+        responses.add(response);
+      }
+
+      if (!rejected) {
+        working.forEach((accountId, account) -> shardOf(accountId).accounts.get(accountId).setBalance(account.getBalance()));
+      }
+      return responses;
+    };
+
+    if (involved.size() == 1) {
+      return await(involved.values().iterator().next().submit(batch));
+    }
+    return onParked(new ArrayList<>(involved.values()), batch);
+  }
+
+  /**
+   * Queue depth and completed operations per shard.
+   */
+  public List<ShardStats> getShardStats() {
+    final List<ShardStats> stats = new ArrayList<>(shards.length);
+    for (Shard shard : shards) {
+      stats.add(new ShardStats(shard.id, shard.executor.getQueue().size(), shard.executor.getCompletedTaskCount()));
+    }
+    return stats;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    for (Shard shard : shards) {
+      shard.executor.shutdown();
+    }
+  }
+
+  private AccountBalance workingCopy(Map<String, AccountBalance> working, String accountId) {
+    if (accountId == null) {
+      return null;
+    }
+    AccountBalance copy = working.get(accountId);
+    if (copy == null) {
+      copy = copyOf(shardOf(accountId).accounts.get(accountId));
+      if (copy != null) {
+        working.put(accountId, copy);
+      }
+    }
+    return copy;
+  }
+
+  /**
+   * Parks the threads of the given shards, in shard order so two callers cannot deadlock, and
+   * runs the action on the calling thread while they wait.
+   */
+  private <T> T onParked(List<Shard> parked, Supplier<T> action) {
+    final CountDownLatch release = new CountDownLatch(1);
+    try {
+      for (Shard shard : parked) {
+        final CountDownLatch stopped = new CountDownLatch(1);
+        shard.executor.execute(() -> {
+          stopped.countDown();
+          awaitUninterruptibly(release);
+        });
+        awaitUninterruptibly(stopped);
+      }
+      return action.get();
+    } finally {
+      release.countDown();
+    }
+  }
+
+  private Shard shardOf(String accountId) {
+    if (accountId == null) {
+      return shards[0];
+    }
+    String key = accountId;
+    if (!keyDelimiter.isEmpty()) {
+      final int delimiter = accountId.indexOf(keyDelimiter);
+      if (delimiter > 0) {
+        key = accountId.substring(0, delimiter);
+      }
+    }
+    final int h = key.hashCode() * 0x9E3779B9;
+    return shards[((h ^ (h >>> 16)) & Integer.MAX_VALUE) % shards.length];
+  }
+
+  private static AccountBalance copyOf(AccountBalance account) {
+    return account == null ? null : new AccountBalance(account.getAccountId(), account.getBalance());
+  }
+
+  private static <T> T await(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        latch.await();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static final class Shard {
+
+    private final int id;
+
+    // Only touched by the shard's own thread, or by a caller while that thread is parked.
+    private final Map<String, AccountBalance> accounts = new HashMap<>();
+
+    private final ThreadPoolExecutor executor;
+
+    private Shard(int id) {
+      this.id = id;
+      this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "accounts-shard-" + id);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+      return CompletableFuture.supplyAsync(task, executor);
+    }
+  }
+}
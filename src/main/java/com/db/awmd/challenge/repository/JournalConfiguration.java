@@ -0,0 +1,23 @@
+package com.db.awmd.challenge.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@Configuration
+@ConditionalOnProperty(name = "accounts.journal.enabled", havingValue = "true")
+public class JournalConfiguration {
+
+  @Bean(destroyMethod = "close")
+  public TransferJournal transferJournal(@Value("${accounts.journal.path}") String path,
+                                         @Value("${accounts.journal.durability}") String durability,
+                                         @Value("${accounts.journal.group-commit-window-micros}") long commitWindowMicros)
+    throws IOException {
+    return new TransferJournal(Paths.get(path), TransferJournal.Durability.valueOf(durability.trim().toUpperCase()),
+      commitWindowMicros);
+  }
+}
@@ -0,0 +1,22 @@
+package com.db.awmd.challenge.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@Configuration
+@ConditionalOnProperty(name = "transfers.ledger.enabled", havingValue = "true", matchIfMissing = false)
+public class LedgerConfiguration {
+
+  @Bean(destroyMethod = "close")
+  public TransferLedger transferLedger(@Value("${transfers.ledger.spill-directory:}") String spillDirectory,
+                                       @Value("${transfers.ledger.memory-chunks:64}") int memoryChunks)
+    throws IOException {
+    return new TransferLedger(spillDirectory.trim().isEmpty() ? null : Paths.get(spillDirectory.trim()),
+      memoryChunks);
+  }
+}
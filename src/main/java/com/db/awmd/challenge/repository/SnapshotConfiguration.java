@@ -0,0 +1,23 @@
+package com.db.awmd.challenge.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@ConditionalOnProperty(prefix = "accounts", name = {"journal.enabled", "snapshot.enabled"}, havingValue = "true")
+public class SnapshotConfiguration {
+
+  @Bean
+  public SnapshotStore snapshotStore(@Value("${accounts.snapshot.directory}") String directory,
+                                     @Value("${accounts.snapshot.retained}") int retained,
+                                     @Value("${accounts.snapshot.interval-seconds}") long intervalSeconds)
+    throws IOException {
+    return new SnapshotStore(Paths.get(directory), retained, TimeUnit.SECONDS.toMillis(intervalSeconds));
+  }
+}
@@ -0,0 +1,220 @@
+package com.db.awmd.challenge.repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Point-in-time snapshots of all balances, each tied to the {@link TransferJournal} position
+ * it was taken at. Startup loads the newest intact snapshot and only replays the journal
+ * from there.
+ *
+ * <p>A snapshot file is {@code [magic][version][journal position][count]}, then one
+ * {@code [id length][id][balance]} record per account and a CRC32 of the records. Files are
+ * written under a temporary name and renamed when complete, and they are read through a
+ * memory mapping.
+ */
+@Slf4j
+public class SnapshotStore {
+
+  /**
+   * Receives the accounts of a snapshot; also used to write them.
+   */
+  public interface Sink {
+
+    void account(String accountId, long balance) throws IOException;
+
+    /**
+     * Called before the accounts of a snapshot being loaded, with their number.
+     */
+    default void expect(long count) {
+    }
+  }
+
+  /**
+   * Supplies the accounts of a snapshot being written.
+   */
+  public interface Source {
+
+    void writeTo(Sink sink) throws IOException;
+  }
+
+  private static final int MAGIC = 0x534E4150;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+  private static final int MAX_RECORD = 2 + 0xFFFF + 8;
+  private static final int MAP_WINDOW = 1 << 30;
+  private static final String PREFIX = "snapshot-";
+  private static final String SUFFIX = ".snap";
+
+  private final Path directory;
+  private final int retained;
+  private final long intervalMillis;
+
+  public SnapshotStore(Path directory, int retained, long intervalMillis) throws IOException {
+    this.directory = Files.createDirectories(directory);
+    this.retained = Math.max(1, retained);
+    this.intervalMillis = intervalMillis;
+  }
+
+  /**
+   * Time between two scheduled snapshots, 0 to only take them on shutdown.
+   */
+  public long getIntervalMillis() {
+    return intervalMillis;
+  }
+
+  /**
+   * Writes a snapshot and removes all but the newest retained ones.
+   *
+   * @param journalPosition journal position the accounts reflect.
+   * @return the number of accounts written.
+   */
+  public long write(long journalPosition, Source source) throws IOException {
+    final Path target = directory.resolve(String.format("%s%020d%s", PREFIX, journalPosition, SUFFIX));
+    final Path temporary = directory.resolve(target.getFileName() + ".tmp");
+    final CRC32 crc = new CRC32();
+    final long[] count = new long[1];
+
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+      StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+      channel.position(HEADER_SIZE);
+
+      source.writeTo((accountId, balance) -> {
+        byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > 0xFFFF) {
+          throw new IOException("Account id longer than " + 0xFFFF + " bytes cannot be snapshotted");
+        }
+        if (buffer.remaining() < 2 + id.length + 8) {
+          drain(channel, buffer, crc);
+        }
+        buffer.putShort((short) id.length).put(id).putLong(balance);
+        count[0]++;
+      });
+      drain(channel, buffer, crc);
+
+      buffer.putInt((int) crc.getValue()).flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+      buffer.putInt(MAGIC).putInt(VERSION).putLong(journalPosition).putLong(count[0]).flip();
+      channel.write(buffer, 0);
+      channel.force(true);
+    }
+    Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+
+    List<Path> snapshots = list();
+    for (int i = retained; i < snapshots.size(); i++) {
+      Files.deleteIfExists(snapshots.get(i));
+    }
+    return count[0];
+  }
+
+  /**
+   * Loads the newest intact snapshot that does not point past the end of the journal into the
+   * sink. Damaged or unusable snapshots are skipped in favour of older ones.
+   *
+   * @param journalSize current size of the journal.
+   * @return the journal position to replay from, or -1 if no snapshot was loaded.
+   */
+  public long load(long journalSize, Sink sink) throws IOException {
+    for (Path snapshot : list()) {
+      try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+        final long size = channel.size();
+        if (size < HEADER_SIZE + 4) {
+          log.warn("Skipping truncated snapshot {}", snapshot);
+          continue;
+        }
+        final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+          log.warn("Skipping snapshot {} of unknown format", snapshot);
+          continue;
+        }
+        final long journalPosition = header.getLong();
+        final long count = header.getLong();
+        if (journalPosition > journalSize) {
+          log.warn("Skipping snapshot {}, it is ahead of the journal", snapshot);
+          continue;
+        }
+        if (!verify(channel, size)) {
+          log.warn("Skipping snapshot {} with bad checksum", snapshot);
+          continue;
+        }
+        sink.expect(count);
+        read(channel, size, count, sink);
+        return journalPosition;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean verify(FileChannel channel, long size) throws IOException {
+    final CRC32 crc = new CRC32();
+    final long end = size - 4;
+    for (long offset = HEADER_SIZE; offset < end; offset += MAP_WINDOW) {
+      crc.update(channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(MAP_WINDOW, end - offset)));
+    }
+    return channel.map(FileChannel.MapMode.READ_ONLY, end, 4).getInt() == (int) crc.getValue();
+  }
+
+  private static void read(FileChannel channel, long size, long count, Sink sink) throws IOException {
+    final long end = size - 4;
+    long offset = HEADER_SIZE;
+    long remaining = count;
+    byte[] id = new byte[64];
+    while (remaining > 0) {
+      // Records never straddle a window: the next window starts at the first unread record.
+      final MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+        Math.min(MAP_WINDOW, end - offset));
+      final boolean last = offset + window.capacity() == end;
+      while (remaining > 0 && (last || window.remaining() >= MAX_RECORD)) {
+        final int length = window.getShort() & 0xFFFF;
+        if (id.length < length) {
+          id = new byte[Integer.highestOneBit(length) << 1];
+        }
+        window.get(id, 0, length);
+        sink.account(new String(id, 0, length, StandardCharsets.UTF_8), window.getLong());
+        remaining--;
+      }
+      offset += window.position();
+    }
+  }
+
+  private static void drain(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+    buffer.flip();
+    crc.update(buffer.duplicate());
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Snapshot files, newest first.
+   */
+  private List<Path> list() throws IOException {
+    final List<Path> snapshots = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+      for (Path snapshot : stream) {
+        snapshots.add(snapshot);
+      }
+    }
+    Collections.sort(snapshots, Collections.reverseOrder());
+    return snapshots;
+  }
+}
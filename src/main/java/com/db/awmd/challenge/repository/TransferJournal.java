@@ -0,0 +1,506 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.exception.JournalException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of account creations and applied transfers, written through a
+ * {@link FileChannel}. Every record is framed as {@code [length][crc32][type][payload]}, so a
+ * record torn by a crash is detected and cut off on replay.
+ *
+ * <p>Appends return a sequence number; {@link #awaitDurable(long)} blocks until that record
+ * is on disk. How that happens depends on the {@link Durability} mode:
+ * <ul>
+ *   <li>{@code FSYNC} writes and forces every record before the append returns.</li>
+ *   <li>{@code GROUP} buffers records; a flusher thread waits for the commit window, writes
+ *   everything buffered and forces once for all of it.</li>
+ *   <li>{@code ASYNC} flushes like {@code GROUP} but nobody waits for it.</li>
+ * </ul>
+ * Records become durable in append order, so after a crash the journal holds a prefix of
+ * what was appended.
+ */
+@Slf4j
+public class TransferJournal implements Closeable {
+
+  public enum Durability { FSYNC, GROUP, ASYNC }
+
+  /**
+   * Receives the journal content on replay, in append order.
+   */
+  public interface Visitor {
+
+    void created(String accountId, long balance);
+
+    void transferred(String accountFromId, String accountToId, long amount);
+
+    void cleared();
+  }
+
+  private static final int MAGIC = 0x4A524E4C;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 8;
+  private static final int FRAME_SIZE = 8;
+  private static final int INITIAL_BUFFER = 1 << 16;
+
+  private static final byte CREATE = 1;
+  private static final byte TRANSFER = 2;
+  private static final byte BATCH = 3;
+  private static final byte CLEAR = 4;
+
+  private final FileChannel channel;
+  private final Durability durability;
+  private final long commitWindowNanos;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition dataAvailable = lock.newCondition();
+  private final Condition flushed = lock.newCondition();
+  private final CRC32 crc = new CRC32();
+
+  // Guarded by lock.
+  private ByteBuffer pending = ByteBuffer.allocateDirect(INITIAL_BUFFER);
+  private ByteBuffer spare = ByteBuffer.allocateDirect(INITIAL_BUFFER);
+  private int frameStart;
+  private long endPosition;
+  private long appendedSequence;
+  private long durableSequence;
+  private IOException failure;
+  private volatile boolean closed;
+
+  private final Thread flusher;
+
+  public TransferJournal(Path path, Durability durability, long commitWindowMicros) throws IOException {
+    Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.durability = durability;
+    this.commitWindowNanos = TimeUnit.MICROSECONDS.toNanos(commitWindowMicros);
+
+    if (channel.size() == 0) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+      header.flip();
+      channel.write(header, 0);
+      channel.force(true);
+    }
+
+    this.endPosition = channel.size();
+    channel.position(endPosition);
+
+    if (durability == Durability.FSYNC) {
+      flusher = null;
+    } else {
+      flusher = new Thread(this::flushLoop, "transfer-journal-flusher");
+      flusher.setDaemon(true);
+      flusher.start();
+    }
+  }
+
+  /**
+   * Reads every intact record into the visitor, cuts off a torn tail and positions the
+   * journal for appending. Must be called before the first append.
+   *
+   * @return the number of records replayed.
+   */
+  public long replay(Visitor visitor) throws IOException {
+    return replay(HEADER_SIZE, visitor);
+  }
+
+  /**
+   * Like {@link #replay(Visitor)}, starting at a position previously returned by
+   * {@link #position()}.
+   */
+  public long replay(long fromPosition, Visitor visitor) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    channel.read(header, 0);
+    header.flip();
+    if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+      throw new IOException("Not a transfer journal of version " + VERSION);
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+    long position = Math.max(fromPosition, HEADER_SIZE);
+    long records = 0;
+    final long size = channel.size();
+
+    while (position + FRAME_SIZE <= size) {
+      buffer.clear().limit(FRAME_SIZE);
+      readFully(buffer, position);
+      buffer.flip();
+      final int length = buffer.getInt();
+      final int checksum = buffer.getInt();
+      if (length <= 0 || position + FRAME_SIZE + length > size) {
+        break;
+      }
+      if (buffer.capacity() < length) {
+        buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(length) << 1);
+      }
+      buffer.clear().limit(length);
+      readFully(buffer, position + FRAME_SIZE);
+      buffer.flip();
+      crc.reset();
+      crc.update(buffer.duplicate());
+      if ((int) crc.getValue() != checksum) {
+        break;
+      }
+      decode(buffer, visitor);
+      position += FRAME_SIZE + length;
+      records++;
+    }
+
+    if (position < size) {
+      log.warn("Cutting off {} bytes of torn journal tail at position {}", size - position, position);
+      channel.truncate(position);
+      channel.force(true);
+    }
+    lock.lock();
+    try {
+      endPosition = channel.size();
+      channel.position(endPosition);
+    } finally {
+      lock.unlock();
+    }
+    return records;
+  }
+
+  public long appendCreate(String accountId, long balance) {
+    byte[] id = checkLength(accountId.getBytes(StandardCharsets.UTF_8));
+    lock.lock();
+    try {
+      ByteBuffer buffer = begin(1 + 2 + id.length + 8);
+      buffer.put(CREATE);
+      putString(buffer, id);
+      buffer.putLong(balance);
+      return commit(buffer);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long appendTransfer(String accountFromId, String accountToId, long amount) {
+    byte[] from = checkLength(accountFromId.getBytes(StandardCharsets.UTF_8));
+    byte[] to = checkLength(accountToId.getBytes(StandardCharsets.UTF_8));
+    lock.lock();
+    try {
+      ByteBuffer buffer = begin(1 + 2 + from.length + 2 + to.length + 8);
+      buffer.put(TRANSFER);
+      putString(buffer, from);
+      putString(buffer, to);
+      buffer.putLong(amount);
+      return commit(buffer);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Appends a batch as one record, so it replays entirely or not at all.
+   */
+  public long appendBatch(String[] accountFromIds, String[] accountToIds, long[] amounts) {
+    final int count = amounts.length;
+    final byte[][] from = new byte[count][];
+    final byte[][] to = new byte[count][];
+    int size = 1 + 4;
+    for (int i = 0; i < count; i++) {
+      from[i] = checkLength(accountFromIds[i].getBytes(StandardCharsets.UTF_8));
+      to[i] = checkLength(accountToIds[i].getBytes(StandardCharsets.UTF_8));
+      size += 2 + from[i].length + 2 + to[i].length + 8;
+    }
+    lock.lock();
+    try {
+      ByteBuffer buffer = begin(size);
+      buffer.put(BATCH);
+      buffer.putInt(count);
+      for (int i = 0; i < count; i++) {
+        putString(buffer, from[i]);
+        putString(buffer, to[i]);
+        buffer.putLong(amounts[i]);
+      }
+      return commit(buffer);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long appendClear() {
+    lock.lock();
+    try {
+      ByteBuffer buffer = begin(1);
+      buffer.put(CLEAR);
+      return commit(buffer);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Blocks until the record with the given sequence number is on disk. Returns at once in
+   * {@code ASYNC} mode.
+   *
+   * @throws JournalException if the journal could not be written.
+   */
+  public void awaitDurable(long sequence) {
+    if (durability != Durability.ASYNC) {
+      flush(sequence);
+    }
+  }
+
+  /**
+   * Blocks until the record with the given sequence number is on disk, in every mode.
+   *
+   * @throws JournalException if the journal could not be written.
+   */
+  public void flush(long sequence) {
+    lock.lock();
+    try {
+      while (durableSequence < sequence && failure == null) {
+        flushed.awaitUninterruptibly();
+      }
+      if (durableSequence < sequence) {
+        throw new JournalException("Transfer journal write failed", failure);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Byte position just after the last appended record. Once {@link #awaitDurable(long)}
+   * returned for every appended record, it is a valid starting point for replay.
+   */
+  public long position() {
+    lock.lock();
+    try {
+      return endPosition;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Runs the action under the append lock with the sequence number of the last appended
+   * record and returns the position just after it. Every later append gets a higher sequence
+   * number and sees whatever the action published.
+   */
+  public long cut(LongConsumer action) {
+    lock.lock();
+    try {
+      action.accept(appendedSequence);
+      return endPosition;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public Durability getDurability() {
+    return durability;
+  }
+
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      closed = true;
+      dataAvailable.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    if (flusher != null && flusher.isAlive()) {
+      try {
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    channel.close();
+  }
+
+  /**
+   * Starts a frame. Everything that can make the append fail is checked before, so a frame
+   * once begun is always committed.
+   *
+   * @throws JournalException if the journal is closed or an earlier write failed; nothing
+   *                          may be applied that the journal will never hold.
+   */
+  private ByteBuffer begin(int payloadSize) {
+    if (closed) {
+      throw new JournalException("Transfer journal is closed", null);
+    }
+    if (failure != null) {
+      throw new JournalException("Transfer journal write failed", failure);
+    }
+    final int needed = FRAME_SIZE + payloadSize;
+    if (pending.remaining() < needed) {
+      ByteBuffer larger = ByteBuffer.allocateDirect(Integer.highestOneBit(pending.position() + needed) << 1);
+      pending.flip();
+      larger.put(pending);
+      pending = larger;
+    }
+    frameStart = pending.position();
+    pending.position(frameStart + FRAME_SIZE);
+    return pending;
+  }
+
+  private long commit(ByteBuffer buffer) {
+    final int end = buffer.position();
+    ByteBuffer payload = buffer.duplicate();
+    payload.position(frameStart + FRAME_SIZE);
+    payload.limit(end);
+    crc.reset();
+    crc.update(payload);
+    buffer.putInt(frameStart, end - frameStart - FRAME_SIZE);
+    buffer.putInt(frameStart + 4, (int) crc.getValue());
+    endPosition += end - frameStart;
+
+    final long sequence = ++appendedSequence;
+    if (durability == Durability.FSYNC) {
+      writePending();
+    } else {
+      dataAvailable.signal();
+    }
+    return sequence;
+  }
+
+  private void writePending() {
+    try {
+      pending.flip();
+      while (pending.hasRemaining()) {
+        channel.write(pending);
+      }
+      channel.force(false);
+      durableSequence = appendedSequence;
+    } catch (IOException e) {
+      failure = e;
+      throw new JournalException("Transfer journal write failed", e);
+    } finally {
+      pending.clear();
+    }
+  }
+
+  private void flushLoop() {
+    while (true) {
+      ByteBuffer toWrite;
+      long sequence;
+      lock.lock();
+      try {
+        while (pending.position() == 0 && !closed) {
+          dataAvailable.awaitUninterruptibly();
+        }
+        if (pending.position() == 0) {
+          return;
+        }
+      } finally {
+        lock.unlock();
+      }
+
+      // Give concurrent writers the commit window to join this flush.
+      if (commitWindowNanos > 0 && !closed) {
+        LockSupport.parkNanos(commitWindowNanos);
+      }
+
+      lock.lock();
+      try {
+        toWrite = pending;
+        pending = spare != null ? spare : ByteBuffer.allocateDirect(toWrite.capacity());
+        spare = null;
+        sequence = appendedSequence;
+      } finally {
+        lock.unlock();
+      }
+
+      IOException error = null;
+      try {
+        toWrite.flip();
+        while (toWrite.hasRemaining()) {
+          channel.write(toWrite);
+        }
+        channel.force(false);
+      } catch (IOException e) {
+        log.error("Transfer journal write failed", e);
+        error = e;
+      }
+
+      lock.lock();
+      try {
+        toWrite.clear();
+        spare = toWrite;
+        if (error == null) {
+          durableSequence = sequence;
+        } else {
+          failure = error;
+        }
+        flushed.signalAll();
+        if (error != null) {
+          return;
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        throw new IOException("Unexpected end of journal at " + position);
+      }
+      position += read;
+    }
+  }
+
+  private static byte[] checkLength(byte[] value) {
+    if (value.length > 0xFFFF) {
+      throw new JournalException("Account id longer than " + 0xFFFF + " bytes cannot be journaled", null);
+    }
+    return value;
+  }
+
+  private static void putString(ByteBuffer buffer, byte[] value) {
+    buffer.putShort((short) value.length);
+    buffer.put(value);
+  }
+
+  private static String getString(ByteBuffer buffer) {
+    byte[] value = new byte[buffer.getShort() & 0xFFFF];
+    buffer.get(value);
+    return new String(value, StandardCharsets.UTF_8);
+  }
+
+  private static void decode(ByteBuffer buffer, Visitor visitor) throws IOException {
+    final byte type = buffer.get();
+    switch (type) {
+      case CREATE:
+        visitor.created(getString(buffer), buffer.getLong());
+        break;
+      case TRANSFER:
+        visitor.transferred(getString(buffer), getString(buffer), buffer.getLong());
+        break;
+      case BATCH:
+        for (int i = buffer.getInt(); i > 0; i--) {
+          visitor.transferred(getString(buffer), getString(buffer), buffer.getLong());
+        }
+        break;
+      case CLEAR:
+        visitor.cleared();
+        break;
+      default:
+        throw new IOException("Unknown journal record type " + type);
+    }
+  }
+}
@@ -0,0 +1,521 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.AccountTransactions;
+import com.db.awmd.challenge.domain.LedgerEntry;
+import com.db.awmd.challenge.utility.Money;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Append-only record of every applied transfer, queried per account and time range.
+ *
+ * <p>The ledger is split into a fixed number of shards, twice the cores rounded up to a power
+ * of two. A writer claims a shard with a compare-and-set, starting at the one its thread id
+ * hashes to and moving on while it is taken, and releases it after the entry is written, so a
+ * shard has one writer at a time and threads coming and going never add shards. Writes are
+ * published through the shard's volatile size. A shard stores its entries in columns: time,
+ * source, destination and amount each in their own primitive arrays, in chunks of
+ * {@value #CHUNK_SIZE} entries, with the accounts interned to int handles. The first chunk
+ * starts small and doubles up to full size, so an idle shard stays small; later chunks are
+ * allocated at full size and never copied. An array a reader can reach is only ever changed
+ * behind the published size; any other change is made to a copy published through a volatile
+ * field.
+ *
+ * <p>Every shard keeps, per account, the positions of its entries there in ascending order, so
+ * an account's history in a time range is found by binary search however many entries it has,
+ * and reading it only touches the entries returned. Times within a shard never go backwards.
+ *
+ * <p>Without a spill directory every entry stays on the heap, about 32 bytes each. With one, a
+ * shard keeps at most {@code memoryChunks} chunks of entries on the heap and writes older ones
+ * to a file it reads back through a memory mapping; only the per-account positions stay on the
+ * heap. The file is scratch space and is not read again after a restart.
+ */
+@Slf4j
+public class TransferLedger implements Closeable {
+
+  private static final int CHUNK_SHIFT = 16;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+  private static final int FIRST_CHUNK_SIZE = 64;
+  // time, amount, source and destination of each entry of a chunk, one column after the other
+  private static final int CHUNK_BYTES = CHUNK_SIZE * (8 + 8 + 4 + 4);
+
+  private final Path spillDirectory;
+  private final int memoryChunks;
+  private final int shardCount;
+  private final AtomicInteger generations = new AtomicInteger();
+
+  // Replaced as a whole by clear(), so a query sees the entries of one generation only.
+  private volatile Generation generation;
+
+  /**
+   * @param spillDirectory where to write chunks beyond {@code memoryChunks} per shard, or null
+   *                       to keep all of them on the heap.
+   */
+  public TransferLedger(Path spillDirectory, int memoryChunks) throws IOException {
+    this.spillDirectory = spillDirectory == null ? null : Files.createDirectories(spillDirectory);
+    this.memoryChunks = Math.max(1, memoryChunks);
+    this.shardCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+    this.generation = new Generation(generations.getAndIncrement());
+  }
+
+  /**
+   * Records an applied transfer in the first free shard from the one the calling thread's id
+   * hashes to.
+   *
+   * @param amount amount in minor units.
+   */
+  public void append(String accountFromId, String accountToId, long amount) {
+    final Generation generation = this.generation;
+    final LedgerAccount accountFrom = generation.intern(accountFromId);
+    final LedgerAccount accountTo = generation.intern(accountToId);
+    final Shard[] shards = generation.shards;
+    final int mask = shards.length - 1;
+    for (int i = spread(Thread.currentThread().getId()), tried = 0; ; i++, tried++) {
+      final Shard shard = shards[i & mask];
+      if (shard.writing.compareAndSet(false, true)) {
+        try {
+          shard.append(accountFrom, accountTo, amount);
+        } finally {
+          shard.writing.set(false);
+        }
+        return;
+      }
+      if (tried > mask) {
+        // Every shard is taken, by writers that were descheduled mid-append.
+        Thread.yield();
+        tried = 0;
+      }
+    }
+  }
+
+  private static int spread(long threadId) {
+    final int h = (int) (threadId ^ (threadId >>> 32)) * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Entries of the account with a time from {@code fromMillis} up to, not including,
+   * {@code toMillis}, oldest first, at most {@code limit} of them.
+   */
+  public AccountTransactions transactions(String accountId, long fromMillis, long toMillis, int limit) {
+    final Generation generation = this.generation;
+    final List<long[]> found = new ArrayList<>();
+    for (Shard shard : generation.shards) {
+      shard.find(accountId, fromMillis, toMillis, limit + 1, found);
+    }
+    // Entries of one shard are in order already; equal times keep their shard order.
+    found.sort(Comparator.comparingLong(entry -> entry[0]));
+
+    final List<LedgerEntry> transactions = new ArrayList<>(Math.min(limit, found.size()));
+    for (int i = 0; i < found.size() && i < limit; i++) {
+      final long[] entry = found.get(i);
+      transactions.add(new LedgerEntry(Instant.ofEpochMilli(entry[0]).toString(),
+        generation.accounts.getByHandle((int) entry[2]).getAccountId(),
+        generation.accounts.getByHandle((int) entry[3]).getAccountId(), Money.toDecimal(entry[1])));
+    }
+    return new AccountTransactions(accountId, transactions, found.size() > limit);
+  }
+
+  /**
+   * Entries recorded so far.
+   */
+  public long size() {
+    long size = 0;
+    for (Shard shard : generation.shards) {
+      size += shard.size;
+    }
+    return size;
+  }
+
+  /**
+   * Drops every entry. Transfers recorded while the ledger is cleared may or may not be kept.
+   */
+  public void clear() {
+    final Generation cleared;
+    synchronized (this) {
+      cleared = generation;
+      generation = new Generation(generations.getAndIncrement());
+    }
+    try {
+      cleared.close();
+    } catch (IOException e) {
+      // The entries are dropped either way; only a spill file may be left behind.
+      log.error("Could not delete the spill files of the cleared ledger in {}", spillDirectory, e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    generation.close();
+  }
+
+  /**
+   * The accounts and shards of the ledger since it was last cleared.
+   */
+  private final class Generation {
+
+    private final int id;
+    private final AccountIndex<LedgerAccount> accounts = new AccountIndex<>();
+    private final Shard[] shards = new Shard[shardCount];
+
+    private Generation(int id) {
+      this.id = id;
+      for (int i = 0; i < shards.length; i++) {
+        shards[i] = new Shard(this, i);
+      }
+    }
+
+    private LedgerAccount intern(String accountId) {
+      LedgerAccount account = accounts.get(accountId);
+      if (account == null) {
+        account = accounts.add(accountId, handle -> new LedgerAccount(accountId, handle));
+        if (account == null) {
+          // Added by another thread meanwhile.
+          account = accounts.get(accountId);
+        }
+      }
+      return account;
+    }
+
+    private void close() throws IOException {
+      for (Shard shard : shards) {
+        shard.close();
+      }
+    }
+  }
+
+  /**
+   * One chunk of entries, either on the heap or spilled.
+   */
+  private interface Columns {
+
+    long time(int offset);
+
+    long amount(int offset);
+
+    int accountFrom(int offset);
+
+    int accountTo(int offset);
+  }
+
+  private static final class HeapColumns implements Columns {
+
+    private final long[] times;
+    private final long[] amounts;
+    private final int[] accountsFrom;
+    private final int[] accountsTo;
+
+    private HeapColumns(int capacity) {
+      this.times = new long[capacity];
+      this.amounts = new long[capacity];
+      this.accountsFrom = new int[capacity];
+      this.accountsTo = new int[capacity];
+    }
+
+    private HeapColumns(HeapColumns columns, int capacity) {
+      this.times = Arrays.copyOf(columns.times, capacity);
+      this.amounts = Arrays.copyOf(columns.amounts, capacity);
+      this.accountsFrom = Arrays.copyOf(columns.accountsFrom, capacity);
+      this.accountsTo = Arrays.copyOf(columns.accountsTo, capacity);
+    }
+
+    @Override
+    public long time(int offset) {
+      return times[offset];
+    }
+
+    @Override
+    public long amount(int offset) {
+      return amounts[offset];
+    }
+
+    @Override
+    public int accountFrom(int offset) {
+      return accountsFrom[offset];
+    }
+
+    @Override
+    public int accountTo(int offset) {
+      return accountsTo[offset];
+    }
+  }
+
+  private static final class MappedColumns implements Columns {
+
+    private final MappedByteBuffer buffer;
+
+    private MappedColumns(MappedByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public long time(int offset) {
+      return buffer.getLong(offset << 3);
+    }
+
+    @Override
+    public long amount(int offset) {
+      return buffer.getLong((CHUNK_SIZE << 3) + (offset << 3));
+    }
+
+    @Override
+    public int accountFrom(int offset) {
+      return buffer.getInt((CHUNK_SIZE << 4) + (offset << 2));
+    }
+
+    @Override
+    public int accountTo(int offset) {
+      return buffer.getInt((CHUNK_SIZE << 4) + (CHUNK_SIZE << 2) + (offset << 2));
+    }
+  }
+
+  private final class Shard {
+
+    private final Generation generation;
+    private final int id;
+    // Held by the writer appending to the shard; claiming and releasing it orders the writers.
+    private final AtomicBoolean writing = new AtomicBoolean();
+    // Only added to by the writer; queries look up without locking.
+    private final AccountIndex<Positions> positions = new AccountIndex<>();
+
+    // Only written by the writer. A new chunk, a grown first chunk, or a spilled chunk replaced
+    // by its mapping with the same entries, goes into a copy of the array.
+    private volatile Columns[] chunks = new Columns[16];
+    private long lastTime;
+    // Guarded by the shard's monitor, taken once per spilled chunk, so clear() can close it.
+    private FileChannel spillFile;
+    private ByteBuffer spillBuffer;
+    private boolean closed;
+    private int spilledChunks;
+
+    private volatile int size;
+
+    private Shard(Generation generation, int id) {
+      this.generation = generation;
+      this.id = id;
+    }
+
+    private void append(LedgerAccount accountFrom, LedgerAccount accountTo, long amount) {
+      final int position = size;
+      if (position == Integer.MAX_VALUE) {
+        throw new IllegalStateException("Ledger shard is full");
+      }
+      final int chunk = position >>> CHUNK_SHIFT;
+      final int offset = position & CHUNK_MASK;
+      if (offset == 0) {
+        addChunk(chunk);
+      } else if (chunk == 0 && offset == ((HeapColumns) chunks[0]).times.length) {
+        growFirstChunk(offset << 1);
+      }
+      // Times within a shard never go backwards, even if the clock does.
+      lastTime = Math.max(lastTime, System.currentTimeMillis());
+      final HeapColumns columns = (HeapColumns) chunks[chunk];
+      columns.times[offset] = lastTime;
+      columns.amounts[offset] = amount;
+      columns.accountsFrom[offset] = accountFrom.handle;
+      columns.accountsTo[offset] = accountTo.handle;
+      positions(accountFrom).add(position);
+      if (accountTo != accountFrom) {
+        positions(accountTo).add(position);
+      }
+      size = position + 1;
+    }
+
+    private Positions positions(LedgerAccount account) {
+      final Positions found = positions.get(account.accountId);
+      // Only the writer holding the shard adds, so the add cannot find the id taken.
+      return found != null ? found : positions.add(account.accountId, handle -> new Positions(account.accountId, handle));
+    }
+
+    private void addChunk(int chunk) {
+      final Columns[] chunks = Arrays.copyOf(this.chunks, chunk == this.chunks.length ? chunk << 1 : this.chunks.length);
+      chunks[chunk] = new HeapColumns(chunk == 0 ? FIRST_CHUNK_SIZE : CHUNK_SIZE);
+      this.chunks = chunks;
+      if (spillDirectory != null && chunk - spilledChunks >= memoryChunks) {
+        try {
+          spill();
+        } catch (IOException e) {
+          // The chunk stays on the heap, the next new chunk tries again.
+          log.error("Could not spill ledger chunk to {}", spillDirectory, e);
+        }
+      }
+    }
+
+    private void growFirstChunk(int capacity) {
+      final Columns[] chunks = this.chunks.clone();
+      chunks[0] = new HeapColumns((HeapColumns) chunks[0], capacity);
+      this.chunks = chunks;
+    }
+
+    private synchronized void spill() throws IOException {
+      if (closed) {
+        // Cleared; the writer moves to a new shard on its next append.
+        return;
+      }
+      if (spillFile == null) {
+        spillFile = FileChannel.open(spillFile(), StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        spillBuffer = ByteBuffer.allocateDirect(CHUNK_BYTES);
+      }
+      final HeapColumns columns = (HeapColumns) chunks[spilledChunks];
+      final ByteBuffer buffer = spillBuffer;
+      buffer.clear();
+      buffer.asLongBuffer().put(columns.times).put(columns.amounts);
+      buffer.position(CHUNK_SIZE << 4);
+      buffer.asIntBuffer().put(columns.accountsFrom).put(columns.accountsTo);
+      buffer.clear();
+      final long offset = (long) spilledChunks * CHUNK_BYTES;
+      while (buffer.hasRemaining()) {
+        spillFile.write(buffer, offset + buffer.position());
+      }
+      final Columns[] chunks = this.chunks.clone();
+      chunks[spilledChunks] = new MappedColumns(spillFile.map(FileChannel.MapMode.READ_ONLY, offset, CHUNK_BYTES));
+      this.chunks = chunks;
+      spilledChunks++;
+    }
+
+    /**
+     * Adds up to {@code limit} entries of the account in the time range, as
+     * {@code [time, amount, source, destination]}.
+     */
+    private void find(String accountId, long fromMillis, long toMillis, int limit, List<long[]> found) {
+      final Positions positions = this.positions.get(accountId);
+      if (positions == null) {
+        return;
+      }
+      final int count = positions.size;
+      final Columns[] chunks = this.chunks;
+      // First entry at or after fromMillis.
+      int low = 0;
+      int high = count;
+      while (low < high) {
+        final int middle = (low + high) >>> 1;
+        if (time(chunks, positions.get(middle)) < fromMillis) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      for (int i = low, added = 0; i < count && added < limit; i++, added++) {
+        final int position = positions.get(i);
+        final Columns columns = chunks[position >>> CHUNK_SHIFT];
+        final int offset = position & CHUNK_MASK;
+        final long time = columns.time(offset);
+        if (time >= toMillis) {
+          break;
+        }
+        found.add(new long[]{time, columns.amount(offset), columns.accountFrom(offset), columns.accountTo(offset)});
+      }
+    }
+
+    private long time(Columns[] chunks, int position) {
+      return chunks[position >>> CHUNK_SHIFT].time(position & CHUNK_MASK);
+    }
+
+    private synchronized void close() throws IOException {
+      closed = true;
+      if (spillFile != null) {
+        // Mappings stay readable for queries still running on the cleared entries.
+        spillFile.close();
+        Files.deleteIfExists(spillFile());
+      }
+    }
+
+    private Path spillFile() {
+      return spillDirectory.resolve("ledger-" + generation.id + "-" + id + ".spill");
+    }
+  }
+
+  /**
+   * An account interned to the handle its entries refer to it by.
+   */
+  private static final class LedgerAccount implements AccountIndex.Entry {
+
+    private final String accountId;
+    private final int handle;
+
+    private LedgerAccount(String accountId, int handle) {
+      this.accountId = accountId;
+      this.handle = handle;
+    }
+
+    @Override
+    public String getAccountId() {
+      return accountId;
+    }
+
+    @Override
+    public int getHandle() {
+      return handle;
+    }
+  }
+
+  /**
+   * Ascending entry positions of one account in one shard, written by the shard's writer only.
+   * The first chunk starts small and doubles up to full size, so the many accounts with few
+   * entries stay small; later chunks are allocated at full size and never copied.
+   */
+  private static final class Positions implements AccountIndex.Entry {
+
+    private static final int SHIFT = 10;
+    private static final int SIZE = 1 << SHIFT;
+
+    private final String accountId;
+    private final int handle;
+
+    // A new or grown chunk goes into a copy of the array.
+    private volatile int[][] chunks = new int[1][];
+
+    private volatile int size;
+
+    private Positions(String accountId, int handle) {
+      this.accountId = accountId;
+      this.handle = handle;
+    }
+
+    @Override
+    public String getAccountId() {
+      return accountId;
+    }
+
+    /** Handle within the shard's own index, unrelated to the ledger's account handles. */
+    @Override
+    public int getHandle() {
+      return handle;
+    }
+
+    private void add(int position) {
+      final int count = size;
+      final int chunk = count >>> SHIFT;
+      final int offset = count & (SIZE - 1);
+      int[][] chunks = this.chunks;
+      if (chunk == chunks.length || chunks[chunk] == null || offset == chunks[chunk].length) {
+        chunks = Arrays.copyOf(chunks, chunk == chunks.length ? chunk << 1 : chunks.length);
+        chunks[chunk] = chunks[chunk] == null ? new int[chunk == 0 ? 4 : SIZE] : Arrays.copyOf(chunks[chunk], offset << 1);
+        this.chunks = chunks;
+      }
+      chunks[chunk][offset] = position;
+      size = count + 1;
+    }
+
+    private int get(int index) {
+      return chunks[index >>> SHIFT][index & (SIZE - 1)];
+    }
+  }
+}
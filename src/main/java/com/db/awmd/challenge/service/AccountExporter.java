@@ -0,0 +1,55 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.utility.Money;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes all accounts as NDJSON, one {@code {"accountId": ..., "balance": ...}} object per
+ * line, the format {@link AccountImporter} reads.
+ *
+ * <p>The accounts come from {@link AccountsRepository#exportAccounts} and are written to the
+ * stream as they are read, through the generator's fixed buffer, so memory use does not grow
+ * with the number of accounts. A slow reader of the stream slows down the export, not the
+ * transfers running meanwhile.
+ */
+@Service
+public class AccountExporter {
+
+  private final AccountsRepository accountsRepository;
+  private final JsonFactory jsonFactory;
+
+  @Autowired
+  public AccountExporter(AccountsRepository accountsRepository, ObjectMapper objectMapper) {
+    this.accountsRepository = accountsRepository;
+    this.jsonFactory = objectMapper.getFactory();
+  }
+
+  /**
+   * @return the number of accounts written.
+   */
+  public long exportAccounts(OutputStream out) throws IOException {
+    try (JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+      // Lines are separated by the newline after each object.
+      generator.setRootValueSeparator(null);
+      // Left open, so a caller can still answer with an error if nothing was written.
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      return accountsRepository.exportAccounts((accountId, balance) -> {
+        generator.writeStartObject();
+        generator.writeStringField("accountId", accountId);
+        generator.writeFieldName("balance");
+        generator.writeNumber(Money.toDecimal(balance));
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+      });
+    }
+  }
+}
@@ -0,0 +1,208 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.ImportError;
+import com.db.awmd.challenge.domain.ImportSummary;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.utility.Money;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk account creation from a streamed request body, either NDJSON with one
+ * {@code {"accountId": ..., "balance": ...}} object per line or CSV with
+ * {@code accountId,balance} lines and an optional header.
+ *
+ * <p>The body is read as it arrives and never held whole: lines are parsed one at a time,
+ * checked like a single created {@link Account} would be, and handed to
+ * {@link AccountsRepository#createAccounts(List)} in batches of {@code batch-size}, which
+ * reports the taken ids of a batch at once. Memory use is bounded by the batch and the first
+ * {@code max-errors} rejections, however long the body is.
+ *
+ * <p>A CSV line or NDJSON object that cannot be used is rejected on its own and the import
+ * goes on. JSON that is not well formed stops the import at that line, as the rest of the
+ * stream cannot be read reliably; accounts of earlier lines stay created.
+ */
+@Service
+public class AccountImporter {
+
+  public enum Format { NDJSON, CSV }
+
+  private final AccountsRepository accountsRepository;
+  private final JsonFactory jsonFactory;
+  private final int batchSize;
+  private final int maxErrors;
+
+  @Autowired
+  public AccountImporter(AccountsRepository accountsRepository, ObjectMapper objectMapper,
+                         @Value("${accounts.import.batch-size:8192}") int batchSize,
+                         @Value("${accounts.import.max-errors:1000}") int maxErrors) {
+    this.accountsRepository = accountsRepository;
+    this.jsonFactory = objectMapper.getFactory();
+    this.batchSize = Math.max(1, batchSize);
+    this.maxErrors = maxErrors;
+  }
+
+  public ImportSummary importAccounts(InputStream body, Format format) throws IOException {
+    final Batch batch = new Batch();
+    if (format == Format.NDJSON) {
+      readNdjson(body, batch);
+    } else {
+      readCsv(body, batch);
+    }
+    batch.flush();
+    return batch.summary();
+  }
+
+  private void readNdjson(InputStream body, Batch batch) throws IOException {
+    try (JsonParser parser = jsonFactory.createParser(body)) {
+      for (JsonToken token; (token = parser.nextToken()) != null; ) {
+        final long line = parser.getTokenLocation().getLineNr();
+        if (token != JsonToken.START_OBJECT) {
+          parser.skipChildren();
+          batch.reject(line, null, "line", "Expected one JSON object per line");
+          continue;
+        }
+        String accountId = null;
+        Object balance = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          final String field = parser.getCurrentName();
+          final JsonToken value = parser.nextToken();
+          if ("accountId".equals(field) && value == JsonToken.VALUE_STRING) {
+            accountId = parser.getText();
+          } else if ("balance".equals(field) && value.isNumeric()) {
+            balance = parser.getDecimalValue();
+          } else if ("balance".equals(field) && value == JsonToken.VALUE_STRING) {
+            balance = parser.getText();
+          } else {
+            parser.skipChildren();
+          }
+        }
+        batch.add(line, accountId, balance);
+      }
+    } catch (JsonProcessingException e) {
+      final long line = e.getLocation() == null ? batch.lines + 1 : e.getLocation().getLineNr();
+      batch.reject(line, null, "line", "Malformed JSON, import stopped: " + e.getOriginalMessage());
+    }
+  }
+
+  private void readCsv(InputStream body, Batch batch) throws IOException {
+    final BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), 64 * 1024);
+    long line = 0;
+    for (String text; (text = reader.readLine()) != null; ) {
+      line++;
+      if (text.trim().isEmpty()) {
+        continue;
+      }
+      final int comma = text.lastIndexOf(',');
+      if (comma < 0) {
+        batch.reject(line, null, "line", "Expected accountId,balance");
+        continue;
+      }
+      final String accountId = unquote(text.substring(0, comma).trim());
+      final String balance = unquote(text.substring(comma + 1).trim());
+      if (line == 1 && "accountId".equalsIgnoreCase(accountId)) {
+        continue;
+      }
+      batch.add(line, accountId, balance.isEmpty() ? null : balance);
+    }
+  }
+
+  private static String unquote(String field) {
+    if (field.length() >= 2 && field.charAt(0) == '"' && field.charAt(field.length() - 1) == '"') {
+      return field.substring(1, field.length() - 1).replace("\"\"", "\"");
+    }
+    return field;
+  }
+
+  /**
+   * Lines waiting to be created, the counts so far and the first rejections.
+   */
+  private final class Batch {
+
+    private final List<Account> accounts = new ArrayList<>(batchSize);
+    private final long[] lineNumbers = new long[batchSize];
+    private final List<ImportError> errors = new ArrayList<>();
+    private long lines;
+    private long created;
+    private long rejected;
+
+    /**
+     * @param balance a {@link BigDecimal}, its text, or null if missing.
+     */
+    void add(long line, String accountId, Object balance) {
+      lines++;
+      if (accountId == null || accountId.isEmpty()) {
+        reject(line, accountId, "accountId", "Account Id should not be empty or null");
+        return;
+      }
+      final BigDecimal amount;
+      try {
+        amount = balance instanceof String ? new BigDecimal((String) balance) : (BigDecimal) balance;
+      } catch (NumberFormatException e) {
+        reject(line, accountId, "balance", "Not a number: " + balance);
+        return;
+      }
+      // The same rules as the constraints on Account.
+      if (amount == null) {
+        reject(line, accountId, "balance", "may not be null");
+      } else if (amount.signum() < 0) {
+        reject(line, accountId, "balance", "Initial balance must be positive.");
+      } else if (amount.precision() - amount.scale() > Money.MAX_INTEGER_DIGITS || amount.scale() > Money.SCALE) {
+        reject(line, accountId, "balance", "numeric value out of bounds (<" + Money.MAX_INTEGER_DIGITS
+          + " digits>.<" + Money.SCALE + " digits> expected)");
+      } else {
+        lineNumbers[accounts.size()] = line;
+        accounts.add(new Account(accountId, amount));
+        if (accounts.size() == batchSize) {
+          flush();
+        }
+      }
+    }
+
+    void reject(long line, String accountId, String code, String description) {
+      if (code.equals("line")) {
+        lines++;
+      }
+      rejected++;
+      if (errors.size() < maxErrors) {
+        errors.add(new ImportError(line, accountId, code, description));
+      }
+    }
+
+    void flush() {
+      if (accounts.isEmpty()) {
+        return;
+      }
+      final boolean[] createdAccounts = accountsRepository.createAccounts(accounts);
+      for (int i = 0; i < createdAccounts.length; i++) {
+        if (createdAccounts[i]) {
+          created++;
+        } else {
+          final String accountId = accounts.get(i).getAccountId();
+          reject(lineNumbers[i], accountId, "accountId", "Account id " + accountId + " already exists!");
+        }
+      }
+      accounts.clear();
+    }
+
+    ImportSummary summary() {
+      return new ImportSummary(lines, created, rejected, errors, rejected > errors.size());
+    }
+  }
+}
@@ -1,9 +1,16 @@
 package com.db.awmd.challenge.service;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountPage;
+import com.db.awmd.challenge.domain.AccountSnapshot;
+import com.db.awmd.challenge.domain.AccountTransactions;
+import com.db.awmd.challenge.domain.BatchTransferResult;
 import com.db.awmd.challenge.domain.Transfer;
 import com.db.awmd.challenge.exception.Response;
+import com.db.awmd.challenge.exception.TransferIdReusedException;
 import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TransferLedger;
+import com.db.awmd.challenge.utility.Money;
 import com.db.awmd.challenge.utility.ResponseBuilder;
 import com.db.awmd.challenge.validator.FundTransferValidator;
 import lombok.Getter;
@@ -12,8 +19,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.util.Arrays;
+import javax.validation.ConstraintViolation;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 public class AccountsService {
@@ -22,15 +30,27 @@ public class AccountsService {
   private final AccountsRepository accountsRepository;
 
   @Autowired
-  private NotificationService notificationService;
+  private NotificationDispatcher notificationDispatcher;
 
   @Autowired
   private FundTransferValidator validator;
 
   @Autowired
-  public AccountsService(AccountsRepository accountsRepository, NotificationService notificationService) {
+  private javax.validation.Validator fieldValidator;
+
+  @Autowired
+  private IdempotencyCache idempotencyCache;
+
+  @Autowired
+  private TransferMetrics metrics;
+
+  @Autowired(required = false)
+  private TransferLedger ledger;
+
+  @Autowired
+  public AccountsService(AccountsRepository accountsRepository, NotificationDispatcher notificationDispatcher) {
     this.accountsRepository = accountsRepository;
-    this.notificationService = notificationService;
+    this.notificationDispatcher = notificationDispatcher;
   }
 
   public ResponseEntity createAccount(Account account) {
@@ -39,44 +59,160 @@ public class AccountsService {
   }
 
   public Account getAccount(String accountId) {
-    return this.accountsRepository.getAccount(accountId);
+    final long started = System.nanoTime();
+    try {
+      return this.accountsRepository.getAccount(accountId);
+    } finally {
+      metrics.record(TransferMetrics.Operation.GET_ACCOUNT, started);
+    }
   }
 
-  public ResponseEntity transfer(Transfer transfer) {
-    final BigDecimal amountToBeDeposit = transfer.getAmount();
-
-    final Account accountFrom = accountsRepository.getAccount(transfer.getAccountFromId());
-    if(accountFrom != null) {
-      accountFrom.setAmountToBeDeposit(amountToBeDeposit.negate());
+  /**
+   * @see AccountsRepository#getAccountSnapshot(String)
+   */
+  public AccountSnapshot getAccountSnapshot(String accountId) {
+    final long started = System.nanoTime();
+    try {
+      return this.accountsRepository.getAccountSnapshot(accountId);
+    } finally {
+      metrics.record(TransferMetrics.Operation.GET_ACCOUNT, started);
     }
+  }
 
-    final Account accountTo = accountsRepository.getAccount(transfer.getAccountToId());
-    if(accountTo != null) {
-      accountTo.setAmountToBeDeposit(amountToBeDeposit);
+  /**
+   * @see AccountsRepository#listAccounts(String, int)
+   */
+  public AccountPage listAccounts(String cursor, int limit) {
+    return this.accountsRepository.listAccounts(cursor, limit);
+  }
+
+  /**
+   * Drops every account, and the recorded transfers when the ledger is enabled.
+   */
+  public void clearAccounts() {
+    this.accountsRepository.clearAccounts();
+    if (ledger != null) {
+      ledger.clear();
     }
+  }
 
-    Response response = validate(accountFrom, accountTo);
-    if(response != null && response.getErrors().size() > 0) {
-      return ResponseBuilder.getErrorResponse(response);
+  /**
+   * The account's applied transfers from {@code fromMillis} up to {@code toMillis}, or null if
+   * there is no such account.
+   *
+   * @throws UnsupportedOperationException if the ledger is disabled.
+   */
+  public AccountTransactions getTransactions(String accountId, long fromMillis, long toMillis, int limit) {
+    if (ledger == null) {
+      throw new UnsupportedOperationException("The transfer ledger is disabled");
     }
+    if (this.accountsRepository.getAccount(accountId) == null) {
+      return null;
+    }
+    return ledger.transactions(accountId, fromMillis, toMillis, limit);
+  }
 
-    if(accountsRepository.transfer(Arrays.asList(accountFrom, accountTo))) {
-      sendTransferNotification(accountFrom, accountTo);
+  /**
+   * Applies a transfer. A transfer with a transfer id is applied at most once within the
+   * idempotency window; a retry gets the response of the first attempt.
+   */
+  public ResponseEntity transfer(Transfer transfer) {
+    final Response response;
+    try {
+      response = transfer(transfer.getAccountFromId(), transfer.getAccountToId(),
+              Money.toMinorUnits(transfer.getAmount()), transfer.getTransferId());
+    } catch (TransferIdReusedException e) {
+      Response rejected = new Response();
+      ResponseBuilder.addError(rejected, "transferId", e.getMessage());
+      return ResponseBuilder.getErrorResponse(rejected);
     }
 
+    if(!response.isAccepted()) {
+      return ResponseBuilder.getErrorResponse(response);
+    }
     return ResponseBuilder.getSuccessResponse("Amount transferred successfully.", HttpStatus.OK);
   }
 
-  private Response validate(Account accountFrom, Account accountTo) {
-    return validator.validate(Arrays.asList(accountFrom, accountTo));
+  /**
+   * {@link #transfer(Transfer)} for a transfer that is already validated field by field, with
+   * the amount in minor units, returning the repository's response as it is.
+   *
+   * @param transferId null for none.
+   * @throws TransferIdReusedException if the transfer id was used for a different transfer.
+   */
+  public Response transfer(String accountFromId, String accountToId, long amount, String transferId) {
+    final long started = System.nanoTime();
+    final Response response;
+    if (transferId == null) {
+      response = applyTransfer(accountFromId, accountToId, amount);
+    } else {
+      response = idempotencyCache.execute(transferId, accountFromId, accountToId, amount,
+              () -> applyTransfer(accountFromId, accountToId, amount));
+    }
+    metrics.record(TransferMetrics.Operation.TRANSFER, started);
+    return response;
   }
 
-  private void sendTransferNotification(Account accountFrom, Account accountTo) {
-    notificationService.notifyAboutTransfer(accountFrom, "Transfer completed successfully of amount[" +
-                    accountTo.getAmountToBeDeposit() + "] to account[" +  accountTo.getAccountId() + "].");
+  private Response applyTransfer(String accountFromId, String accountToId, long amount) {
+    final long started = System.nanoTime();
+    Response response = accountsRepository.transfer(accountFromId, accountToId, amount, validator);
+    metrics.record(TransferMetrics.Operation.APPLY, started);
+    if (response.isAccepted()) {
+      if (ledger != null) {
+        ledger.append(accountFromId, accountToId, amount);
+      }
+      final long notifyStarted = System.nanoTime();
+      notificationDispatcher.transferCompleted(accountFromId, accountToId, amount);
+      metrics.record(TransferMetrics.Operation.NOTIFY, notifyStarted);
+    } else {
+      metrics.rejected(response.getResult());
+    }
+    return response;
+  }
 
-    notificationService.notifyAboutTransfer(accountTo, "Account [" + accountFrom.getAccountId() +
-            "has transferred amount[" + accountTo.getAmountToBeDeposit() + "] into your account.");
+  /**
+   * Applies all transfers or none. Field errors are reported per transfer before any account
+   * is touched; otherwise the repository validates and applies the batch atomically.
+   */
+  public ResponseEntity<BatchTransferResult> transferAll(List<Transfer> transfers) {
+    final List<Response> fieldErrors = new ArrayList<>(transfers.size());
+    boolean invalid = false;
+    for (Transfer transfer : transfers) {
+      Response response = new Response();
+      if (transfer == null) {
+        ResponseBuilder.addError(response, "transfer", "may not be null");
+      } else {
+        for (ConstraintViolation<Transfer> violation : fieldValidator.validate(transfer)) {
+          ResponseBuilder.addError(response, violation.getPropertyPath().toString(), violation.getMessage());
+        }
+      }
+      invalid |= !response.isAccepted();
+      fieldErrors.add(response);
+    }
+    if (invalid) {
+      return ResponseBuilder.getBatchResponse(new BatchTransferResult(false, fieldErrors));
+    }
+
+    final List<Response> responses = accountsRepository.transferAll(transfers, validator);
+    boolean rejected = false;
+    for (Response response : responses) {
+      if (!response.isAccepted()) {
+        metrics.rejected(response.getResult());
+        rejected = true;
+      }
+    }
+    if (rejected) {
+      return ResponseBuilder.getBatchResponse(new BatchTransferResult(false, responses));
+    }
+
+    for (Transfer transfer : transfers) {
+      final long amount = Money.toMinorUnits(transfer.getAmount());
+      if (ledger != null) {
+        ledger.append(transfer.getAccountFromId(), transfer.getAccountToId(), amount);
+      }
+      notificationDispatcher.transferCompleted(transfer.getAccountFromId(), transfer.getAccountToId(), amount);
+    }
+    return ResponseBuilder.getBatchResponse(new BatchTransferResult(true, responses));
   }
 
 }
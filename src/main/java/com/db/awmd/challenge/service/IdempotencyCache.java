@@ -0,0 +1,218 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.IdempotencyStats;
+import com.db.awmd.challenge.exception.Response;
+import com.db.awmd.challenge.exception.TransferIdReusedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the outcome of transfers sent with a transfer id, so a retry is answered with
+ * the first outcome instead of being applied again.
+ *
+ * <p>Keys are spread over segments, each a map under its own lock. Completed entries are also
+ * chained in completion order; as every entry lives for the same time, the oldest entry of a
+ * segment is always the first to expire, so eviction only ever looks at the head. A segment
+ * also drops its oldest completed entries once it is over its share of the capacity.
+ *
+ * <p>The first request for a key registers a pending entry and runs the transfer; duplicates
+ * arriving meanwhile wait on the segment until that entry completes instead of running it
+ * again. Pending entries are never evicted and are not counted against the capacity, so a
+ * transfer still running cannot be forgotten and applied a second time. If the first request
+ * fails with an exception, the entry is dropped and a waiting duplicate runs the transfer
+ * itself.
+ */
+@Component
+public class IdempotencyCache {
+
+  private final Segment[] segments;
+  private final int segmentCapacity;
+  private final long ttlNanos;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  @Autowired
+  public IdempotencyCache(@Value("${transfers.idempotency.capacity:262144}") int capacity,
+                          @Value("${transfers.idempotency.ttl-seconds:900}") long ttlSeconds) {
+    final int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(64, capacity / 1024)));
+    this.segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment();
+    }
+    this.segmentCapacity = Math.max(1, capacity / segmentCount);
+    this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+  }
+
+  /**
+   * Runs the transfer unless a transfer with the same id ran within the time to live, in which
+   * case its response is returned.
+   *
+   * @param amount amount in minor units; together with the accounts it identifies the transfer,
+   *               and a known id with any of them different is rejected.
+   * @throws TransferIdReusedException if the id was used for a different transfer.
+   */
+  public Response execute(String transferId, String accountFromId, String accountToId, long amount,
+                          Supplier<Response> transfer) {
+    final Segment segment = segments[spread(transferId.hashCode()) & (segments.length - 1)];
+    final Entry entry;
+    synchronized (segment) {
+      while (true) {
+        segment.expire(System.nanoTime());
+        final Entry existing = segment.entries.get(transferId);
+        if (existing == null) {
+          entry = new Entry(transferId, accountFromId, accountToId, amount);
+          segment.entries.put(transferId, entry);
+          segment.pending++;
+          break;
+        }
+        if (!existing.sameTransfer(accountFromId, accountToId, amount)) {
+          throw new TransferIdReusedException("Transfer id " + transferId + " was already used for another transfer");
+        }
+        segment.awaitCompletion(existing);
+        if (existing.response != null) {
+          hits.increment();
+          return existing.response;
+        }
+        // The first attempt failed and was dropped; try again.
+      }
+    }
+
+    misses.increment();
+    Response response = null;
+    try {
+      response = transfer.get();
+      return response;
+    } finally {
+      synchronized (segment) {
+        segment.complete(entry, response, System.nanoTime());
+      }
+    }
+  }
+
+  public IdempotencyStats getStats() {
+    long size = 0;
+    long pending = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.completed;
+        pending += segment.pending;
+      }
+    }
+    return new IdempotencyStats(size, pending, (long) segmentCapacity * segments.length, hits.sum(), misses.sum(),
+      evictions.sum());
+  }
+
+  private static int spread(int h) {
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private final class Segment {
+
+    // All guarded by the segment's monitor.
+    private final Map<String, Entry> entries = new HashMap<>();
+    // Completed entries in completion order, which is expiry order.
+    private Entry oldest;
+    private Entry newest;
+    private int completed;
+    private int pending;
+    private int waiters;
+
+    private void complete(Entry entry, Response response, long now) {
+      pending--;
+      entry.done = true;
+      if (response == null) {
+        entries.remove(entry.transferId, entry);
+      } else {
+        entry.response = response;
+        entry.expiresAt = now + ttlNanos;
+        if (newest == null) {
+          oldest = entry;
+        } else {
+          newest.next = entry;
+        }
+        newest = entry;
+        completed++;
+        while (completed > segmentCapacity) {
+          evictOldest();
+        }
+      }
+      if (waiters > 0) {
+        notifyAll();
+      }
+    }
+
+    private void expire(long now) {
+      while (oldest != null && oldest.expiresAt - now <= 0) {
+        evictOldest();
+      }
+    }
+
+    private void evictOldest() {
+      final Entry entry = oldest;
+      entries.remove(entry.transferId, entry);
+      oldest = entry.next;
+      entry.next = null;
+      if (oldest == null) {
+        newest = null;
+      }
+      completed--;
+      evictions.increment();
+    }
+
+    private void awaitCompletion(Entry entry) {
+      boolean interrupted = false;
+      waiters++;
+      try {
+        while (!entry.done) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+      } finally {
+        waiters--;
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Guarded by the monitor of its segment.
+   */
+  private static final class Entry {
+
+    private final String transferId;
+    private final String accountFromId;
+    private final String accountToId;
+    private final long amount;
+    private boolean done;
+    // Null while pending.
+    private Response response;
+    private long expiresAt;
+    private Entry next;
+
+    private Entry(String transferId, String accountFromId, String accountToId, long amount) {
+      this.transferId = transferId;
+      this.accountFromId = accountFromId;
+      this.accountToId = accountToId;
+      this.amount = amount;
+    }
+
+    private boolean sameTransfer(String accountFromId, String accountToId, long amount) {
+      return this.amount == amount && this.accountFromId.equals(accountFromId) && this.accountToId.equals(accountToId);
+    }
+  }
+}
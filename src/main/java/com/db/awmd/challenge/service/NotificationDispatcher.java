@@ -0,0 +1,222 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.NotificationStats;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.utility.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends transfer notifications off the request thread. Committed transfers are queued in a
+ * bounded queue; worker threads collect everything that arrives within the coalescing window
+ * and send one notification per account for it, so a slow {@link NotificationService} never
+ * shows up in transfer latency.
+ *
+ * <p>When the queue is full the overflow policy decides: {@code drop-newest} rejects the new
+ * event, {@code drop-oldest} evicts the oldest queued one and {@code block} waits up to the
+ * block timeout for space before dropping. Dropped events are counted.
+ */
+@Slf4j
+@Component
+public class NotificationDispatcher {
+
+  public enum OverflowPolicy { DROP_NEWEST, DROP_OLDEST, BLOCK }
+
+  private static final int MAX_BATCH = 4096;
+
+  private final NotificationService notificationService;
+  private final AccountsRepository accountsRepository;
+  private final BlockingQueue<TransferEvent> queue;
+  private final OverflowPolicy overflowPolicy;
+  private final long coalesceWindowNanos;
+  private final long blockTimeoutNanos;
+  private final List<Thread> workers = new ArrayList<>();
+  private volatile boolean running = true;
+
+  private final LongAdder enqueued = new LongAdder();
+  private final LongAdder dispatched = new LongAdder();
+  private final LongAdder notificationsSent = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAccumulator maxLagNanos = new LongAccumulator(Long::max, 0);
+  private volatile long lastLagNanos;
+
+  @Autowired
+  public NotificationDispatcher(NotificationService notificationService,
+                                AccountsRepository accountsRepository,
+                                @Value("${notifications.queue-capacity:65536}") int queueCapacity,
+                                @Value("${notifications.workers:1}") int workerCount,
+                                @Value("${notifications.coalesce-window-ms:50}") long coalesceWindowMillis,
+                                @Value("${notifications.overflow-policy:drop-newest}") String overflowPolicy,
+                                @Value("${notifications.block-timeout-ms:10}") long blockTimeoutMillis) {
+    this.notificationService = notificationService;
+    this.accountsRepository = accountsRepository;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.trim().replace('-', '_').toUpperCase());
+    this.coalesceWindowNanos = TimeUnit.MILLISECONDS.toNanos(coalesceWindowMillis);
+    this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+
+    for (int i = 0; i < workerCount; i++) {
+      Thread worker = new Thread(this::run, "notification-dispatcher-" + i);
+      worker.setDaemon(true);
+      worker.start();
+      workers.add(worker);
+    }
+  }
+
+  /**
+   * Queues the notifications for a committed transfer. Never waits on the notification
+   * service; with the {@code block} policy it waits at most the block timeout for queue space.
+   *
+   * @param amount amount in minor units, see {@link Money}.
+   * @return false if the event was dropped.
+   */
+  public boolean transferCompleted(String accountFromId, String accountToId, long amount) {
+    TransferEvent event = new TransferEvent(accountFromId, accountToId, amount, System.nanoTime());
+    boolean queued;
+    switch (overflowPolicy) {
+      case DROP_OLDEST:
+        while (!(queued = queue.offer(event))) {
+          if (queue.poll() != null) {
+            dropped.increment();
+          }
+        }
+        break;
+      case BLOCK:
+        try {
+          queued = queue.offer(event, blockTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          queued = false;
+        }
+        break;
+      default:
+        queued = queue.offer(event);
+    }
+
+    if (queued) {
+      enqueued.increment();
+    } else {
+      dropped.increment();
+    }
+    return queued;
+  }
+
+  public NotificationStats getStats() {
+    return new NotificationStats(queue.size(), queue.size() + queue.remainingCapacity(), enqueued.sum(),
+      dispatched.sum(), notificationsSent.sum(), dropped.sum(), failed.sum(),
+      TimeUnit.NANOSECONDS.toMillis(lastLagNanos), TimeUnit.NANOSECONDS.toMillis(maxLagNanos.get()));
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    running = false;
+    for (Thread worker : workers) {
+      worker.interrupt();
+      worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+  }
+
+  private void run() {
+    final List<TransferEvent> batch = new ArrayList<>();
+    while (running || !queue.isEmpty()) {
+      try {
+        TransferEvent first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        collectWindow(first.enqueuedAt + coalesceWindowNanos, batch);
+      } catch (InterruptedException e) {
+        // Shutting down: send what was already taken and whatever is still queued.
+        queue.drainTo(batch);
+      }
+      if (!batch.isEmpty()) {
+        dispatch(batch);
+        batch.clear();
+      }
+    }
+  }
+
+  private void collectWindow(long deadline, List<TransferEvent> batch) throws InterruptedException {
+    long remaining;
+    while (batch.size() < MAX_BATCH && (remaining = deadline - System.nanoTime()) > 0) {
+      TransferEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+      if (next == null) {
+        return;
+      }
+      batch.add(next);
+      queue.drainTo(batch, MAX_BATCH - batch.size());
+    }
+  }
+
+  private void dispatch(List<TransferEvent> batch) {
+    final long lag = System.nanoTime() - batch.get(0).enqueuedAt;
+    lastLagNanos = lag;
+    maxLagNanos.accumulate(lag);
+
+    final Map<String, StringBuilder> descriptions = new LinkedHashMap<>();
+    for (TransferEvent event : batch) {
+      final String amount = Money.toDecimal(event.amount).toPlainString();
+      describe(descriptions, event.accountFromId).append("Transfer completed successfully of amount[")
+        .append(amount).append("] to account[").append(event.accountToId).append("].");
+      describe(descriptions, event.accountToId).append("Account [").append(event.accountFromId)
+        .append("] has transferred amount[").append(amount).append("] into your account.");
+    }
+    dispatched.add(batch.size());
+
+    descriptions.forEach((accountId, description) -> {
+      Account account = accountsRepository.getAccount(accountId);
+      if (account == null) {
+        return;
+      }
+      try {
+        notificationService.notifyAboutTransfer(account, description.toString());
+        notificationsSent.increment();
+      } catch (RuntimeException e) {
+        failed.increment();
+        log.warn("Notification to owner of {} failed", accountId, e);
+      }
+    });
+  }
+
+  private static StringBuilder describe(Map<String, StringBuilder> descriptions, String accountId) {
+    StringBuilder description = descriptions.get(accountId);
+    if (description == null) {
+      description = new StringBuilder(64);
+      descriptions.put(accountId, description);
+    } else {
+      description.append(' ');
+    }
+    return description;
+  }
+
+  private static final class TransferEvent {
+
+    private final String accountFromId;
+    private final String accountToId;
+    private final long amount;
+    private final long enqueuedAt;
+
+    private TransferEvent(String accountFromId, String accountToId, long amount, long enqueuedAt) {
+      this.accountFromId = accountFromId;
+      this.accountToId = accountToId;
+      this.amount = amount;
+      this.enqueuedAt = enqueuedAt;
+    }
+  }
+}
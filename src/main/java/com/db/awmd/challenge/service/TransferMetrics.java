@@ -0,0 +1,120 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.LatencySummary;
+import com.db.awmd.challenge.domain.MetricsStats;
+import com.db.awmd.challenge.exception.ValidationResult;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.utility.LatencyHistogram;
+import com.db.awmd.challenge.validator.FundTransferValidator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and rejection counters of the transfer and lookup paths. Recording is
+ * lock-free and allocates nothing, so it is always on.
+ *
+ * <p>{@code transfer} covers a whole single transfer in the service, {@code apply} the
+ * repository step including locking and journaling, {@code validate} one run of the validator
+ * chain inside it and {@code notify} handing the notification to the dispatcher.
+ * {@code getAccount} covers a lookup. With a log interval set, the summary is also logged
+ * periodically.
+ */
+@Slf4j
+@Component
+public class TransferMetrics {
+
+  public enum Operation { TRANSFER, APPLY, NOTIFY, GET_ACCOUNT }
+
+  private final AccountsRepository accountsRepository;
+  private final FundTransferValidator validator;
+  private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+  private final LongAdder[] rejections = new LongAdder[ValidationResult.values().length];
+  private ScheduledExecutorService logScheduler;
+
+  @Autowired
+  public TransferMetrics(AccountsRepository accountsRepository, FundTransferValidator validator,
+                         @Value("${metrics.log-interval-seconds:60}") long logIntervalSeconds) {
+    this.accountsRepository = accountsRepository;
+    this.validator = validator;
+    for (int i = 0; i < latencies.length; i++) {
+      latencies[i] = new LatencyHistogram();
+    }
+    for (int i = 0; i < rejections.length; i++) {
+      rejections[i] = new LongAdder();
+    }
+
+    if (logIntervalSeconds > 0) {
+      logScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "metrics-log");
+        thread.setDaemon(true);
+        return thread;
+      });
+      logScheduler.scheduleAtFixedRate(this::log, logIntervalSeconds, logIntervalSeconds, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Records the time passed since {@code startNanos}, a {@link System#nanoTime()} reading.
+   */
+  public void record(Operation operation, long startNanos) {
+    latencies[operation.ordinal()].recordSince(startNanos);
+  }
+
+  public void rejected(ValidationResult result) {
+    rejections[result.ordinal()].increment();
+  }
+
+  public MetricsStats getStats() {
+    final Map<String, LatencySummary> summaries = new LinkedHashMap<>();
+    summaries.put("transfer", latencies[Operation.TRANSFER.ordinal()].summarize());
+    summaries.put("apply", latencies[Operation.APPLY.ordinal()].summarize());
+    summaries.put("validate", validator.getLatency().summarize());
+    summaries.put("notify", latencies[Operation.NOTIFY.ordinal()].summarize());
+    summaries.put("getAccount", latencies[Operation.GET_ACCOUNT.ordinal()].summarize());
+
+    final Map<String, Long> rejected = new LinkedHashMap<>();
+    for (ValidationResult result : ValidationResult.values()) {
+      if (result != ValidationResult.VALID) {
+        rejected.put(result.name(), rejections[result.ordinal()].sum());
+      }
+    }
+    return new MetricsStats(accountsRepository.size(), summaries, rejected);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (logScheduler != null) {
+      logScheduler.shutdownNow();
+    }
+  }
+
+  private void log() {
+    try {
+      final MetricsStats stats = getStats();
+      final StringBuilder line = new StringBuilder("accounts=").append(stats.getAccounts());
+      stats.getRejections().forEach((result, count) -> line.append(' ').append(result).append('=').append(count));
+      log.info("Metrics {}", line);
+      stats.getLatencies().forEach((operation, summary) -> log.info(
+        "Latency {} count={} mean={}us p50={}us p90={}us p99={}us p99.9={}us max={}us", operation, summary.getCount(),
+        micros(summary.getMeanNanos()), micros(summary.getP50Nanos()), micros(summary.getP90Nanos()),
+        micros(summary.getP99Nanos()), micros(summary.getP999Nanos()), micros(summary.getMaxNanos())));
+    } catch (RuntimeException e) {
+      // Keep the schedule alive; a failed dump must not stop the next one.
+      log.warn("Logging metrics failed", e);
+    }
+  }
+
+  private static String micros(long nanos) {
+    return String.format("%.1f", nanos / 1000.0);
+  }
+}
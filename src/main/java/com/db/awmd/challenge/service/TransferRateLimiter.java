@@ -0,0 +1,196 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.RateLimitStats;
+import com.db.awmd.challenge.domain.RateLimits;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control for transfers: a token bucket for all transfers together and one per
+ * source account, checked before a transfer is validated or reaches the repository.
+ *
+ * <p>Each bucket is a single {@code long}, the time at which it is full again, which admits
+ * exactly what a token bucket of the same rate and burst does (the generic cell rate
+ * algorithm). Taking a token moves that time on by one token's interval with a
+ * compare-and-set, unless it would then be further ahead than the burst allows. There are no
+ * locks, and nothing is allocated for an account that already has a bucket.
+ *
+ * <p>The account is checked first, so a transfer an account is not allowed does not use up
+ * the global limit; a transfer the global limit rejects gives its account token back.
+ *
+ * <p>At most {@code max-accounts} account buckets are kept. A bucket that is full again
+ * behaves exactly like a new one, so when the table is full such idle buckets are dropped.
+ * If none is idle, further accounts are only held to the global limit until some are. A
+ * token taken from a bucket just as it is dropped is lost, which only ever lets a transfer
+ * more through.
+ */
+@Component
+public class TransferRateLimiter {
+
+  /** Least time between two sweeps for idle buckets, so a full table is not swept per request. */
+  private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final int maxAccounts;
+  private final AtomicLong global = new AtomicLong(System.nanoTime());
+  private final Map<String, AtomicLong> accounts = new ConcurrentHashMap<>();
+  private final AtomicBoolean sweeping = new AtomicBoolean();
+  private volatile long lastSweep = System.nanoTime() - SWEEP_INTERVAL_NANOS;
+
+  private volatile RateLimits limits;
+  private volatile Intervals intervals;
+
+  private final LongAdder globalRejections = new LongAdder();
+  private final LongAdder accountRejections = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  @Autowired
+  public TransferRateLimiter(@Value("${transfers.rate-limit.global-per-second:0}") long globalPerSecond,
+                             @Value("${transfers.rate-limit.global-burst:1000}") long globalBurst,
+                             @Value("${transfers.rate-limit.account-per-second:0}") long accountPerSecond,
+                             @Value("${transfers.rate-limit.account-burst:100}") long accountBurst,
+                             @Value("${transfers.rate-limit.max-accounts:100000}") int maxAccounts) {
+    this.maxAccounts = Math.max(1, maxAccounts);
+    setLimits(new RateLimits(globalPerSecond, globalBurst, accountPerSecond, accountBurst));
+  }
+
+  /**
+   * Takes a token for a transfer from the account.
+   *
+   * @param accountFromId the source account, or null to only check the global limit.
+   * @return 0 if the transfer may go ahead, else the nanoseconds until it could.
+   */
+  public long acquire(String accountFromId) {
+    final Intervals intervals = this.intervals;
+    if (intervals.global == 0 && intervals.account == 0) {
+      return 0;
+    }
+    final long now = System.nanoTime();
+    AtomicLong account = null;
+    if (intervals.account > 0 && accountFromId != null) {
+      account = bucket(accountFromId, now);
+      if (account != null) {
+        final long wait = take(account, now, intervals.account, intervals.accountTolerance);
+        if (wait > 0) {
+          accountRejections.increment();
+          return wait;
+        }
+      }
+    }
+    if (intervals.global > 0) {
+      final long wait = take(global, now, intervals.global, intervals.globalTolerance);
+      if (wait > 0) {
+        if (account != null) {
+          account.addAndGet(-intervals.account);
+        }
+        globalRejections.increment();
+        return wait;
+      }
+    }
+    return 0;
+  }
+
+  public RateLimits getLimits() {
+    return limits;
+  }
+
+  /**
+   * Applies new limits from the next transfer on. Buckets keep their state, so a lowered limit
+   * first lets the tokens already granted run out.
+   */
+  public void setLimits(RateLimits limits) {
+    this.intervals = new Intervals(limits);
+    this.limits = limits;
+  }
+
+  public RateLimitStats getStats() {
+    return new RateLimitStats(accounts.size(), maxAccounts, globalRejections.sum(), accountRejections.sum(),
+      evictions.sum());
+  }
+
+  /**
+   * @return the wait in nanoseconds, or 0 if a token was taken.
+   */
+  private static long take(AtomicLong bucket, long now, long interval, long tolerance) {
+    while (true) {
+      final long full = bucket.get();
+      final long next = (full - now > 0 ? full : now) + interval;
+      if (next - now > tolerance) {
+        return next - now - tolerance;
+      }
+      if (bucket.compareAndSet(full, next)) {
+        return 0;
+      }
+    }
+  }
+
+  /**
+   * The account's bucket, or null if the table is full of busy ones.
+   */
+  private AtomicLong bucket(String accountId, long now) {
+    final AtomicLong bucket = accounts.get(accountId);
+    if (bucket != null) {
+      return bucket;
+    }
+    if (accounts.size() >= maxAccounts) {
+      sweep(now);
+      if (accounts.size() >= maxAccounts) {
+        return null;
+      }
+    }
+    final AtomicLong created = new AtomicLong(now);
+    final AtomicLong raced = accounts.putIfAbsent(accountId, created);
+    return raced == null ? created : raced;
+  }
+
+  private void sweep(long now) {
+    if (now - lastSweep < SWEEP_INTERVAL_NANOS || !sweeping.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      for (Map.Entry<String, AtomicLong> entry : accounts.entrySet()) {
+        final AtomicLong bucket = entry.getValue();
+        if (bucket.get() - now <= 0 && accounts.remove(entry.getKey(), bucket)) {
+          evictions.increment();
+        }
+      }
+      lastSweep = System.nanoTime();
+    } finally {
+      sweeping.set(false);
+    }
+  }
+
+  /**
+   * The limits as nanoseconds per token and burst, 0 for no limit.
+   */
+  private static final class Intervals {
+
+    private final long global;
+    private final long globalTolerance;
+    private final long account;
+    private final long accountTolerance;
+
+    private Intervals(RateLimits limits) {
+      this.global = interval(limits.getGlobalPerSecond());
+      this.globalTolerance = tolerance(global, limits.getGlobalBurst());
+      this.account = interval(limits.getAccountPerSecond());
+      this.accountTolerance = tolerance(account, limits.getAccountBurst());
+    }
+
+    private static long interval(long perSecond) {
+      return perSecond <= 0 ? 0 : Math.max(1, TimeUnit.SECONDS.toNanos(1) / perSecond);
+    }
+
+    private static long tolerance(long interval, long burst) {
+      // Capped far below overflow of the nanosecond arithmetic in take().
+      return interval == 0 ? 0 : interval * Math.max(1, Math.min(burst, (Long.MAX_VALUE >> 2) / interval));
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.db.awmd.challenge.utility;
+
+import java.math.BigDecimal;
+
+/**
+ * Money is held internally as a {@code long} count of minor units (cents), so balances can
+ * be checked and updated without allocating. {@link BigDecimal} is only used at the JSON
+ * boundary, converted with {@link #toMinorUnits(BigDecimal)} and {@link #toDecimal(long)}.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+
+    /**
+     * Largest number of integer digits accepted at the boundary; keeps every balance well
+     * inside the range of a {@code long} in minor units.
+     */
+    public static final int MAX_INTEGER_DIGITS = 16;
+
+    private Money() {
+    }
+
+    /**
+     * @throws ArithmeticException if the amount has more than {@link #SCALE} decimals or
+     *                             does not fit into a {@code long} of minor units.
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        return amount.movePointRight(SCALE).longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    public static long add(long balance, long amount) {
+        return Math.addExact(balance, amount);
+    }
+
+    public static long subtract(long balance, long amount) {
+        return Math.subtractExact(balance, amount);
+    }
+}
@@ -1,5 +1,6 @@
 package com.db.awmd.challenge.utility;
 
+import com.db.awmd.challenge.domain.BatchTransferResult;
 import com.db.awmd.challenge.exception.Error;
 import com.db.awmd.challenge.exception.Response;
 import org.springframework.http.HttpHeaders;
@@ -16,7 +17,7 @@ import java.util.List;
  */
 public class ResponseBuilder {
 
-    public static ResponseEntity getFieldError(Errors errors) {
+    public static ResponseEntity<Object> getFieldError(Errors errors) {
         Response response = new Response();
         final List<FieldError> fieldErrorList = errors.getFieldErrors();
 
@@ -27,15 +28,21 @@ public class ResponseBuilder {
         return getErrorResponse(response);
     }
 
-    private static void addError(Response response, String code, String description){
+    public static void addError(Response response, String code, String description){
         com.db.awmd.challenge.exception.Error error = new Error(code, description);
         response.getErrors().add(error);
     }
 
-    public static ResponseEntity getErrorResponse(Response response){
+    public static ResponseEntity<Object> getErrorResponse(Response response){
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
-        return new ResponseEntity<Object>(response, headers, HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(response, headers, HttpStatus.BAD_REQUEST);
+    }
+
+    public static ResponseEntity<BatchTransferResult> getBatchResponse(BatchTransferResult result){
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new ResponseEntity<>(result, headers, result.isApplied() ? HttpStatus.OK : HttpStatus.BAD_REQUEST);
     }
 
     public static ResponseEntity getSuccessResponse(String message, HttpStatus status){
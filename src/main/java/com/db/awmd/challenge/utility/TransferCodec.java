@@ -0,0 +1,205 @@
+package com.db.awmd.challenge.utility;
+
+import com.db.awmd.challenge.exception.Response;
+import lombok.Data;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding of a single transfer, for callers that would rather not pay for
+ * JSON. All numbers are big-endian.
+ *
+ * <p>A request is {@code accountFromId}, {@code accountToId}, the amount as an {@code int64}
+ * of minor units and {@code transferId}, where each id is an unsigned 16-bit byte length
+ * followed by its UTF-8 bytes; a {@code transferId} of length 0 means none. The amount and
+ * ids are held to the same limits as a JSON {@link com.db.awmd.challenge.domain.Transfer}.
+ *
+ * <p>A response is always {@value #RESPONSE_LENGTH} bytes: an outcome byte, one of the
+ * constants below, and an {@code int64} value. The value is the available balance in minor
+ * units for {@link #INSUFFICIENT_FUNDS}, the nanoseconds to wait for {@link #RATE_LIMITED}
+ * and 0 otherwise.
+ */
+public final class TransferCodec {
+
+    public static final String MEDIA_TYPE = "application/x-transfer";
+
+    public static final int RESPONSE_LENGTH = 9;
+
+    public static final byte OK = 0;
+    public static final byte ACCOUNT_NOT_FOUND = 1;
+    public static final byte SAME_ACCOUNT = 2;
+    public static final byte INSUFFICIENT_FUNDS = 3;
+    public static final byte INVALID_REQUEST = 4;
+    public static final byte TRANSFER_ID_REUSED = 5;
+    public static final byte RATE_LIMITED = 6;
+
+    /** 1.00, the least amount a JSON transfer may have. */
+    private static final long MIN_AMOUNT = 100;
+
+    /** Largest amount with at most {@link Money#MAX_INTEGER_DIGITS} integer digits. */
+    private static final long MAX_AMOUNT = 999_999_999_999_999_999L;
+
+    private static final int MAX_TRANSFER_ID_LENGTH = 128;
+
+    // Responses without a value are the same bytes every time, so they are shared. They are
+    // only ever handed to the container to write and must not be changed.
+    private static final byte[][] SHARED_RESPONSES = new byte[RATE_LIMITED + 1][];
+
+    static {
+        for (byte outcome = OK; outcome <= RATE_LIMITED; outcome++) {
+            SHARED_RESPONSES[outcome] = encodeResponse(outcome, 0);
+        }
+    }
+
+    private TransferCodec() {
+    }
+
+    /**
+     * Decodes a request from the buffer's remaining bytes, which must hold exactly one.
+     *
+     * @throws IllegalArgumentException if the bytes are not a valid transfer.
+     */
+    public static Request decode(ByteBuffer buffer) {
+        final Request request;
+        try {
+            final String accountFromId = readString(buffer);
+            final String accountToId = readString(buffer);
+            final long amount = buffer.getLong();
+            final String transferId = readString(buffer);
+            request = new Request(accountFromId, accountToId, amount, transferId.isEmpty() ? null : transferId);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated transfer");
+        }
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException("Trailing bytes after transfer");
+        }
+        if (request.accountFromId.isEmpty() || request.accountToId.isEmpty()) {
+            throw new IllegalArgumentException("Account ids must not be empty");
+        }
+        if (request.amount < MIN_AMOUNT || request.amount > MAX_AMOUNT) {
+            throw new IllegalArgumentException("Transfer amount out of range");
+        }
+        if (request.transferId != null && request.transferId.length() > MAX_TRANSFER_ID_LENGTH) {
+            throw new IllegalArgumentException("Transfer id longer than " + MAX_TRANSFER_ID_LENGTH + " characters");
+        }
+        return request;
+    }
+
+    /**
+     * Appends the request's encoding to the buffer.
+     *
+     * @param transferId null for none.
+     * @throws java.nio.BufferOverflowException if it does not fit.
+     */
+    public static void encode(ByteBuffer buffer, String accountFromId, String accountToId, long amount,
+                              String transferId) {
+        writeString(buffer, accountFromId);
+        writeString(buffer, accountToId);
+        buffer.putLong(amount);
+        writeString(buffer, transferId == null ? "" : transferId);
+    }
+
+    /**
+     * The outcome byte of a transfer's response.
+     */
+    public static byte outcome(Response response) {
+        switch (response.getResult()) {
+            case VALID:
+                return response.isAccepted() ? OK : INVALID_REQUEST;
+            case ACCOUNT_NOT_FOUND:
+                return ACCOUNT_NOT_FOUND;
+            case SAME_ACCOUNT:
+                return SAME_ACCOUNT;
+            case INSUFFICIENT_FUNDS:
+                return INSUFFICIENT_FUNDS;
+            default:
+                throw new IllegalArgumentException("Unknown result " + response.getResult());
+        }
+    }
+
+    /**
+     * The encoded response to a transfer. Shared for responses without a value, so the array
+     * must not be changed.
+     */
+    public static byte[] encode(Response response) {
+        final byte outcome = outcome(response);
+        return outcome == INSUFFICIENT_FUNDS ? encodeResponse(outcome, response.getBalance()) : SHARED_RESPONSES[outcome];
+    }
+
+    /**
+     * The encoded response with the given outcome and value. Shared if the value is 0, so the
+     * array must not be changed.
+     */
+    public static byte[] encode(byte outcome, long value) {
+        return value == 0 ? SHARED_RESPONSES[outcome] : encodeResponse(outcome, value);
+    }
+
+    /**
+     * Appends the encoded response to a transfer to the buffer.
+     *
+     * @throws java.nio.BufferOverflowException if fewer than {@value #RESPONSE_LENGTH} bytes remain.
+     */
+    public static void encode(ByteBuffer buffer, Response response) {
+        final byte outcome = outcome(response);
+        encode(buffer, outcome, outcome == INSUFFICIENT_FUNDS ? response.getBalance() : 0);
+    }
+
+    /**
+     * Appends the encoded response with the given outcome and value to the buffer.
+     *
+     * @throws java.nio.BufferOverflowException if fewer than {@value #RESPONSE_LENGTH} bytes remain.
+     */
+    public static void encode(ByteBuffer buffer, byte outcome, long value) {
+        buffer.put(outcome).putLong(value);
+    }
+
+    private static byte[] encodeResponse(byte outcome, long value) {
+        final byte[] bytes = new byte[RESPONSE_LENGTH];
+        bytes[0] = outcome;
+        for (int i = RESPONSE_LENGTH - 1; i > 0; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final int length = buffer.getShort() & 0xFFFF;
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        final String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            final byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    private static void writeString(ByteBuffer buffer, String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Longer than 65535 bytes: " + value);
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * A decoded transfer; the amount is in minor units.
+     */
+    @Data
+    public static final class Request {
+
+        private final String accountFromId;
+        private final String accountToId;
+        private final long amount;
+        private final String transferId;
+    }
+}
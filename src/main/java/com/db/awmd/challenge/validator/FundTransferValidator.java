@@ -1,8 +1,9 @@
 package com.db.awmd.challenge.validator;
 
-import com.db.awmd.challenge.domain.Account;
-import com.db.awmd.challenge.exception.Error;
-import com.db.awmd.challenge.exception.*;
+import com.db.awmd.challenge.domain.AccountBalance;
+import com.db.awmd.challenge.exception.Response;
+import com.db.awmd.challenge.exception.ValidationResult;
+import com.db.awmd.challenge.utility.LatencyHistogram;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -10,30 +11,38 @@ import java.util.List;
 
 /**
  * Created by sonk01 on 05/12/17.
+ *
+ * <p>Runs the validators in order and stops at the first rejection. The chain is copied into an
+ * array once; an accepted transfer allocates nothing and a rejected one at most its response.
+ * Every run is timed into {@link #getLatency()}.
  */
 @Component
 public class FundTransferValidator {
 
+    private final Validator[] validators;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
     @Autowired
-    private List<Validator> validators;
+    public FundTransferValidator(List<Validator> validators) {
+        this.validators = validators.toArray(new Validator[0]);
+    }
 
-    public Response validate(final List<Account> accounts) {
-        Response response = new Response();
-        try {
-            validators.forEach(validator -> {
-                    validator.validate(accounts);
-            });
-        } catch (NoAccountFoundException e) {
-            Error error = new Error("Account", e.getMessage());
-            response.getErrors().add(error);
-        } catch (SameAccountFoundException e) {
-            Error error = new Error("Account", e.getMessage());
-            response.getErrors().add(error);
-        } catch (InsufficientFundException e) {
-            Error error = new Error("Fund", e.getMessage());
-            response.getErrors().add(error);
+    public Response validate(final AccountBalance accountFrom, final AccountBalance accountTo, final long amount) {
+        final long started = System.nanoTime();
+        for (Validator validator : validators) {
+            final ValidationResult result = validator.validate(accountFrom, accountTo, amount);
+            if (result != ValidationResult.VALID) {
+                latency.recordSince(started);
+                // The balance is captured now, the message is only built if the response is rendered.
+                return accountFrom == null ? Response.rejected(result, null, 0)
+                        : Response.rejected(result, accountFrom.getAccountId(), accountFrom.getBalance());
+            }
         }
+        latency.recordSince(started);
+        return Response.ACCEPTED;
+    }
 
-        return response;
+    public LatencyHistogram getLatency() {
+        return latency;
     }
 }
@@ -1,13 +1,10 @@
 package com.db.awmd.challenge.validator;
 
-import com.db.awmd.challenge.domain.Account;
-import com.db.awmd.challenge.exception.InsufficientFundException;
+import com.db.awmd.challenge.domain.AccountBalance;
+import com.db.awmd.challenge.exception.ValidationResult;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
-import java.util.List;
-
 /**
  * Created by sonk01 on 07/12/17.
  */
@@ -16,20 +13,19 @@ import java.util.List;
 public class InsufficientFundValidator implements Validator{
 
     @Override
-    public void validate(List<Account> accounts) {
-        Account fromAccount = accounts.get(0);
-        if (!isInsufficientFunds(fromAccount, accounts.get(1).getAmountToBeDeposit())){
-            throw new InsufficientFundException("Insufficient funds on account [" + fromAccount.getAccountId() +
-                    "], available balance= "+ fromAccount.getBalance());
+    public ValidationResult validate(AccountBalance fromAccount, AccountBalance toAccount, long amount) {
+        if (!isInsufficientFunds(fromAccount, amount)){
+            return ValidationResult.INSUFFICIENT_FUNDS;
         }
+        return ValidationResult.VALID;
     }
 
-    private boolean isInsufficientFunds(final Account fromAccount, final BigDecimal amount) {
-        BigDecimal zeroValue = BigDecimal.ZERO;
+    private boolean isInsufficientFunds(final AccountBalance fromAccount, final long amount) {
+        final long balance = fromAccount.getBalance();
 
-        if(null == fromAccount.getBalance() || fromAccount.getBalance().compareTo(zeroValue) == 0) {
+        if(balance == 0) {
             return false;
         }
-        return fromAccount.getBalance().subtract(amount).compareTo(zeroValue) >= 0;
+        return balance - amount >= 0;
     }
 }
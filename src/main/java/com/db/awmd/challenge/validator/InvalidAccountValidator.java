@@ -1,13 +1,10 @@
 package com.db.awmd.challenge.validator;
 
-import com.db.awmd.challenge.domain.Account;
-import com.db.awmd.challenge.exception.NoAccountFoundException;
+import com.db.awmd.challenge.domain.AccountBalance;
+import com.db.awmd.challenge.exception.ValidationResult;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
-import java.util.Optional;
-
 /**
  * Created by sonk01 on 07/12/17.
  */
@@ -16,10 +13,10 @@ import java.util.Optional;
 public class InvalidAccountValidator implements Validator{
 
     @Override
-    public void validate(List<Account> accounts) {
-        accounts.forEach( account -> {
-            Optional.ofNullable(account)
-                    .orElseThrow(() -> new NoAccountFoundException("Account not exist."));
-        });
+    public ValidationResult validate(AccountBalance fromAccount, AccountBalance toAccount, long amount) {
+        if (fromAccount == null || toAccount == null) {
+            return ValidationResult.ACCOUNT_NOT_FOUND;
+        }
+        return ValidationResult.VALID;
     }
 }
@@ -1,12 +1,10 @@
 package com.db.awmd.challenge.validator;
 
-import com.db.awmd.challenge.domain.Account;
-import com.db.awmd.challenge.exception.SameAccountFoundException;
+import com.db.awmd.challenge.domain.AccountBalance;
+import com.db.awmd.challenge.exception.ValidationResult;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
-
 /**
  * Created by sonk01 on 07/12/17.
  */
@@ -15,13 +13,14 @@ import java.util.List;
 public class SameAccountValidator implements Validator{
 
     @Override
-    public void validate(List<Account> accounts) {
-        if (isSameAccount(accounts.get(0), accounts.get(1))){
-            throw new SameAccountFoundException("Transfer to self not permitted.");
+    public ValidationResult validate(AccountBalance fromAccount, AccountBalance toAccount, long amount) {
+        if (isSameAccount(fromAccount, toAccount)){
+            return ValidationResult.SAME_ACCOUNT;
         }
+        return ValidationResult.VALID;
     }
 
-    private boolean isSameAccount(final Account fromAccount, final Account toAccount) {
+    private boolean isSameAccount(final AccountBalance fromAccount, final AccountBalance toAccount) {
         return fromAccount.getAccountId().equals(toAccount.getAccountId());
     }
 }
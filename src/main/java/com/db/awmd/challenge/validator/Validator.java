@@ -1,10 +1,16 @@
 package com.db.awmd.challenge.validator;
 
-import com.db.awmd.challenge.domain.Account;
-
-import java.util.List;
+import com.db.awmd.challenge.domain.AccountBalance;
+import com.db.awmd.challenge.exception.ValidationResult;
 
 public interface Validator {
 
-    void validate(List<Account> accounts);
+    /**
+     * Checks one rule. Must not throw or allocate; the error message is built from the
+     * result only if the response is rendered.
+     *
+     * @param amount transfer amount in minor units, see {@link com.db.awmd.challenge.utility.Money}.
+     * @return {@link ValidationResult#VALID} or the reason the transfer is rejected.
+     */
+    ValidationResult validate(AccountBalance accountFrom, AccountBalance accountTo, long amount);
 }
@@ -3,7 +3,7 @@ package com.db.awmd.challenge.validator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
 
 @Configuration
@@ -11,14 +11,6 @@ public class ValidatorConfiguration {
 
     @Bean
     public List<Validator> Validators() {
-        return new LinkedList<>(getValidators());
-    }
-
-    private List<Validator> getValidators() {
-        List<Validator> validators = new LinkedList<>();
-        validators.add(new InvalidAccountValidator());
-        validators.add(new SameAccountValidator());
-        validators.add(new InsufficientFundValidator());
-        return validators;
+        return Arrays.asList(new InvalidAccountValidator(), new SameAccountValidator(), new InsufficientFundValidator());
     }
 }
@@ -1,67 +1,309 @@
 package com.db.awmd.challenge.web;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountPage;
+import com.db.awmd.challenge.domain.AccountSnapshot;
+import com.db.awmd.challenge.domain.AccountTransactions;
+import com.db.awmd.challenge.domain.BatchTransferResult;
+import com.db.awmd.challenge.domain.ImportSummary;
 import com.db.awmd.challenge.domain.Transfer;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.exception.TransferIdReusedException;
+import com.db.awmd.challenge.service.AccountExporter;
+import com.db.awmd.challenge.service.AccountImporter;
 import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.TransferRateLimiter;
 import com.db.awmd.challenge.utility.ResponseBuilder;
+import com.db.awmd.challenge.utility.TransferCodec;
 import com.db.awmd.challenge.validator.FundTransferValidator;
-import lombok.extern.slf4j.Slf4j;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.Errors;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * The accounts API in the default {@code blocking} execution mode, where each request runs on
+ * its servlet thread. See {@link AsyncAccountsController} for the {@code async} mode.
+ */
 @RestController
 @RequestMapping("/v1/accounts")
-@Slf4j
+@ConditionalOnProperty(name = "web.execution-mode", havingValue = "blocking", matchIfMissing = true)
 public class AccountsController {
 
+  static final int MAX_PAGE_SIZE = 1000;
+
+  /** Headers of every binary transfer response; read-only, so one instance serves all. */
+  private static final HttpHeaders BINARY_HEADERS;
+
+  static {
+    final HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.valueOf(TransferCodec.MEDIA_TYPE));
+    BINARY_HEADERS = HttpHeaders.readOnlyHttpHeaders(headers);
+  }
+
   private final AccountsService accountsService;
   private final FundTransferValidator validator;
+  private final RequestLogger requestLogger;
+  private final AccountImporter importer;
+  private final AccountExporter exporter;
+  private final ObjectMapper objectMapper;
+  private final TransferRateLimiter rateLimiter;
 
   @Autowired
-  public AccountsController(AccountsService accountsService, FundTransferValidator validator) {
+  public AccountsController(AccountsService accountsService, FundTransferValidator validator,
+                            RequestLogger requestLogger, AccountImporter importer, AccountExporter exporter,
+                            ObjectMapper objectMapper, TransferRateLimiter rateLimiter) {
     this.accountsService = accountsService;
     this.validator = validator;
+    this.requestLogger = requestLogger;
+    this.importer = importer;
+    this.exporter = exporter;
+    this.objectMapper = objectMapper;
+    this.rateLimiter = rateLimiter;
   }
 
   @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
   public ResponseEntity<Object> createAccount(@RequestBody @Valid Account account, Errors errors) {
-    log.info("Creating account {}", account);
-
+    final long started = System.nanoTime();
+    ResponseEntity<Object> response;
     if (errors.hasErrors()) {
-      return ResponseBuilder.getFieldError(errors);
+      response = ResponseBuilder.getFieldError(errors);
+    } else {
+      try {
+        response = this.accountsService.createAccount(account);
+      } catch (DuplicateAccountIdException daie) {
+        response = new ResponseEntity<>(daie.getMessage(), HttpStatus.BAD_REQUEST);
+      }
     }
+    requestLogger.request("Create account", response.getStatusCode(), account, started);
+    return response;
+  }
+
+  /**
+   * Creates the accounts of a streamed NDJSON body, one {@code {"accountId": ..., "balance": ...}}
+   * object per line. Lines that are rejected are listed in the summary.
+   */
+  @PostMapping(path = "/import", consumes = "application/x-ndjson")
+  public ResponseEntity<Object> importNdjson(InputStream body) throws IOException {
+    return importAccounts(body, AccountImporter.Format.NDJSON);
+  }
 
+  /**
+   * Creates the accounts of a streamed CSV body of {@code accountId,balance} lines.
+   */
+  @PostMapping(path = "/import", consumes = "text/csv")
+  public ResponseEntity<Object> importCsv(InputStream body) throws IOException {
+    return importAccounts(body, AccountImporter.Format.CSV);
+  }
+
+  /**
+   * One page of accounts, continuing from the {@code nextCursor} of the page before. Accounts
+   * created meanwhile show up on later pages.
+   */
+  @GetMapping
+  public ResponseEntity<Object> listAccounts(@RequestParam(required = false) String cursor,
+                                             @RequestParam(defaultValue = "100") int limit) {
+    final long started = System.nanoTime();
+    ResponseEntity<Object> response;
     try {
-      return this.accountsService.createAccount(account);
-    } catch (DuplicateAccountIdException daie) {
-      return new ResponseEntity<>(daie.getMessage(), HttpStatus.BAD_REQUEST);
+      final AccountPage page = accountsService.listAccounts(cursor, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+      response = new ResponseEntity<>(page, HttpStatus.OK);
+    } catch (IllegalArgumentException e) {
+      response = new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
     }
+    requestLogger.request("List accounts", response.getStatusCode(), cursor, started);
+    return response;
+  }
 
+  /**
+   * Streams all accounts as NDJSON, with the balances of one point in time.
+   */
+  @GetMapping(path = "/export")
+  public void exportAccounts(HttpServletResponse response) throws IOException {
+    final long started = System.nanoTime();
+    response.setContentType("application/x-ndjson");
+    response.setCharacterEncoding("UTF-8");
+    HttpStatus status = HttpStatus.OK;
+    long exported = 0;
+    try {
+      exported = exporter.exportAccounts(response.getOutputStream());
+    } catch (UnsupportedOperationException e) {
+      status = HttpStatus.NOT_IMPLEMENTED;
+      response.sendError(status.value(), e.getMessage());
+    }
+    requestLogger.request("Export accounts", status, exported, started);
   }
 
+  /**
+   * The account's balance, with an ETag. A request whose {@code If-None-Match} has the current
+   * one is answered with 304 and no body. The JSON of a balance is rendered once and reused
+   * until the balance changes.
+   */
   @GetMapping(path = "/{accountId}")
-  public Account getAccount(@PathVariable String accountId) {
-    log.info("Retrieving account for id {}", accountId);
-    return this.accountsService.getAccount(accountId);
+  public ResponseEntity<Object> getAccount(@PathVariable String accountId,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                             String ifNoneMatch) throws IOException {
+    final long started = System.nanoTime();
+    final AccountSnapshot account = this.accountsService.getAccountSnapshot(accountId);
+    ResponseEntity<Object> response;
+    if (account == null) {
+      // As before snapshots: an empty 200, logged as not found.
+      response = new ResponseEntity<>(HttpStatus.OK);
+    } else if (matches(ifNoneMatch, account.getETag())) {
+      response = ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(account.getETag()).build();
+    } else {
+      response = ResponseEntity.ok().eTag(account.getETag()).contentType(MediaType.APPLICATION_JSON_UTF8)
+        .body(account.toJson(objectMapper));
+    }
+    requestLogger.request("Get account", account == null ? HttpStatus.NOT_FOUND : response.getStatusCode(),
+      accountId, started);
+    return response;
+  }
+
+  /**
+   * Transfers from and to the account recorded from {@code from} up to, not including,
+   * {@code to}, both ISO-8601 instants, oldest first.
+   */
+  @GetMapping(path = "/{accountId}/transactions")
+  public ResponseEntity<Object> getTransactions(@PathVariable String accountId,
+                                                @RequestParam(required = false) String from,
+                                                @RequestParam(required = false) String to,
+                                                @RequestParam(defaultValue = "100") int limit) {
+    final long started = System.nanoTime();
+    ResponseEntity<Object> response;
+    try {
+      final AccountTransactions transactions = accountsService.getTransactions(accountId,
+        from == null ? Long.MIN_VALUE : Instant.parse(from).toEpochMilli(),
+        to == null ? Long.MAX_VALUE : Instant.parse(to).toEpochMilli(),
+        Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+      response = transactions == null ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
+        : new ResponseEntity<>(transactions, HttpStatus.OK);
+    } catch (DateTimeParseException e) {
+      response = new ResponseEntity<>("Invalid time " + e.getParsedString() + ", expected an ISO-8601 instant.",
+        HttpStatus.BAD_REQUEST);
+    } catch (UnsupportedOperationException e) {
+      response = new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_IMPLEMENTED);
+    }
+    requestLogger.request("Get transactions", response.getStatusCode(), accountId, started);
+    return response;
+  }
+
+  private static ResponseEntity<Object> tooManyTransfers(long waitNanos) {
+    final HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds(waitNanos)));
+    return new ResponseEntity<>("Too many transfers, retry later.", headers, HttpStatus.TOO_MANY_REQUESTS);
+  }
+
+  /**
+   * The wait in whole seconds, rounded up.
+   */
+  private static long retryAfterSeconds(long waitNanos) {
+    return (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+  }
+
+  /**
+   * Whether an {@code If-None-Match} header names the entity tag, weakly compared as RFC 7232
+   * asks for.
+   */
+  static boolean matches(String ifNoneMatch, String eTag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if (candidate.equals("*") || candidate.equals(eTag)) {
+        return true;
+      }
+    }
+    return false;
   }
 
+  /**
+   * Transfers beyond the rate limits are answered with 429 and a {@code Retry-After} before
+   * anything else is checked.
+   */
   @PutMapping(path = "/transfer", consumes = MediaType.APPLICATION_JSON_VALUE)
   public ResponseEntity makeTransfer(@RequestBody @Valid Transfer transfer, Errors errors) {
-    log.info("Making transfer {}", transfer);
+    final long started = System.nanoTime();
+    final long wait = rateLimiter.acquire(transfer.getAccountFromId());
+    final ResponseEntity response = wait > 0 ? tooManyTransfers(wait)
+      : errors.hasErrors() ? ResponseBuilder.getFieldError(errors)
+      : accountsService.transfer(transfer);
+    requestLogger.request("Transfer", response.getStatusCode(), transfer, started);
+    return response;
+  }
 
-    if (errors.hasErrors()) {
-      return ResponseBuilder.getFieldError(errors);
+  /**
+   * {@link #makeTransfer} in the binary encoding of {@link TransferCodec}, answered in kind:
+   * with 200 if the transfer was applied, 400 if it was rejected and 429 with a
+   * {@code Retry-After} beyond the rate limits, the outcome telling which.
+   */
+  @PutMapping(path = "/transfer", consumes = TransferCodec.MEDIA_TYPE)
+  public ResponseEntity<Object> makeBinaryTransfer(@RequestBody byte[] body) {
+    final long started = System.nanoTime();
+    TransferCodec.Request transfer = null;
+    try {
+      transfer = TransferCodec.decode(ByteBuffer.wrap(body));
+    } catch (IllegalArgumentException e) {
+      // Rate limited like a JSON transfer without a source account.
+    }
+    final long wait = rateLimiter.acquire(transfer == null ? null : transfer.getAccountFromId());
+    ResponseEntity<Object> response;
+    if (wait > 0) {
+      final HttpHeaders headers = new HttpHeaders();
+      headers.putAll(BINARY_HEADERS);
+      headers.set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds(wait)));
+      response = new ResponseEntity<>(TransferCodec.encode(TransferCodec.RATE_LIMITED, wait), headers,
+        HttpStatus.TOO_MANY_REQUESTS);
+    } else if (transfer == null) {
+      response = new ResponseEntity<>(TransferCodec.encode(TransferCodec.INVALID_REQUEST, 0), BINARY_HEADERS,
+        HttpStatus.BAD_REQUEST);
+    } else {
+      byte[] result;
+      try {
+        result = TransferCodec.encode(accountsService.transfer(transfer.getAccountFromId(),
+          transfer.getAccountToId(), transfer.getAmount(), transfer.getTransferId()));
+      } catch (TransferIdReusedException e) {
+        result = TransferCodec.encode(TransferCodec.TRANSFER_ID_REUSED, 0);
+      }
+      response = new ResponseEntity<>(result, BINARY_HEADERS,
+        result[0] == TransferCodec.OK ? HttpStatus.OK : HttpStatus.BAD_REQUEST);
     }
+    requestLogger.request("Transfer", response.getStatusCode(), transfer, started);
+    return response;
+  }
 
-    return accountsService.transfer(transfer);
+  @PutMapping(path = "/transfers/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<BatchTransferResult> makeTransfers(@RequestBody List<Transfer> transfers) {
+    final long started = System.nanoTime();
+    final ResponseEntity<BatchTransferResult> response = accountsService.transferAll(transfers);
+    requestLogger.request("Batch transfer", response.getStatusCode(), transfers, started);
+    return response;
+  }
 
+  private ResponseEntity<Object> importAccounts(InputStream body, AccountImporter.Format format) throws IOException {
+    final long started = System.nanoTime();
+    final ImportSummary summary = importer.importAccounts(body, format);
+    requestLogger.request("Import accounts", HttpStatus.OK, summary.getCreated() + " of " + summary.getLines(), started);
+    return new ResponseEntity<>(summary, HttpStatus.OK);
   }
 
 }
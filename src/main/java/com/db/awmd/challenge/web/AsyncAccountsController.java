@@ -0,0 +1,165 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.service.AccountExporter;
+import com.db.awmd.challenge.service.AccountImporter;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.TransferRateLimiter;
+import com.db.awmd.challenge.utility.TransferCodec;
+import com.db.awmd.challenge.validator.FundTransferValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.Errors;
+import org.springframework.web.bind.annotation.*;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The accounts API in {@code async} execution mode. Each request is handed to a small worker
+ * pool and the servlet thread returns to Tomcat straight away, completing the request when the
+ * worker is done (Servlet 3 async processing). Concurrency is then bounded by the connector's
+ * connection limit instead of its thread pool, and the number of requests being worked on at
+ * once stays at the worker count however many connections are open.
+ *
+ * <p>Requests that find the worker queue full are answered with 503 instead of queueing
+ * without bound. The endpoints and responses are those of {@link AccountsController}, which
+ * does the actual work on the worker threads. Imports and exports stream for as long as the
+ * client takes and stay on the servlet thread.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/v1/accounts")
+@ConditionalOnProperty(name = "web.execution-mode", havingValue = "async")
+public class AsyncAccountsController {
+
+  private final AccountsController delegate;
+  private final ThreadPoolExecutor workers;
+
+  @Autowired
+  public AsyncAccountsController(AccountsService accountsService, FundTransferValidator validator,
+                                 RequestLogger requestLogger, AccountImporter importer,
+                                 AccountExporter exporter, ObjectMapper objectMapper,
+                                 TransferRateLimiter rateLimiter,
+                                 @Value("${web.async.workers:0}") int workerCount,
+                                 @Value("${web.async.queue-capacity:65536}") int queueCapacity) {
+    this.delegate = new AccountsController(accountsService, validator, requestLogger, importer, exporter,
+      objectMapper, rateLimiter);
+    final int count = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+    final AtomicInteger threads = new AtomicInteger();
+    this.workers = new ThreadPoolExecutor(count, count, 0, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+      Thread thread = new Thread(runnable, "accounts-worker-" + threads.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    log.info("Accounts API in async mode with {} workers", count);
+  }
+
+  @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+  public CompletableFuture<ResponseEntity<?>> createAccount(@RequestBody @Valid Account account, Errors errors) {
+    return submit(() -> delegate.createAccount(account, errors));
+  }
+
+  /**
+   * Runs on the servlet thread: an import lasts as long as the client takes to upload it and
+   * would hold a worker, of which there is only one per core, for all that time.
+   */
+  @PostMapping(path = "/import", consumes = "application/x-ndjson")
+  public ResponseEntity<Object> importNdjson(InputStream body) throws IOException {
+    return delegate.importNdjson(body);
+  }
+
+  /**
+   * Runs on the servlet thread, as {@link #importNdjson} does.
+   */
+  @PostMapping(path = "/import", consumes = "text/csv")
+  public ResponseEntity<Object> importCsv(InputStream body) throws IOException {
+    return delegate.importCsv(body);
+  }
+
+  @GetMapping
+  public CompletableFuture<ResponseEntity<?>> listAccounts(@RequestParam(required = false) String cursor,
+                                                                @RequestParam(defaultValue = "100") int limit) {
+    return submit(() -> delegate.listAccounts(cursor, limit));
+  }
+
+  /**
+   * Runs on the servlet thread: an export lasts as long as the client takes to read it and
+   * would hold a worker, of which there is only one per core, for all that time.
+   */
+  @GetMapping(path = "/export")
+  public void exportAccounts(HttpServletResponse response) throws IOException {
+    delegate.exportAccounts(response);
+  }
+
+  @GetMapping(path = "/{accountId}")
+  public CompletableFuture<ResponseEntity<?>> getAccount(@PathVariable String accountId,
+                                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                                                                required = false) String ifNoneMatch) {
+    return submit(() -> {
+      try {
+        return delegate.getAccount(accountId, ifNoneMatch);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  @GetMapping(path = "/{accountId}/transactions")
+  public CompletableFuture<ResponseEntity<?>> getTransactions(@PathVariable String accountId,
+                                                                   @RequestParam(required = false) String from,
+                                                                   @RequestParam(required = false) String to,
+                                                                   @RequestParam(defaultValue = "100") int limit) {
+    return submit(() -> delegate.getTransactions(accountId, from, to, limit));
+  }
+
+  @PutMapping(path = "/transfer", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public CompletableFuture<ResponseEntity<?>> makeTransfer(@RequestBody @Valid Transfer transfer, Errors errors) {
+    return submit(() -> delegate.makeTransfer(transfer, errors));
+  }
+
+  @PutMapping(path = "/transfer", consumes = TransferCodec.MEDIA_TYPE)
+  public CompletableFuture<ResponseEntity<?>> makeBinaryTransfer(@RequestBody byte[] body) {
+    return submit(() -> delegate.makeBinaryTransfer(body));
+  }
+
+  @PutMapping(path = "/transfers/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public CompletableFuture<ResponseEntity<?>> makeTransfers(@RequestBody List<Transfer> transfers) {
+    return submit(() -> delegate.makeTransfers(transfers));
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    workers.shutdown();
+  }
+
+  private CompletableFuture<ResponseEntity<?>> submit(Supplier<? extends ResponseEntity<?>> request) {
+    try {
+      return CompletableFuture.<ResponseEntity<?>>supplyAsync(request::get, workers);
+    } catch (RejectedExecutionException e) {
+      return CompletableFuture.completedFuture(
+        new ResponseEntity<>("Server busy, retry later.", HttpStatus.SERVICE_UNAVAILABLE));
+    }
+  }
+}
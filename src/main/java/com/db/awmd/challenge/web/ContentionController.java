@@ -0,0 +1,41 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.AccountContention;
+import com.db.awmd.challenge.repository.AccountsRepositoryOptimistic;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/v1/contention")
+@ConditionalOnProperty(name = "accounts.repository.mode", havingValue = "optimistic")
+public class ContentionController {
+
+  private final AccountsRepositoryOptimistic accountsRepository;
+
+  @Autowired
+  public ContentionController(AccountsRepositoryOptimistic accountsRepository) {
+    this.accountsRepository = accountsRepository;
+  }
+
+  @GetMapping
+  public List<AccountContention> getContendedAccounts() {
+    return accountsRepository.getContendedAccounts();
+  }
+
+  @GetMapping(path = "/{accountId}")
+  public ResponseEntity<AccountContention> getContention(@PathVariable String accountId) {
+    AccountContention contention = accountsRepository.getContention(accountId);
+    if (contention == null) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    return new ResponseEntity<>(contention, HttpStatus.OK);
+  }
+}
@@ -0,0 +1,27 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.GatewayStats;
+import com.db.awmd.challenge.gateway.TransferGateway;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/v1/gateway")
+@ConditionalOnProperty(name = "gateway.enabled", havingValue = "true")
+public class GatewayController {
+
+  private final TransferGateway gateway;
+
+  @Autowired
+  public GatewayController(TransferGateway gateway) {
+    this.gateway = gateway;
+  }
+
+  @GetMapping(path = "/stats")
+  public GatewayStats getStats() {
+    return gateway.getStats();
+  }
+}
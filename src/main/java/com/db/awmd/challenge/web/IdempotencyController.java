@@ -0,0 +1,25 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.IdempotencyStats;
+import com.db.awmd.challenge.service.IdempotencyCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/v1/idempotency")
+public class IdempotencyController {
+
+  private final IdempotencyCache idempotencyCache;
+
+  @Autowired
+  public IdempotencyController(IdempotencyCache idempotencyCache) {
+    this.idempotencyCache = idempotencyCache;
+  }
+
+  @GetMapping(path = "/stats")
+  public IdempotencyStats getStats() {
+    return idempotencyCache.getStats();
+  }
+}
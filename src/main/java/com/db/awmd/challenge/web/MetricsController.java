@@ -0,0 +1,25 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.MetricsStats;
+import com.db.awmd.challenge.service.TransferMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/v1/metrics")
+public class MetricsController {
+
+  private final TransferMetrics metrics;
+
+  @Autowired
+  public MetricsController(TransferMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @GetMapping
+  public MetricsStats getMetrics() {
+    return metrics.getStats();
+  }
+}
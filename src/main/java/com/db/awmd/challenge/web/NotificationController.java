@@ -0,0 +1,25 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.NotificationStats;
+import com.db.awmd.challenge.service.NotificationDispatcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/v1/notifications")
+public class NotificationController {
+
+  private final NotificationDispatcher notificationDispatcher;
+
+  @Autowired
+  public NotificationController(NotificationDispatcher notificationDispatcher) {
+    this.notificationDispatcher = notificationDispatcher;
+  }
+
+  @GetMapping(path = "/stats")
+  public NotificationStats getStats() {
+    return notificationDispatcher.getStats();
+  }
+}
@@ -0,0 +1,52 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.RateLimitStats;
+import com.db.awmd.challenge.domain.RateLimits;
+import com.db.awmd.challenge.service.TransferRateLimiter;
+import com.db.awmd.challenge.utility.ResponseBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.Errors;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+
+/**
+ * Reads and changes the transfer rate limits at runtime.
+ */
+@RestController
+@RequestMapping("/v1/rate-limits")
+public class RateLimitController {
+
+  private final TransferRateLimiter rateLimiter;
+
+  @Autowired
+  public RateLimitController(TransferRateLimiter rateLimiter) {
+    this.rateLimiter = rateLimiter;
+  }
+
+  @GetMapping
+  public RateLimits getLimits() {
+    return rateLimiter.getLimits();
+  }
+
+  @PutMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> setLimits(@RequestBody @Valid RateLimits limits, Errors errors) {
+    if (errors.hasErrors()) {
+      return ResponseBuilder.getFieldError(errors);
+    }
+    rateLimiter.setLimits(limits);
+    return new ResponseEntity<>(limits, HttpStatus.OK);
+  }
+
+  @GetMapping(path = "/stats")
+  public RateLimitStats getStats() {
+    return rateLimiter.getStats();
+  }
+}
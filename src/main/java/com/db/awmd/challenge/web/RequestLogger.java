@@ -0,0 +1,100 @@
+package com.db.awmd.challenge.web;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-request log lines of the accounts API. In {@code all} mode every request is logged, in
+ * {@code sampled} mode one in {@code sample-rate} requests and at most {@code max-per-second}
+ * of them, and in {@code off} mode none. Requests slower than the threshold are always logged
+ * in full, at WARN.
+ *
+ * <p>Nothing is formatted unless the line is actually written, so a skipped request costs a
+ * clock read and a random number.
+ */
+@Slf4j
+@Component
+public class RequestLogger {
+
+  public enum Mode { ALL, SAMPLED, OFF }
+
+  private final Mode mode;
+  private final int sampleRate;
+  private final int maxPerSecond;
+  private final long slowNanos;
+  private final long startedNanos = System.nanoTime();
+
+  /** Current second since startup in the upper half, lines logged in it in the lower half. */
+  private final AtomicLong window = new AtomicLong();
+  private final LongAdder suppressed = new LongAdder();
+
+  @Autowired
+  public RequestLogger(@Value("${logging.requests.mode:sampled}") String mode,
+                       @Value("${logging.requests.sample-rate:100}") int sampleRate,
+                       @Value("${logging.requests.max-per-second:100}") int maxPerSecond,
+                       @Value("${logging.requests.slow-threshold-ms:50}") long slowThresholdMillis) {
+    this.mode = Mode.valueOf(mode.trim().toUpperCase());
+    this.sampleRate = Math.max(1, sampleRate);
+    this.maxPerSecond = maxPerSecond;
+    this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+  }
+
+  /**
+   * Logs a handled request if the mode lets it through or it was slow.
+   *
+   * @param outcome     status or result of the request.
+   * @param subject     the request itself, only turned into a string if logged.
+   * @param startedNanos {@link System#nanoTime()} reading taken when the request arrived.
+   */
+  public void request(String operation, Object outcome, Object subject, long startedNanos) {
+    final long now = System.nanoTime();
+    final long elapsedNanos = now - startedNanos;
+    if (elapsedNanos >= slowNanos) {
+      if (log.isWarnEnabled()) {
+        log.warn("Slow {} {} in {} us: {}", operation, outcome, elapsedNanos / 1000, subject);
+      }
+      return;
+    }
+    if (mode == Mode.OFF || !log.isInfoEnabled()) {
+      return;
+    }
+    if (mode == Mode.SAMPLED
+      && (ThreadLocalRandom.current().nextInt(sampleRate) != 0 || !acquire(now))) {
+      suppressed.increment();
+      return;
+    }
+    log.info("{} {} in {} us: {}", operation, outcome, elapsedNanos / 1000, subject);
+  }
+
+  /**
+   * Requests that were not logged because of sampling or the rate limit.
+   */
+  public long getSuppressed() {
+    return suppressed.sum();
+  }
+
+  private boolean acquire(long now) {
+    final long second = (now - startedNanos) / 1_000_000_000L;
+    while (true) {
+      final long current = window.get();
+      final long next;
+      if (second > current >>> 32) {
+        next = second << 32 | 1;
+      } else if ((int) current < maxPerSecond) {
+        next = current + 1;
+      } else {
+        return false;
+      }
+      if (window.compareAndSet(current, next)) {
+        return true;
+      }
+    }
+  }
+}
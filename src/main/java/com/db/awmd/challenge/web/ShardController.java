@@ -0,0 +1,29 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.ShardStats;
+import com.db.awmd.challenge.repository.AccountsRepositorySharded;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/v1/shards")
+@ConditionalOnProperty(name = "accounts.repository.mode", havingValue = "sharded")
+public class ShardController {
+
+  private final AccountsRepositorySharded accountsRepository;
+
+  @Autowired
+  public ShardController(AccountsRepositorySharded accountsRepository) {
+    this.accountsRepository = accountsRepository;
+  }
+
+  @GetMapping
+  public List<ShardStats> getShardStats() {
+    return accountsRepository.getShardStats();
+  }
+}
@@ -0,0 +1,115 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.AccountBalance;
+import com.db.awmd.challenge.repository.AccountIndex;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountIndexTest {
+
+  @Test
+  public void handsOutDenseHandlesAndFindsAccountsAcrossRehashes() {
+    AccountIndex<Indexed> index = new AccountIndex<>(4);
+    for (int i = 0; i < 200_000; i++) {
+      final String accountId = "account-" + i;
+      assertThat(index.add(accountId, handle -> new Indexed(accountId, handle))).isNotNull();
+    }
+
+    assertThat(index.size()).isEqualTo(200_000);
+    assertThat(index.handles()).isEqualTo(200_000);
+    for (int i = 0; i < 200_000; i += 997) {
+      assertThat(index.get("account-" + i).getBalance()).isEqualTo(i);
+    }
+    assertThat(index.get("account-200000")).isNull();
+    assertThat(index.get(null)).isNull();
+
+    Set<String> walked = new HashSet<>();
+    for (Indexed account : index) {
+      walked.add(account.getAccountId());
+    }
+    assertThat(walked).hasSize(200_000);
+  }
+
+  @Test
+  public void rejectsTakenIdsAndNeverReusesHandles() {
+    AccountIndex<Indexed> index = new AccountIndex<>();
+    Indexed first = index.add("Id-1", handle -> new Indexed("Id-1", handle));
+
+    assertThat(index.add("Id-1", handle -> new Indexed("Id-1", handle))).isNull();
+    assertThat(index.remove(new Indexed("Id-1", 0))).isFalse();
+    assertThat(index.remove(first)).isTrue();
+    assertThat(index.get("Id-1")).isNull();
+    assertThat(index.size()).isZero();
+    assertThat(index).isEmpty();
+
+    Indexed second = index.add("Id-1", handle -> new Indexed("Id-1", handle));
+    assertThat(second.getHandle()).isEqualTo(1);
+    assertThat(index.get("Id-1")).isSameAs(second);
+    assertThat(index).containsExactly(second);
+
+    index.clear();
+    assertThat(index.get("Id-1")).isNull();
+    assertThat(index.size()).isZero();
+    assertThat(index.handles()).isEqualTo(2);
+    assertThat(index.add("Id-2", handle -> new Indexed("Id-2", handle)).getHandle()).isEqualTo(2);
+  }
+
+  @Test
+  public void lookupsRacingRehashesFindEveryPublishedAccount() throws Exception {
+    AccountIndex<Indexed> index = new AccountIndex<>(4);
+    index.add("Id-0", handle -> new Indexed("Id-0", handle));
+    AtomicInteger misses = new AtomicInteger();
+    AtomicBoolean adding = new AtomicBoolean(true);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<?>> readers = new ArrayList<>();
+    for (int r = 0; r < 4; r++) {
+      readers.add(executor.submit(() -> {
+        while (adding.get()) {
+          final int published = index.handles();
+          final int handle = ThreadLocalRandom.current().nextInt(published);
+          if (index.get("Id-" + handle) == null) {
+            misses.incrementAndGet();
+          }
+        }
+      }));
+    }
+    for (int i = 1; i < 500_000; i++) {
+      final String accountId = "Id-" + i;
+      index.add(accountId, handle -> new Indexed(accountId, handle));
+    }
+    adding.set(false);
+    for (Future<?> reader : readers) {
+      reader.get();
+    }
+    executor.shutdown();
+
+    assertThat(misses.get()).isZero();
+  }
+
+  private static final class Indexed extends AccountBalance implements AccountIndex.Entry {
+
+    private final int handle;
+
+    private Indexed(String accountId, int handle) {
+      super(accountId, handle);
+      this.handle = handle;
+    }
+
+    @Override
+    public int getHandle() {
+      return handle;
+    }
+  }
+}
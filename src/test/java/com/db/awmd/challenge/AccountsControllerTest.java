@@ -3,6 +3,8 @@ package com.db.awmd.challenge;
 import com.db.awmd.challenge.domain.Account;
 import com.db.awmd.challenge.domain.Transfer;
 import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.TransferMetrics;
+import com.db.awmd.challenge.utility.TransferCodec;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
@@ -17,6 +19,8 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.context.WebApplicationContext;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -26,7 +30,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = "transfers.ledger.enabled=true")
 @WebAppConfiguration
 public class AccountsControllerTest {
 
@@ -35,6 +39,9 @@ public class AccountsControllerTest {
   @Autowired
   private AccountsService accountsService;
 
+  @Autowired
+  private TransferMetrics metrics;
+
   @Autowired
   private WebApplicationContext webApplicationContext;
 
@@ -43,7 +50,7 @@ public class AccountsControllerTest {
     this.mockMvc = webAppContextSetup(this.webApplicationContext).build();
 
     // Reset the existing accounts before each test.
-    accountsService.getAccountsRepository().clearAccounts();
+    accountsService.clearAccounts();
   }
 
   @Test
@@ -106,6 +113,58 @@ public class AccountsControllerTest {
         content().string("{\"accountId\":\"" + uniqueAccountId + "\",\"balance\":123.45}"));
   }
 
+  @Test
+  public void getAccountIsNotModifiedUntilBalanceChanges() throws Exception {
+    Account fromAccount = createAccountForTransfer(new BigDecimal("100.00"));
+    Account toAccount = createAccountForTransfer(new BigDecimal("0.00"));
+    String eTag = this.mockMvc.perform(get("/v1/accounts/" + fromAccount.getAccountId()))
+      .andExpect(status().isOk())
+      .andExpect(header().string("ETag", notNullValue()))
+      .andReturn().getResponse().getHeader("ETag");
+
+    this.mockMvc.perform(get("/v1/accounts/" + fromAccount.getAccountId()).header("If-None-Match", eTag))
+      .andExpect(status().isNotModified())
+      .andExpect(header().string("ETag", eTag))
+      .andExpect(content().string(""));
+    assertThat(accountsService.getAccountSnapshot(fromAccount.getAccountId()))
+      .isSameAs(accountsService.getAccountSnapshot(fromAccount.getAccountId()));
+
+    accountsService.transfer(new Transfer(fromAccount.getAccountId(), toAccount.getAccountId(), new BigDecimal("0.01")));
+    this.mockMvc.perform(get("/v1/accounts/" + fromAccount.getAccountId()).header("If-None-Match", eTag))
+      .andExpect(status().isOk())
+      .andExpect(header().string("ETag", not(eTag)))
+      .andExpect(content().string("{\"accountId\":\"" + fromAccount.getAccountId() + "\",\"balance\":99.99}"));
+  }
+
+  @Test
+  public void transfersBeyondTheAccountLimitAreRejectedWith429() throws Exception {
+    Account fromAccount = createAccountForTransfer(new BigDecimal("100.00"));
+    Account toAccount = createAccountForTransfer(new BigDecimal("0.00"));
+    String transfer = new ObjectMapper().writeValueAsString(
+      new Transfer(fromAccount.getAccountId(), toAccount.getAccountId(), new BigDecimal("1.00")));
+    this.mockMvc.perform(put("/v1/rate-limits").contentType(MediaType.APPLICATION_JSON)
+      .content("{\"globalPerSecond\":0,\"globalBurst\":1,\"accountPerSecond\":1,\"accountBurst\":-1}"))
+      .andExpect(status().isBadRequest());
+    this.mockMvc.perform(put("/v1/rate-limits").contentType(MediaType.APPLICATION_JSON)
+      .content("{\"globalPerSecond\":0,\"globalBurst\":1,\"accountPerSecond\":1,\"accountBurst\":2}"))
+      .andExpect(status().isOk());
+    try {
+      for (int i = 0; i < 2; i++) {
+        this.mockMvc.perform(put("/v1/accounts/transfer").contentType(MediaType.APPLICATION_JSON).content(transfer))
+          .andExpect(status().isOk());
+      }
+      this.mockMvc.perform(put("/v1/accounts/transfer").contentType(MediaType.APPLICATION_JSON).content(transfer))
+        .andExpect(status().isTooManyRequests())
+        .andExpect(header().string("Retry-After", "1"));
+      this.mockMvc.perform(get("/v1/rate-limits/stats"))
+        .andExpect(jsonPath("$.accountRejections").value(greaterThanOrEqualTo(1)));
+    } finally {
+      this.mockMvc.perform(put("/v1/rate-limits").contentType(MediaType.APPLICATION_JSON)
+        .content("{\"globalPerSecond\":0,\"globalBurst\":1000,\"accountPerSecond\":0,\"accountBurst\":100}"));
+    }
+    assertThat(accountsService.getAccount(fromAccount.getAccountId()).getBalance()).isEqualTo("98.00");
+  }
+
   @Test
   public void transferAmountSuccessfully() throws Exception {
     Account fromAccount = createAccountForTransfer(new BigDecimal("5000.00"));
@@ -117,8 +176,34 @@ public class AccountsControllerTest {
               .content(new ObjectMapper().writeValueAsString(request)))
               .andExpect(status().isOk());
 
-    assertThat(fromAccount.getBalance()).isEqualTo("2500.00");
-    assertThat(toAccount.getBalance()).isEqualTo("5000.00");
+    assertThat(accountsService.getAccount(fromAccount.getAccountId()).getBalance()).isEqualTo("2500.00");
+    assertThat(accountsService.getAccount(toAccount.getAccountId()).getBalance()).isEqualTo("5000.00");
+  }
+
+  @Test
+  public void retriedTransferWithTransferIdIsAppliedOnce() throws Exception {
+    Account fromAccount = createAccountForTransfer(new BigDecimal("5000.00"));
+    Account toAccount = createAccountForTransfer(new BigDecimal("2500.00"));
+    String transferId = "retry-" + System.nanoTime();
+    Transfer request = new Transfer(fromAccount.getAccountId(), toAccount.getAccountId(), new BigDecimal("2500.00"),
+            transferId);
+
+    for (int i = 0; i < 2; i++) {
+      this.mockMvc.perform(put("/v1/accounts/transfer")
+              .contentType(MediaType.APPLICATION_JSON)
+              .content(new ObjectMapper().writeValueAsString(request)))
+              .andExpect(status().isOk());
+    }
+    assertThat(accountsService.getAccount(fromAccount.getAccountId()).getBalance()).isEqualTo("2500.00");
+    assertThat(accountsService.getAccount(toAccount.getAccountId()).getBalance()).isEqualTo("5000.00");
+
+    Transfer reused = new Transfer(fromAccount.getAccountId(), toAccount.getAccountId(), new BigDecimal("1.00"),
+            transferId);
+    this.mockMvc.perform(put("/v1/accounts/transfer")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(new ObjectMapper().writeValueAsString(reused)))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.errors[*].code", contains("transferId")));
   }
 
   @Test
@@ -305,6 +390,272 @@ public class AccountsControllerTest {
             .andExpect(jsonPath("$.errors[*].code", contains("Fund")));
   }
 
+  @Test
+  public void binaryTransferIsAnsweredInBinary() throws Exception {
+    Account fromAccount = createAccountForTransfer(new BigDecimal("50.00"));
+    Account toAccount = createAccountForTransfer(new BigDecimal("0.00"));
+
+    this.mockMvc.perform(put("/v1/accounts/transfer").contentType(TransferCodec.MEDIA_TYPE)
+      .content(binaryTransfer(fromAccount.getAccountId(), toAccount.getAccountId(), 2000, null)))
+      .andExpect(status().isOk())
+      .andExpect(content().contentType(TransferCodec.MEDIA_TYPE))
+      .andExpect(content().bytes(new byte[] {TransferCodec.OK, 0, 0, 0, 0, 0, 0, 0, 0}));
+    assertThat(accountsService.getAccount(fromAccount.getAccountId()).getBalance()).isEqualTo("30.00");
+    assertThat(accountsService.getAccount(toAccount.getAccountId()).getBalance()).isEqualTo("20.00");
+
+    // The available balance, 30.00, is in the response.
+    this.mockMvc.perform(put("/v1/accounts/transfer").contentType(TransferCodec.MEDIA_TYPE)
+      .content(binaryTransfer(fromAccount.getAccountId(), toAccount.getAccountId(), 5000, null)))
+      .andExpect(status().isBadRequest())
+      .andExpect(content().bytes(new byte[] {TransferCodec.INSUFFICIENT_FUNDS, 0, 0, 0, 0, 0, 0, 0x0B, (byte) 0xB8}));
+    this.mockMvc.perform(put("/v1/accounts/transfer").contentType(TransferCodec.MEDIA_TYPE)
+      .content(binaryTransfer(fromAccount.getAccountId(), "Id-missing", 100, null)))
+      .andExpect(status().isBadRequest())
+      .andExpect(content().bytes(new byte[] {TransferCodec.ACCOUNT_NOT_FOUND, 0, 0, 0, 0, 0, 0, 0, 0}));
+  }
+
+  @Test
+  public void binaryTransferIsValidatedLikeJson() throws Exception {
+    Account fromAccount = createAccountForTransfer(new BigDecimal("50.00"));
+    Account toAccount = createAccountForTransfer(new BigDecimal("0.00"));
+    byte[] invalid = {TransferCodec.INVALID_REQUEST, 0, 0, 0, 0, 0, 0, 0, 0};
+
+    // Less than 1.00, as the JSON endpoint's @Min(1).
+    this.mockMvc.perform(put("/v1/accounts/transfer").contentType(TransferCodec.MEDIA_TYPE)
+      .content(binaryTransfer(fromAccount.getAccountId(), toAccount.getAccountId(), 99, null)))
+      .andExpect(status().isBadRequest())
+      .andExpect(content().bytes(invalid));
+    this.mockMvc.perform(put("/v1/accounts/transfer").contentType(TransferCodec.MEDIA_TYPE)
+      .content(binaryTransfer("", toAccount.getAccountId(), 100, null)))
+      .andExpect(status().isBadRequest())
+      .andExpect(content().bytes(invalid));
+    byte[] truncated = binaryTransfer(fromAccount.getAccountId(), toAccount.getAccountId(), 100, null);
+    this.mockMvc.perform(put("/v1/accounts/transfer").contentType(TransferCodec.MEDIA_TYPE)
+      .content(Arrays.copyOf(truncated, truncated.length - 3)))
+      .andExpect(status().isBadRequest())
+      .andExpect(content().bytes(invalid));
+    assertThat(accountsService.getAccount(fromAccount.getAccountId()).getBalance()).isEqualTo("50.00");
+  }
+
+  @Test
+  public void retriedBinaryTransferWithTransferIdIsAppliedOnce() throws Exception {
+    Account fromAccount = createAccountForTransfer(new BigDecimal("50.00"));
+    Account toAccount = createAccountForTransfer(new BigDecimal("0.00"));
+    String transferId = "binary-" + System.nanoTime();
+
+    for (int i = 0; i < 2; i++) {
+      this.mockMvc.perform(put("/v1/accounts/transfer").contentType(TransferCodec.MEDIA_TYPE)
+        .content(binaryTransfer(fromAccount.getAccountId(), toAccount.getAccountId(), 1000, transferId)))
+        .andExpect(status().isOk());
+    }
+    assertThat(accountsService.getAccount(fromAccount.getAccountId()).getBalance()).isEqualTo("40.00");
+
+    this.mockMvc.perform(put("/v1/accounts/transfer").contentType(TransferCodec.MEDIA_TYPE)
+      .content(binaryTransfer(fromAccount.getAccountId(), toAccount.getAccountId(), 100, transferId)))
+      .andExpect(status().isBadRequest())
+      .andExpect(content().bytes(new byte[] {TransferCodec.TRANSFER_ID_REUSED, 0, 0, 0, 0, 0, 0, 0, 0}));
+  }
+
+  @Test
+  public void batchTransferAppliesAllTransfers() throws Exception {
+    Account first = createAccountForTransfer(new BigDecimal("1000.00"));
+    Account second = createAccountForTransfer(new BigDecimal("500.00"));
+    Transfer[] request = {
+            new Transfer(first.getAccountId(), second.getAccountId(), new BigDecimal("1000.00")),
+            new Transfer(second.getAccountId(), first.getAccountId(), new BigDecimal("1200.00"))
+    };
+
+    this.mockMvc.perform(put("/v1/accounts/transfers/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(new ObjectMapper().writeValueAsString(request)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.applied").value(true))
+            .andExpect(jsonPath("$.results", hasSize(2)));
+
+    assertThat(accountsService.getAccount(first.getAccountId()).getBalance()).isEqualTo("1200.00");
+    assertThat(accountsService.getAccount(second.getAccountId()).getBalance()).isEqualTo("300.00");
+  }
+
+  @Test
+  public void batchTransferAppliesNothingWhenOneTransferFails() throws Exception {
+    Account first = createAccountForTransfer(new BigDecimal("1000.00"));
+    Account second = createAccountForTransfer(new BigDecimal("500.00"));
+    Transfer[] request = {
+            new Transfer(first.getAccountId(), second.getAccountId(), new BigDecimal("100.00")),
+            new Transfer(second.getAccountId(), first.getAccountId(), new BigDecimal("5000.00"))
+    };
+
+    this.mockMvc.perform(put("/v1/accounts/transfers/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(new ObjectMapper().writeValueAsString(request)))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.applied").value(false))
+            .andExpect(jsonPath("$.results[0].errors", hasSize(0)))
+            .andExpect(jsonPath("$.results[1].errors[*].code", contains("Fund")));
+
+    assertThat(accountsService.getAccount(first.getAccountId()).getBalance()).isEqualTo("1000.00");
+    assertThat(accountsService.getAccount(second.getAccountId()).getBalance()).isEqualTo("500.00");
+  }
+
+  @Test
+  public void batchTransferReportsFieldErrorsPerTransfer() throws Exception {
+    Account first = createAccountForTransfer(new BigDecimal("1000.00"));
+    Account second = createAccountForTransfer(new BigDecimal("500.00"));
+    Transfer[] request = {
+            new Transfer(first.getAccountId(), second.getAccountId(), new BigDecimal("100.00")),
+            new Transfer(second.getAccountId(), "", new BigDecimal("100.00"))
+    };
+
+    this.mockMvc.perform(put("/v1/accounts/transfers/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(new ObjectMapper().writeValueAsString(request)))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.results[0].errors", hasSize(0)))
+            .andExpect(jsonPath("$.results[1].errors[*].code", contains("accountToId")));
+
+    assertThat(accountsService.getAccount(first.getAccountId()).getBalance()).isEqualTo("1000.00");
+  }
+
+  @Test
+  public void metricsCountTransfersAndRejectionReasons() throws Exception {
+    Account first = createAccountForTransfer(new BigDecimal("1000.00"));
+    Account second = createAccountForTransfer(new BigDecimal("500.00"));
+    long transfers = metrics.getStats().getLatencies().get("transfer").getCount();
+    long insufficient = metrics.getStats().getRejections().get("INSUFFICIENT_FUNDS");
+
+    this.mockMvc.perform(put("/v1/accounts/transfer").contentType(MediaType.APPLICATION_JSON)
+      .content(new ObjectMapper().writeValueAsString(
+        new Transfer(first.getAccountId(), second.getAccountId(), new BigDecimal("100.00")))))
+      .andExpect(status().isOk());
+    this.mockMvc.perform(put("/v1/accounts/transfer").contentType(MediaType.APPLICATION_JSON)
+      .content(new ObjectMapper().writeValueAsString(
+        new Transfer(first.getAccountId(), second.getAccountId(), new BigDecimal("5000.00")))))
+      .andExpect(status().isBadRequest());
+
+    this.mockMvc.perform(get("/v1/metrics"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.accounts").value(2))
+      .andExpect(jsonPath("$.rejections.INSUFFICIENT_FUNDS").value((int) insufficient + 1))
+      .andExpect(jsonPath("$.latencies.transfer.count").value((int) transfers + 2))
+      .andExpect(jsonPath("$.latencies.validate.count", greaterThanOrEqualTo(2)))
+      .andExpect(jsonPath("$.latencies.notify.count", greaterThanOrEqualTo(1)));
+  }
+
+  @Test
+  public void importNdjsonCreatesValidLinesAndReportsTheRest() throws Exception {
+    this.accountsService.createAccount(new Account("Id-1", new BigDecimal("1.00")));
+    String body = "{\"accountId\":\"Id-1\",\"balance\":10}\n"
+      + "{\"accountId\":\"Id-2\",\"balance\":20.50,\"currency\":\"EUR\"}\n"
+      + "{\"accountId\":\"Id-3\",\"balance\":-1}\n"
+      + "{\"balance\":5}\n"
+      + "{\"accountId\":\"Id-2\",\"balance\":\"30\"}\n"
+      + "{\"accountId\":\"Id-4\",\"balance\":\"40\"}\n";
+
+    this.mockMvc.perform(post("/v1/accounts/import").contentType("application/x-ndjson").content(body))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.lines").value(6))
+      .andExpect(jsonPath("$.created").value(2))
+      .andExpect(jsonPath("$.rejected").value(4))
+      .andExpect(jsonPath("$.errors[*].line", containsInAnyOrder(1, 3, 4, 5)))
+      .andExpect(jsonPath("$.errors[*].code", containsInAnyOrder("accountId", "balance", "accountId", "accountId")));
+
+    assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("1");
+    assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo("20.50");
+    assertThat(accountsService.getAccount("Id-4").getBalance()).isEqualByComparingTo("40");
+  }
+
+  @Test
+  public void importNdjsonStopsAtMalformedJson() throws Exception {
+    String body = "{\"accountId\":\"Id-1\",\"balance\":10}\n{\"accountId\":\"Id-2\",\n{\"accountId\":\"Id-3\",\"balance\":30}\n";
+
+    this.mockMvc.perform(post("/v1/accounts/import").contentType("application/x-ndjson").content(body))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.created").value(1))
+      .andExpect(jsonPath("$.errors[*].code", contains("line")));
+
+    assertThat(accountsService.getAccount("Id-1")).isNotNull();
+    assertThat(accountsService.getAccount("Id-3")).isNull();
+  }
+
+  @Test
+  public void importCsvSkipsHeaderAndReportsBadLines() throws Exception {
+    String body = "accountId,balance\nId-1,10.00\n\nId-2\nId-3,1.005\n\"Id,4\",7\nId-1,3\n";
+
+    this.mockMvc.perform(post("/v1/accounts/import").contentType("text/csv").content(body))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.lines").value(5))
+      .andExpect(jsonPath("$.created").value(2))
+      .andExpect(jsonPath("$.errors[*].line", containsInAnyOrder(4, 5, 7)))
+      .andExpect(jsonPath("$.errorsTruncated").value(false));
+
+    assertThat(accountsService.getAccount("Id,4").getBalance()).isEqualByComparingTo("7");
+  }
+
+  @Test
+  public void listAccountsPagesInCreationOrder() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      this.accountsService.createAccount(new Account("Id-" + i, new BigDecimal(i)));
+    }
+
+    MvcResult first = this.mockMvc.perform(get("/v1/accounts").param("limit", "3"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.accounts[*].accountId", contains("Id-0", "Id-1", "Id-2")))
+      .andExpect(jsonPath("$.nextCursor", notNullValue()))
+      .andReturn();
+    String cursor = com.jayway.jsonpath.JsonPath.read(first.getResponse().getContentAsString(), "$.nextCursor");
+    this.accountsService.createAccount(new Account("Id-5", BigDecimal.TEN));
+
+    this.mockMvc.perform(get("/v1/accounts").param("cursor", cursor).param("limit", "3"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.accounts[*].accountId", contains("Id-3", "Id-4", "Id-5")));
+    this.mockMvc.perform(get("/v1/accounts").param("cursor", "not-a-cursor"))
+      .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void exportAccountsStreamsNdjson() throws Exception {
+    this.accountsService.createAccount(new Account("Id-1", new BigDecimal("10.50")));
+    this.accountsService.createAccount(new Account("Id-2", new BigDecimal("0")));
+
+    String body = this.mockMvc.perform(get("/v1/accounts/export"))
+      .andExpect(status().isOk())
+      .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+      .andReturn().getResponse().getContentAsString();
+
+    assertThat(body.split("\n")).containsExactlyInAnyOrder(
+      "{\"accountId\":\"Id-1\",\"balance\":10.50}", "{\"accountId\":\"Id-2\",\"balance\":0.00}");
+  }
+
+  @Test
+  public void transactionsListAppliedTransfersOfTheAccount() throws Exception {
+    Account first = createAccountForTransfer(new BigDecimal("1000.00"));
+    Account second = createAccountForTransfer(new BigDecimal("500.00"));
+    String before = java.time.Instant.now().minusSeconds(1).toString();
+    accountsService.transfer(new Transfer(first.getAccountId(), second.getAccountId(), new BigDecimal("100.00")));
+    accountsService.transfer(new Transfer(second.getAccountId(), first.getAccountId(), new BigDecimal("5000.00")));
+    accountsService.transfer(new Transfer(second.getAccountId(), first.getAccountId(), new BigDecimal("25.50")));
+
+    this.mockMvc.perform(get("/v1/accounts/" + first.getAccountId() + "/transactions").param("from", before))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.transactions", hasSize(2)))
+      .andExpect(jsonPath("$.transactions[*].amount", contains(100.00, 25.50)))
+      .andExpect(jsonPath("$.transactions[0].accountToId").value(second.getAccountId()))
+      .andExpect(jsonPath("$.truncated").value(false));
+    this.mockMvc.perform(get("/v1/accounts/" + first.getAccountId() + "/transactions").param("to", before))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.transactions", hasSize(0)));
+    this.mockMvc.perform(get("/v1/accounts/" + first.getAccountId() + "/transactions").param("from", "yesterday"))
+      .andExpect(status().isBadRequest());
+    this.mockMvc.perform(get("/v1/accounts/no-such-account/transactions"))
+      .andExpect(status().isNotFound());
+  }
+
+  private static byte[] binaryTransfer(String accountFromId, String accountToId, long amount, String transferId) {
+    ByteBuffer buffer = ByteBuffer.allocate(512);
+    TransferCodec.encode(buffer, accountFromId, accountToId, amount, transferId);
+    return Arrays.copyOf(buffer.array(), buffer.position());
+  }
+
   private Account createAccountForTransfer(BigDecimal amount) {
     String uniqueAccountId = Long.toString(System.currentTimeMillis() + amount.intValue());
     Account account = new Account(uniqueAccountId, amount);
@@ -0,0 +1,96 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountPage;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.repository.AccountsRepositoryOffHeap;
+import com.db.awmd.challenge.validator.FundTransferValidator;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class AccountsRepositoryOffHeapTest {
+
+  @Autowired
+  private FundTransferValidator validator;
+
+  @Test
+  public void findsAccountsAcrossIdChunksAndNonAsciiIds() {
+    AccountsRepositoryOffHeap repository = new AccountsRepositoryOffHeap(300_000, 16);
+    for (int i = 0; i < 300_000; i++) {
+      repository.createAccount(new Account("account-" + i + "-\u00e9\u20ac", BigDecimal.valueOf(i)));
+    }
+
+    assertThat(repository.size()).isEqualTo(300_000);
+    assertThat(repository.getAccount("account-0-\u00e9\u20ac").getBalance()).isEqualTo("0.00");
+    assertThat(repository.getAccount("account-299999-\u00e9\u20ac").getBalance()).isEqualTo("299999.00");
+    assertThat(repository.getAccount("account-299999-\u00e9")).isNull();
+  }
+
+  @Test
+  public void rejectsDuplicatesAndAccountsBeyondCapacity() {
+    AccountsRepositoryOffHeap repository = new AccountsRepositoryOffHeap(2, 4);
+    repository.createAccount(new Account("Id-1", new BigDecimal("1.00")));
+
+    try {
+      repository.createAccount(new Account("Id-1", new BigDecimal("2.00")));
+      fail("Should have failed when adding duplicate account");
+    } catch (DuplicateAccountIdException ex) {
+      assertThat(ex.getMessage()).isEqualTo("Account id Id-1 already exists!");
+    }
+
+    repository.createAccount(new Account("Id-2", new BigDecimal("1.00")));
+    try {
+      repository.createAccount(new Account("Id-3", new BigDecimal("1.00")));
+      fail("Should have failed when the store is full");
+    } catch (IllegalStateException ex) {
+      assertThat(ex.getMessage()).contains("full");
+    }
+
+    repository.clearAccounts();
+    assertThat(repository.getAccount("Id-1")).isNull();
+    repository.createAccount(new Account("Id-3", new BigDecimal("3.00")));
+    assertThat(repository.getAccount("Id-3").getBalance()).isEqualTo("3.00");
+  }
+
+  @Test
+  public void transfersAndBatchesUpdateBalances() {
+    AccountsRepositoryOffHeap repository = new AccountsRepositoryOffHeap(16, 1);
+    repository.createAccount(new Account("Id-1", new BigDecimal("100.00")));
+    repository.createAccount(new Account("Id-2", new BigDecimal("50.00")));
+
+    assertThat(repository.transfer("Id-1", "Id-2", 2_550, validator).getErrors()).isEmpty();
+    assertThat(repository.transfer("Id-2", "Id-1", 1_000_000, validator).getErrors()).hasSize(1);
+    assertThat(repository.transferAll(Arrays.asList(new Transfer("Id-2", "Id-1", new BigDecimal("10.00")),
+      new Transfer("Id-1", "Id-3", new BigDecimal("0.01"))), validator).get(1).getErrors()).hasSize(1);
+
+    assertThat(repository.getAccount("Id-1").getBalance()).isEqualTo("74.50");
+    assertThat(repository.getAccount("Id-2").getBalance()).isEqualTo("75.50");
+  }
+
+  @Test
+  public void listsAccountsPageByPageInCreationOrder() {
+    AccountsRepositoryOffHeap repository = new AccountsRepositoryOffHeap(16, 4);
+    for (int i = 0; i < 5; i++) {
+      repository.createAccount(new Account("Id-" + i + "-\u00e9", BigDecimal.valueOf(i)));
+    }
+
+    AccountPage first = repository.listAccounts(null, 3);
+    assertThat(first.getAccounts()).extracting("accountId").containsExactly("Id-0-\u00e9", "Id-1-\u00e9", "Id-2-\u00e9");
+    AccountPage second = repository.listAccounts(first.getNextCursor(), 3);
+    assertThat(second.getAccounts()).extracting("accountId").containsExactly("Id-3-\u00e9", "Id-4-\u00e9");
+    assertThat(second.getAccounts().get(1).getBalance()).isEqualTo("4.00");
+    assertThat(second.getNextCursor()).isNull();
+  }
+}
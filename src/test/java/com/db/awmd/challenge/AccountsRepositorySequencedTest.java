@@ -0,0 +1,114 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountPage;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.repository.AccountsRepositorySequenced;
+import com.db.awmd.challenge.repository.TransferJournal;
+import com.db.awmd.challenge.validator.FundTransferValidator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class AccountsRepositorySequencedTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Autowired
+  private FundTransferValidator validator;
+
+  @Test
+  public void appliesOperationsInOrderAndWrapsTheRing() throws Exception {
+    AccountsRepositorySequenced repository = open(null, 4);
+    try {
+      repository.createAccount(new Account("Id-1", new BigDecimal("100.00")));
+      repository.createAccount(new Account("Id-2", new BigDecimal("0.00")));
+      try {
+        repository.createAccount(new Account("Id-1", new BigDecimal("1.00")));
+        fail("Should have failed when adding duplicate account");
+      } catch (DuplicateAccountIdException e) {
+        assertThat(e.getMessage()).isEqualTo("Account id Id-1 already exists!");
+      }
+
+      // Many more operations than ring slots.
+      for (int i = 0; i < 100; i++) {
+        assertThat(repository.transfer("Id-1", "Id-2", 100, validator).isAccepted()).isTrue();
+      }
+      assertThat(repository.transfer("Id-1", "Id-2", 1, validator).isAccepted()).isFalse();
+      assertThat(repository.transferAll(Arrays.asList(new Transfer("Id-2", "Id-1", new BigDecimal("60.00")),
+        new Transfer("Id-1", "Id-2", new BigDecimal("70.00"))), validator).get(1).isAccepted()).isFalse();
+
+      assertThat(repository.getAccount("Id-1").getBalance()).isEqualTo("0.00");
+      assertThat(repository.getAccount("Id-2").getBalance()).isEqualTo("100.00");
+      assertThat(repository.getAccount("Id-3")).isNull();
+      assertThat(repository.size()).isEqualTo(2);
+    } finally {
+      repository.shutdown();
+    }
+  }
+
+  @Test
+  public void replaysTheJournalItWroteInSequence() throws Exception {
+    Path path = folder.newFile().toPath();
+    path.toFile().delete();
+
+    try (TransferJournal journal = new TransferJournal(path, TransferJournal.Durability.GROUP, 100)) {
+      AccountsRepositorySequenced repository = open(journal, 1024);
+      repository.createAccount(new Account("Id-1", new BigDecimal("100.00")));
+      repository.createAccount(new Account("Id-2", new BigDecimal("50.00")));
+      repository.transfer("Id-1", "Id-2", 2_550, validator);
+      repository.transferAll(Arrays.asList(new Transfer("Id-2", "Id-1", new BigDecimal("10.00")),
+        new Transfer("Id-1", "Id-2", new BigDecimal("0.01"))), validator);
+      repository.shutdown();
+    }
+
+    try (TransferJournal journal = new TransferJournal(path, TransferJournal.Durability.GROUP, 100)) {
+      AccountsRepositorySequenced repository = open(journal, 1024);
+      assertThat(repository.getAccount("Id-1").getBalance()).isEqualTo("84.49");
+      assertThat(repository.getAccount("Id-2").getBalance()).isEqualTo("65.51");
+      repository.shutdown();
+    }
+  }
+
+  @Test
+  public void listsAccountsInIdOrder() throws Exception {
+    AccountsRepositorySequenced repository = open(null, 4);
+    try {
+      repository.createAccount(new Account("Id-2", new BigDecimal("2.00")));
+      repository.createAccount(new Account("Id-1", new BigDecimal("1.00")));
+      repository.createAccount(new Account("Id-3", new BigDecimal("3.00")));
+
+      AccountPage first = repository.listAccounts(null, 2);
+      assertThat(first.getAccounts()).extracting("accountId").containsExactly("Id-1", "Id-2");
+      AccountPage second = repository.listAccounts(first.getNextCursor(), 2);
+      assertThat(second.getAccounts()).extracting("accountId").containsExactly("Id-3");
+      assertThat(second.getAccounts().get(0).getBalance()).isEqualTo("3.00");
+      assertThat(second.getNextCursor()).isNull();
+    } finally {
+      repository.shutdown();
+    }
+  }
+
+  private static AccountsRepositorySequenced open(TransferJournal journal, int ringSize) throws IOException {
+    AccountsRepositorySequenced repository = new AccountsRepositorySequenced(ringSize);
+    repository.setJournal(journal);
+    repository.start();
+    return repository;
+  }
+}
@@ -0,0 +1,126 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountPage;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.repository.AccountsRepositorySharded;
+import com.db.awmd.challenge.validator.FundTransferValidator;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class AccountsRepositoryShardedTest {
+
+  @Autowired
+  private FundTransferValidator validator;
+
+  private AccountsRepositorySharded repository;
+
+  @After
+  public void shutdown() {
+    repository.shutdown();
+  }
+
+  @Test
+  public void transfersAcrossShardsAndKeepsBatchesAllOrNothing() {
+    repository = new AccountsRepositorySharded(8, "");
+    for (int i = 0; i < 8; i++) {
+      repository.createAccount(new Account("Id-" + i, new BigDecimal("100.00")));
+    }
+
+    assertThat(repository.transfer("Id-0", "Id-5", 2_500, validator).getErrors()).isEmpty();
+    assertThat(repository.transfer("Id-0", "Id-missing", 100, validator).getErrors()).hasSize(1);
+    assertThat(repository.transferAll(Arrays.asList(new Transfer("Id-1", "Id-2", new BigDecimal("60.00")),
+      new Transfer("Id-2", "Id-3", new BigDecimal("200.00"))), validator).get(1).getErrors()).hasSize(1);
+    assertThat(repository.transferAll(Arrays.asList(new Transfer("Id-1", "Id-2", new BigDecimal("60.00")),
+      new Transfer("Id-2", "Id-3", new BigDecimal("150.00"))), validator).get(1).getErrors()).isEmpty();
+
+    assertThat(repository.getAccount("Id-0").getBalance()).isEqualTo("75.00");
+    assertThat(repository.getAccount("Id-5").getBalance()).isEqualTo("125.00");
+    assertThat(repository.getAccount("Id-1").getBalance()).isEqualTo("40.00");
+    assertThat(repository.getAccount("Id-2").getBalance()).isEqualTo("10.00");
+    assertThat(repository.getAccount("Id-3").getBalance()).isEqualTo("250.00");
+  }
+
+  @Test
+  public void keepsAccountsOfOneCustomerInOneShard() {
+    repository = new AccountsRepositorySharded(16, ":");
+    repository.createAccount(new Account("customer-1:savings", new BigDecimal("10.00")));
+    repository.createAccount(new Account("customer-1:current", new BigDecimal("10.00")));
+
+    assertThat(repository.getShardStats().stream().filter(stats -> stats.getCompletedOperations() > 0).count()).isEqualTo(1);
+  }
+
+  @Test
+  public void concurrentTransfersAndBatchesConserveMoney() throws Exception {
+    repository = new AccountsRepositorySharded(4, "");
+    for (int i = 0; i < 16; i++) {
+      repository.createAccount(new Account("Id-" + i, new BigDecimal("1000.00")));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<?>> workers = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      final boolean batches = t % 2 == 0;
+      workers.add(executor.submit(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 20_000; i++) {
+          if (batches) {
+            repository.transferAll(Arrays.asList(
+              new Transfer("Id-" + random.nextInt(16), "Id-" + random.nextInt(16), new BigDecimal("1.00")),
+              new Transfer("Id-" + random.nextInt(16), "Id-" + random.nextInt(16), new BigDecimal("2.00"))), validator);
+          } else {
+            repository.transfer("Id-" + random.nextInt(16), "Id-" + random.nextInt(16), random.nextInt(1, 5_000), validator);
+          }
+        }
+        return null;
+      }));
+    }
+    for (Future<?> worker : workers) {
+      worker.get();
+    }
+    executor.shutdown();
+
+    BigDecimal total = BigDecimal.ZERO;
+    for (int i = 0; i < 16; i++) {
+      total = total.add(repository.getAccount("Id-" + i).getBalance());
+    }
+    assertThat(total).isEqualByComparingTo("16000.00");
+  }
+
+  @Test
+  public void listsAccountsOfAllShardsInIdOrder() {
+    repository = new AccountsRepositorySharded(4, "");
+    for (int i = 9; i >= 0; i--) {
+      repository.createAccount(new Account("Id-" + i, BigDecimal.valueOf(i)));
+    }
+
+    List<String> listed = new ArrayList<>();
+    String cursor = null;
+    do {
+      AccountPage page = repository.listAccounts(cursor, 4);
+      assertThat(page.getAccounts().size()).isLessThanOrEqualTo(4);
+      page.getAccounts().forEach(account -> listed.add(account.getAccountId()));
+      cursor = page.getNextCursor();
+    } while (cursor != null);
+
+    assertThat(listed).containsExactly("Id-0", "Id-1", "Id-2", "Id-3", "Id-4", "Id-5", "Id-6", "Id-7", "Id-8", "Id-9");
+    assertThat(repository.listAccounts("Id-8", 4).getAccounts().get(0).getBalance()).isEqualTo("9.00");
+  }
+}
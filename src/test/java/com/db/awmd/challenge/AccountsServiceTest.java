@@ -3,17 +3,19 @@ package com.db.awmd.challenge;
 import com.db.awmd.challenge.domain.Account;
 import com.db.awmd.challenge.domain.Transfer;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
-import com.db.awmd.challenge.exception.InsufficientFundException;
-import com.db.awmd.challenge.exception.NoAccountFoundException;
-import com.db.awmd.challenge.exception.SameAccountFoundException;
+import com.db.awmd.challenge.exception.Response;
+import com.db.awmd.challenge.exception.ValidationResult;
 import com.db.awmd.challenge.service.AccountsService;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
@@ -22,6 +24,8 @@ import static org.junit.Assert.fail;
 @SpringBootTest
 public class AccountsServiceTest {
 
+  private static final AtomicInteger ACCOUNT_SEQUENCE = new AtomicInteger();
+
   @Autowired
   private AccountsService accountsService;
 
@@ -31,7 +35,9 @@ public class AccountsServiceTest {
     account.setBalance(new BigDecimal(1000));
     this.accountsService.createAccount(account);
 
-    assertThat(this.accountsService.getAccount("Id-123")).isEqualTo(account);
+    Account created = this.accountsService.getAccount("Id-123");
+    assertThat(created.getAccountId()).isEqualTo(account.getAccountId());
+    assertThat(created.getBalance()).isEqualByComparingTo(account.getBalance());
   }
 
   @Test
@@ -56,8 +62,8 @@ public class AccountsServiceTest {
 
     this.accountsService.transfer(transfer);
 
-    assertThat(fromAccount.getBalance()).isEqualTo("2500.00");
-    assertThat(toAccount.getBalance()).isEqualTo("5000.00");
+    assertThat(accountsService.getAccount(fromAccount.getAccountId()).getBalance()).isEqualTo("2500.00");
+    assertThat(accountsService.getAccount(toAccount.getAccountId()).getBalance()).isEqualTo("5000.00");
   }
 
 
@@ -66,11 +72,7 @@ public class AccountsServiceTest {
     Account toAccount = createAccountForTransfer(new BigDecimal(5000.00));
     Transfer transfer = new Transfer("acc-2", toAccount.getAccountId(), toAccount.getBalance());
 
-    try {
-      this.accountsService.transfer(transfer);
-    } catch (NoAccountFoundException e) {
-      assertThat(e.getMessage()).isEqualTo("From-Account [" + transfer.getAccountFromId() + "] not exist.");
-    }
+    assertRejected(this.accountsService.transfer(transfer), ValidationResult.ACCOUNT_NOT_FOUND, "Account not exist.");
   }
 
   @Test
@@ -78,23 +80,14 @@ public class AccountsServiceTest {
     Account fromAccount = createAccountForTransfer(new BigDecimal(5000.00));
     Transfer transfer = new Transfer(fromAccount.getAccountId(), "acc-2", fromAccount.getBalance());
 
-    try {
-      this.accountsService.transfer(transfer);
-    } catch (NoAccountFoundException e) {
-      assertThat(e.getMessage()).isEqualTo("From-Account [" + transfer.getAccountToId() + "] not exist.");
-    }
+    assertRejected(this.accountsService.transfer(transfer), ValidationResult.ACCOUNT_NOT_FOUND, "Account not exist.");
   }
 
   @Test
   public void transferShouldGiveValidationErrorWhenBothAccountIsNotExist() throws Exception {
     Transfer transfer = new Transfer("acc-1", "acc-2", new BigDecimal(5000.00));
 
-    try {
-      this.accountsService.transfer(transfer);
-    } catch (NoAccountFoundException e) {
-      assertThat(e.getMessage()).isEqualTo("From-Account [" + transfer.getAccountFromId() + "] not exist.");
-    }
-
+    assertRejected(this.accountsService.transfer(transfer), ValidationResult.ACCOUNT_NOT_FOUND, "Account not exist.");
   }
 
   @Test
@@ -102,11 +95,7 @@ public class AccountsServiceTest {
     Account account = createAccountForTransfer(new BigDecimal(5000));
     Transfer transfer = new Transfer(account.getAccountId(), account.getAccountId(), account.getBalance());
 
-    try {
-      this.accountsService.transfer(transfer);
-    } catch (SameAccountFoundException e) {
-      assertThat(e.getMessage()).isEqualTo("Transfer to self not permitted.");
-    }
+    assertRejected(this.accountsService.transfer(transfer), ValidationResult.SAME_ACCOUNT, "Transfer to self not permitted.");
   }
 
   @Test
@@ -115,17 +104,22 @@ public class AccountsServiceTest {
     Account toAccount = createAccountForTransfer(new BigDecimal(2500));
     Transfer transfer = new Transfer(fromAccount.getAccountId(), toAccount.getAccountId(), new BigDecimal(10000.00));
 
-    try {
-      this.accountsService.transfer(transfer);
-    } catch (InsufficientFundException e) {
-      assertThat(e.getMessage()).isEqualTo("Insufficient funds on account [" + fromAccount.getAccountId() +
-              "], available balance= "+ fromAccount.getBalance());
-    }
+    assertRejected(this.accountsService.transfer(transfer), ValidationResult.INSUFFICIENT_FUNDS,
+            "Insufficient funds on account [" + fromAccount.getAccountId() + "], available balance= 5000.00");
+  }
 
+  private static void assertRejected(ResponseEntity entity, ValidationResult result, String description) {
+    assertThat(entity.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    Response response = (Response) entity.getBody();
+    assertThat(response.getResult()).isEqualTo(result);
+    assertThat(response.getErrors()).hasSize(1);
+    assertThat(response.getErrors().get(0).getCode()).isEqualTo(result.getCode());
+    assertThat(response.getErrors().get(0).getDescription()).isEqualTo(description);
   }
 
   private Account createAccountForTransfer(BigDecimal amount) {
-    String uniqueAccountId = Long.toString(System.currentTimeMillis() + amount.intValue());
+    // Accounts are not cleared between tests, so the time alone can repeat.
+    String uniqueAccountId = System.currentTimeMillis() + "-" + ACCOUNT_SEQUENCE.incrementAndGet();
     Account account = new Account(uniqueAccountId, amount);
     this.accountsService.createAccount(account);
     return account;
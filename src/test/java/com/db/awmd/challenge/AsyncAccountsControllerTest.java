@@ -0,0 +1,114 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.utility.TransferCodec;
+import com.db.awmd.challenge.web.AccountsController;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "web.execution-mode=async")
+@WebAppConfiguration
+public class AsyncAccountsControllerTest {
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private AccountsService accountsService;
+
+  @Autowired
+  private WebApplicationContext webApplicationContext;
+
+  @Before
+  public void prepareMockMvc() {
+    this.mockMvc = webAppContextSetup(this.webApplicationContext).build();
+
+    accountsService.clearAccounts();
+  }
+
+  @Test
+  public void blockingControllerIsReplaced() {
+    assertThat(webApplicationContext.getBeanNamesForType(AccountsController.class)).isEmpty();
+  }
+
+  @Test
+  public void createAccountAndTransfer() throws Exception {
+    performAsync(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
+      .content("{\"accountId\":\"Id-1\",\"balance\":1000}"))
+      .andExpect(status().isCreated());
+    performAsync(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
+      .content("{\"accountId\":\"Id-2\",\"balance\":0}"))
+      .andExpect(status().isCreated());
+
+    performAsync(put("/v1/accounts/transfer").contentType(MediaType.APPLICATION_JSON)
+      .content("{\"accountFromId\":\"Id-1\",\"accountToId\":\"Id-2\",\"amount\":250}"))
+      .andExpect(status().isOk());
+
+    performAsync(get("/v1/accounts/Id-2"))
+      .andExpect(status().isOk())
+      .andExpect(content().string("{\"accountId\":\"Id-2\",\"balance\":250.00}"));
+  }
+
+  @Test
+  public void rejectedTransferKeepsErrorResponse() throws Exception {
+    accountsService.createAccount(new Account("Id-1", new BigDecimal("10.00")));
+    accountsService.createAccount(new Account("Id-2", new BigDecimal("10.00")));
+
+    performAsync(put("/v1/accounts/transfer").contentType(MediaType.APPLICATION_JSON)
+      .content("{\"accountFromId\":\"Id-1\",\"accountToId\":\"Id-2\",\"amount\":250}"))
+      .andExpect(status().isBadRequest())
+      .andExpect(jsonPath("$.errors[*].code", contains("Fund")));
+  }
+
+  @Test
+  public void binaryTransfer() throws Exception {
+    accountsService.createAccount(new Account("Id-1", new BigDecimal("10.00")));
+    accountsService.createAccount(new Account("Id-2", new BigDecimal("10.00")));
+    ByteBuffer transfer = ByteBuffer.allocate(64);
+    TransferCodec.encode(transfer, "Id-1", "Id-2", 250, null);
+
+    performAsync(put("/v1/accounts/transfer").contentType(TransferCodec.MEDIA_TYPE)
+      .content(Arrays.copyOf(transfer.array(), transfer.position())))
+      .andExpect(status().isOk())
+      .andExpect(content().bytes(new byte[] {TransferCodec.OK, 0, 0, 0, 0, 0, 0, 0, 0}));
+    assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualTo("12.50");
+  }
+
+  @Test
+  public void importRunsOnTheServletThread() throws Exception {
+    String body = "{\"accountId\":\"Id-1\",\"balance\":1}\n{\"accountId\":\"Id-2\",\"balance\":2}\n";
+
+    this.mockMvc.perform(post("/v1/accounts/import").contentType("application/x-ndjson").content(body))
+      .andExpect(request().asyncNotStarted())
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.created").value(2));
+    assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo("2");
+  }
+
+  private ResultActions performAsync(RequestBuilder request) throws Exception {
+    MvcResult started = this.mockMvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+    return this.mockMvc.perform(asyncDispatch(started));
+  }
+}
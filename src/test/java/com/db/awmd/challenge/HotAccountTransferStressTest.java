@@ -0,0 +1,7 @@
+package com.db.awmd.challenge;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = {"accounts.hot.account-ids=stress-0,stress-1", "accounts.hot.cells=8"})
+public class HotAccountTransferStressTest extends TransferStressTest {
+}
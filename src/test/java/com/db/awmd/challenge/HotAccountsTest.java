@@ -0,0 +1,72 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.exception.Response;
+import com.db.awmd.challenge.exception.ValidationResult;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.validator.FundTransferValidator;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class HotAccountsTest {
+
+  @Autowired
+  private FundTransferValidator validator;
+
+  private AccountsRepositoryInMemory repository;
+
+  @Before
+  public void createAccounts() {
+    repository = new AccountsRepositoryInMemory();
+    repository.configureHotAccounts(new String[]{"fees"}, 8);
+    repository.createAccount(new Account("fees", new BigDecimal("100.00")));
+    repository.createAccount(new Account("Id-1", new BigDecimal("0.00")));
+  }
+
+  @Test
+  public void debitLargerThanAnyCellDrawsOnAllOfThem() {
+    // 12.50 in each of the 8 cells.
+    assertThat(repository.transfer("fees", "Id-1", 9_999, validator).isAccepted()).isTrue();
+    assertThat(repository.getAccount("fees").getBalance()).isEqualTo("0.01");
+
+    Response overdraft = repository.transfer("fees", "Id-1", 2, validator);
+    assertThat(overdraft.isAccepted()).isFalse();
+    assertThat(overdraft.getResult()).isEqualTo(ValidationResult.INSUFFICIENT_FUNDS);
+    assertThat(repository.transfer("fees", "Id-1", 1, validator).isAccepted()).isTrue();
+    assertThat(repository.getAccount("fees").getBalance()).isEqualTo("0.00");
+    assertThat(repository.getAccount("Id-1").getBalance()).isEqualTo("100.00");
+  }
+
+  @Test
+  public void creditsAndBatchesSeeTheWholeBalance() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      repository.transfer("fees", "Id-1", 100, validator);
+      repository.transfer("Id-1", "fees", 50, validator);
+    }
+    assertThat(repository.getAccount("fees").getBalance()).isEqualTo("50.00");
+
+    assertThat(repository.transferAll(Arrays.asList(
+      new Transfer("fees", "Id-1", new BigDecimal("50.00")),
+      new Transfer("Id-1", "fees", new BigDecimal("100.00"))), validator))
+      .extracting(Response::isAccepted).containsOnly(true);
+
+    Map<String, Long> exported = new HashMap<>();
+    repository.exportAccounts(exported::put);
+    assertThat(exported).containsOnly(entry("fees", 10_000L), entry("Id-1", 0L));
+  }
+}
@@ -0,0 +1,151 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.exception.Response;
+import com.db.awmd.challenge.exception.TransferIdReusedException;
+import com.db.awmd.challenge.service.IdempotencyCache;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class IdempotencyCacheTest {
+
+  @Test
+  public void concurrentDuplicatesRunTheTransferOnce() throws Exception {
+    IdempotencyCache cache = new IdempotencyCache(1024, 60);
+    AtomicInteger runs = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<Response>> results = new ArrayList<>();
+
+    for (int i = 0; i < 8; i++) {
+      results.add(executor.submit(() -> {
+        start.await();
+        return cache.execute("transfer-1", "Id-1", "Id-2", 42, () -> {
+          runs.incrementAndGet();
+          sleep(50);
+          return new Response();
+        });
+      }));
+    }
+    start.countDown();
+    Response first = results.get(0).get();
+    for (Future<Response> result : results) {
+      assertThat(result.get()).isSameAs(first);
+    }
+    executor.shutdown();
+
+    assertThat(runs.get()).isEqualTo(1);
+    assertThat(cache.getStats().getMisses()).isEqualTo(1);
+    assertThat(cache.getStats().getHits()).isEqualTo(7);
+  }
+
+  @Test
+  public void rejectsTransferIdReusedForAnotherTransfer() {
+    IdempotencyCache cache = new IdempotencyCache(1024, 60);
+    cache.execute("transfer-1", "Id-1", "Id-2", 42, Response::new);
+    try {
+      cache.execute("transfer-1", "Id-1", "Id-2", 43, Response::new);
+      fail("Should have rejected the reused transfer id");
+    } catch (TransferIdReusedException ex) {
+      assertThat(ex.getMessage()).contains("transfer-1");
+    }
+    // "Aa" and "BB" have the same hash code.
+    cache.execute("transfer-2", "Aa", "Id-2", 42, Response::new);
+    try {
+      cache.execute("transfer-2", "BB", "Id-2", 42, Response::new);
+      fail("Should have rejected the reused transfer id");
+    } catch (TransferIdReusedException ex) {
+      assertThat(ex.getMessage()).contains("transfer-2");
+    }
+  }
+
+  @Test
+  public void evictsExpiredAndOldestEntries() {
+    IdempotencyCache expiring = new IdempotencyCache(1024, 0);
+    AtomicInteger runs = new AtomicInteger();
+    expiring.execute("transfer-1", "Id-1", "Id-2", 42, () -> count(runs));
+    expiring.execute("transfer-1", "Id-1", "Id-2", 42, () -> count(runs));
+    assertThat(runs.get()).isEqualTo(2);
+    assertThat(expiring.getStats().getEvictions()).isEqualTo(1);
+
+    IdempotencyCache bounded = new IdempotencyCache(4, 60);
+    for (int i = 0; i < 10; i++) {
+      bounded.execute("transfer-" + i, "Id-1", "Id-2", i, Response::new);
+    }
+    assertThat(bounded.getStats().getSize()).isEqualTo(4);
+    assertThat(bounded.getStats().getEvictions()).isEqualTo(6);
+  }
+
+  @Test
+  public void retriesAfterTheFirstAttemptFailed() {
+    IdempotencyCache cache = new IdempotencyCache(1024, 60);
+    try {
+      cache.execute("transfer-1", "Id-1", "Id-2", 42, () -> {
+        throw new IllegalStateException("repository unavailable");
+      });
+      fail("Should have propagated the failure");
+    } catch (IllegalStateException expected) {
+      // The failed attempt must not be remembered.
+    }
+    AtomicInteger runs = new AtomicInteger();
+    cache.execute("transfer-1", "Id-1", "Id-2", 42, () -> count(runs));
+    assertThat(runs.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void neverEvictsTransfersStillRunning() throws Exception {
+    IdempotencyCache cache = new IdempotencyCache(2, 60);
+    AtomicInteger runs = new AtomicInteger();
+    CountDownLatch running = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<Response> slow = executor.submit(() -> cache.execute("transfer-slow", "Id-1", "Id-2", 1, () -> {
+      running.countDown();
+      await(release);
+      return count(runs);
+    }));
+    running.await();
+
+    for (int i = 0; i < 10; i++) {
+      cache.execute("transfer-" + i, "Id-1", "Id-2", i, Response::new);
+    }
+    assertThat(cache.getStats().getSize()).isEqualTo(2);
+    assertThat(cache.getStats().getPending()).isEqualTo(1);
+
+    release.countDown();
+    Response first = slow.get();
+    assertThat(cache.execute("transfer-slow", "Id-1", "Id-2", 1, () -> count(runs))).isSameAs(first);
+    assertThat(runs.get()).isEqualTo(1);
+    executor.shutdown();
+  }
+
+  private static Response count(AtomicInteger runs) {
+    runs.incrementAndGet();
+    return new Response();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
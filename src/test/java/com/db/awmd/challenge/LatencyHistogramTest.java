@@ -0,0 +1,44 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.LatencySummary;
+import com.db.awmd.challenge.utility.LatencyHistogram;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void percentilesStayWithinBucketPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long micros = 1; micros <= 10_000; micros++) {
+      histogram.record(micros * 1000);
+    }
+
+    LatencySummary summary = histogram.summarize();
+    assertThat(summary.getCount()).isEqualTo(10_000);
+    assertThat(summary.getMeanNanos()).isEqualTo(5_000_500);
+    assertThat(summary.getMaxNanos()).isEqualTo(10_000_000);
+    assertThat(summary.getP50Nanos()).isCloseTo(5_000_000L, within(160_000L));
+    assertThat(summary.getP99Nanos()).isCloseTo(9_900_000L, within(310_000L));
+    assertThat(summary.getP999Nanos()).isBetween(9_990_000L, 10_000_000L);
+  }
+
+  @Test
+  public void clampsOutOfRangeValues() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+    histogram.record(Long.MAX_VALUE);
+
+    LatencySummary summary = histogram.summarize();
+    assertThat(summary.getCount()).isEqualTo(2);
+    assertThat(summary.getP50Nanos()).isEqualTo(0);
+    assertThat(summary.getMaxNanos()).isEqualTo((1L << 42) - 1);
+  }
+
+  @Test
+  public void emptyHistogramSummarizesToZero() {
+    assertThat(new LatencyHistogram().summarize().getCount()).isZero();
+  }
+}
@@ -0,0 +1,87 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.service.NotificationDispatcher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NotificationDispatcherTest {
+
+  private final AccountsRepositoryInMemory accountsRepository = new AccountsRepositoryInMemory();
+
+  private final List<String> sent = new CopyOnWriteArrayList<>();
+
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private NotificationDispatcher dispatcher;
+
+  @Before
+  public void createAccounts() {
+    accountsRepository.createAccount(new Account("Id-1", new BigDecimal("100.00")));
+    accountsRepository.createAccount(new Account("Id-2", new BigDecimal("100.00")));
+  }
+
+  @After
+  public void shutdown() throws InterruptedException {
+    release.countDown();
+    dispatcher.shutdown();
+  }
+
+  @Test
+  public void coalescesNotificationsPerAccountWithinWindow() throws Exception {
+    dispatcher = new NotificationDispatcher((account, description) -> sent.add(account.getAccountId() + ":" + description),
+      accountsRepository, 16, 1, 200, "drop-newest", 0);
+
+    dispatcher.transferCompleted("Id-1", "Id-2", 100);
+    dispatcher.transferCompleted("Id-1", "Id-2", 250);
+    dispatcher.transferCompleted("Id-1", "Id-2", 1);
+
+    await(() -> dispatcher.getStats().getNotificationsSent() == 2);
+    assertThat(sent).hasSize(2);
+    assertThat(sent.get(0)).startsWith("Id-1:").contains("amount[1.00]", "amount[2.50]", "amount[0.01]");
+    assertThat(sent.get(1)).startsWith("Id-2:").contains("Account [Id-1] has transferred amount[2.50]");
+    assertThat(dispatcher.getStats().getDispatched()).isEqualTo(3);
+  }
+
+  @Test
+  public void dropsNewestWhenQueueIsFullWithoutWaitingForNotifier() throws Exception {
+    dispatcher = new NotificationDispatcher((account, description) -> awaitRelease(),
+      accountsRepository, 2, 1, 0, "drop-newest", 0);
+
+    dispatcher.transferCompleted("Id-1", "Id-2", 100);
+    await(() -> dispatcher.getStats().getDispatched() == 1);
+
+    // The only worker is stuck in the notifier, so the queue fills up and then drops.
+    assertThat(dispatcher.transferCompleted("Id-1", "Id-2", 100)).isTrue();
+    assertThat(dispatcher.transferCompleted("Id-1", "Id-2", 100)).isTrue();
+    assertThat(dispatcher.transferCompleted("Id-1", "Id-2", 100)).isFalse();
+    assertThat(dispatcher.getStats().getQueueDepth()).isEqualTo(2);
+    assertThat(dispatcher.getStats().getDropped()).isEqualTo(1);
+  }
+
+  private void awaitRelease() {
+    try {
+      release.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (!condition.getAsBoolean()) {
+      assertThat(System.currentTimeMillis()).isLessThan(deadline);
+      Thread.sleep(5);
+    }
+  }
+}
@@ -0,0 +1,7 @@
+package com.db.awmd.challenge;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = "accounts.repository.mode=offheap")
+public class OffHeapTransferStressTest extends TransferStressTest {
+}
@@ -0,0 +1,57 @@
+package com.db.awmd.challenge;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.db.awmd.challenge.web.RequestLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RequestLoggerTest {
+
+  private final Logger logger = (Logger) LoggerFactory.getLogger(RequestLogger.class);
+  private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+  @Before
+  public void attach() {
+    appender.start();
+    logger.addAppender(appender);
+  }
+
+  @After
+  public void detach() {
+    logger.detachAppender(appender);
+  }
+
+  @Test
+  public void sampledModeCapsLinesPerSecond() {
+    RequestLogger requestLogger = new RequestLogger("sampled", 1, 3, 1000);
+
+    for (int i = 0; i < 10; i++) {
+      requestLogger.request("Transfer", "OK", "transfer-" + i, System.nanoTime());
+    }
+
+    // All ten normally fall into one second; allow for crossing into the next.
+    assertThat(appender.list.size()).isBetween(3, 6);
+    assertThat(requestLogger.getSuppressed()).isEqualTo(10 - appender.list.size());
+  }
+
+  @Test
+  public void slowRequestsAreAlwaysLoggedInFull() {
+    RequestLogger requestLogger = new RequestLogger("off", 100, 0, 5);
+
+    requestLogger.request("Transfer", "OK", "fast transfer", System.nanoTime());
+    requestLogger.request("Transfer", "OK", "slow transfer", System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(6));
+
+    assertThat(appender.list).hasSize(1);
+    assertThat(appender.list.get(0).getLevel()).isEqualTo(Level.WARN);
+    assertThat(appender.list.get(0).getFormattedMessage()).startsWith("Slow Transfer OK in ").endsWith("slow transfer");
+  }
+}
@@ -0,0 +1,123 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.SnapshotStore;
+import com.db.awmd.challenge.repository.TransferJournal;
+import com.db.awmd.challenge.validator.FundTransferValidator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class SnapshotTest {
+
+  private static final int ACCOUNTS = 8;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Autowired
+  private FundTransferValidator validator;
+
+  @Test
+  public void startsFromSnapshotAndReplaysOnlyTheTail() throws Exception {
+    Path journalPath = folder.getRoot().toPath().resolve("accounts.journal");
+    SnapshotStore snapshots = new SnapshotStore(folder.newFolder().toPath(), 2, 0);
+
+    try (TransferJournal journal = new TransferJournal(journalPath, TransferJournal.Durability.GROUP, 100)) {
+      AccountsRepositoryInMemory repository = open(journal, snapshots);
+      repository.createAccount(new Account("Id-1", new BigDecimal("100.00")));
+      repository.createAccount(new Account("Id-2", new BigDecimal("50.00")));
+      repository.transfer("Id-1", "Id-2", 2_550, validator);
+      assertThat(repository.snapshot()).isEqualTo(2);
+      repository.createAccount(new Account("Id-3", new BigDecimal("0.00")));
+      repository.transfer("Id-2", "Id-3", 1_000, validator);
+    }
+
+    Map<String, Long> snapshot = new HashMap<>();
+    snapshots.load(Long.MAX_VALUE, snapshot::put);
+    assertThat(snapshot).containsOnly(entry("Id-1", 7_450L), entry("Id-2", 7_550L));
+
+    try (TransferJournal journal = new TransferJournal(journalPath, TransferJournal.Durability.GROUP, 100)) {
+      AccountsRepositoryInMemory repository = open(journal, snapshots);
+      assertThat(repository.getAccount("Id-1").getBalance()).isEqualTo("74.50");
+      assertThat(repository.getAccount("Id-2").getBalance()).isEqualTo("65.50");
+      assertThat(repository.getAccount("Id-3").getBalance()).isEqualTo("10.00");
+    }
+  }
+
+  @Test
+  public void snapshotsTakenDuringTransfersAreConsistent() throws Exception {
+    Path journalPath = folder.getRoot().toPath().resolve("accounts.journal");
+    SnapshotStore snapshots = new SnapshotStore(folder.newFolder().toPath(), 1, 0);
+    Map<String, BigDecimal> live = new HashMap<>();
+
+    try (TransferJournal journal = new TransferJournal(journalPath, TransferJournal.Durability.ASYNC, 0)) {
+      AccountsRepositoryInMemory repository = open(journal, snapshots);
+      for (int i = 0; i < ACCOUNTS; i++) {
+        repository.createAccount(new Account("Id-" + i, new BigDecimal("1000.00")));
+      }
+
+      AtomicBoolean running = new AtomicBoolean(true);
+      Thread[] workers = new Thread[4];
+      for (int t = 0; t < workers.length; t++) {
+        workers[t] = new Thread(() -> {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          while (running.get()) {
+            repository.transfer("Id-" + random.nextInt(ACCOUNTS), "Id-" + random.nextInt(ACCOUNTS),
+              1 + random.nextInt(5_000), validator);
+          }
+        });
+        workers[t].start();
+      }
+
+      for (int i = 0; i < 20; i++) {
+        repository.snapshot();
+        Map<String, Long> snapshot = new HashMap<>();
+        snapshots.load(Long.MAX_VALUE, snapshot::put);
+        assertThat(snapshot).hasSize(ACCOUNTS);
+        assertThat(snapshot.values().stream().mapToLong(Long::longValue).sum()).isEqualTo(ACCOUNTS * 100_000L);
+      }
+
+      running.set(false);
+      for (Thread worker : workers) {
+        worker.join();
+      }
+      for (int i = 0; i < ACCOUNTS; i++) {
+        live.put("Id-" + i, repository.getAccount("Id-" + i).getBalance());
+      }
+    }
+
+    try (TransferJournal journal = new TransferJournal(journalPath, TransferJournal.Durability.ASYNC, 0)) {
+      AccountsRepositoryInMemory repository = open(journal, snapshots);
+      for (int i = 0; i < ACCOUNTS; i++) {
+        assertThat(repository.getAccount("Id-" + i).getBalance()).isEqualTo(live.get("Id-" + i));
+      }
+    }
+  }
+
+  private static AccountsRepositoryInMemory open(TransferJournal journal, SnapshotStore snapshots) throws IOException {
+    AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+    repository.setJournal(journal);
+    repository.setSnapshots(snapshots);
+    repository.recover();
+    return repository;
+  }
+}
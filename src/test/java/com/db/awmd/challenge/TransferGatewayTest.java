@@ -0,0 +1,102 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.gateway.TransferGateway;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.utility.TransferCodec;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"gateway.enabled=true", "gateway.port=0", "gateway.bind-address=127.0.0.1"})
+public class TransferGatewayTest {
+
+  @Autowired
+  private AccountsService accountsService;
+
+  @Autowired
+  private TransferGateway gateway;
+
+  @Before
+  public void createAccounts() {
+    accountsService.clearAccounts();
+    accountsService.createAccount(new Account("Id-1", new BigDecimal("10.00")));
+    accountsService.createAccount(new Account("Id-2", new BigDecimal("0.00")));
+  }
+
+  @Test
+  public void pipelinedTransfersAreAnsweredInOrder() throws Exception {
+    try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", gateway.getPort()))) {
+      ByteBuffer requests = ByteBuffer.allocate(1024);
+      frame(requests, "Id-1", "Id-2", 400, null);
+      frame(requests, "Id-1", "Id-missing", 100, null);
+      frame(requests, "Id-1", "Id-2", 50, null);
+      frame(requests, "Id-1", "Id-2", 700, null);
+      frame(requests, "Id-1", "Id-2", 100, "gateway-1");
+      frame(requests, "Id-1", "Id-2", 100, "gateway-1");
+      requests.flip();
+      while (requests.hasRemaining()) {
+        channel.write(requests);
+      }
+
+      ByteBuffer responses = read(channel, 6 * TransferCodec.RESPONSE_LENGTH);
+      assertThat(responses.get()).isEqualTo(TransferCodec.OK);
+      assertThat(responses.getLong()).isZero();
+      assertThat(responses.get()).isEqualTo(TransferCodec.ACCOUNT_NOT_FOUND);
+      assertThat(responses.getLong()).isZero();
+      assertThat(responses.get()).isEqualTo(TransferCodec.INVALID_REQUEST);
+      assertThat(responses.getLong()).isZero();
+      assertThat(responses.get()).isEqualTo(TransferCodec.INSUFFICIENT_FUNDS);
+      assertThat(responses.getLong()).isEqualTo(600);
+      assertThat(responses.get()).isEqualTo(TransferCodec.OK);
+      assertThat(responses.getLong()).isZero();
+      // The retry of an idempotent transfer gets the first response and moves nothing.
+      assertThat(responses.get()).isEqualTo(TransferCodec.OK);
+      assertThat(responses.getLong()).isZero();
+    }
+
+    assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualTo("5.00");
+    assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualTo("5.00");
+    assertThat(gateway.getStats().getTransfers()).isGreaterThanOrEqualTo(6);
+  }
+
+  @Test
+  public void emptyFrameClosesTheConnection() throws Exception {
+    try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", gateway.getPort()))) {
+      channel.write(ByteBuffer.wrap(new byte[] {0, 0}));
+      assertThat(channel.read(ByteBuffer.allocate(16))).isEqualTo(-1);
+    }
+    assertThat(gateway.getStats().getProtocolErrors()).isPositive();
+  }
+
+  private static void frame(ByteBuffer buffer, String accountFromId, String accountToId, long amount,
+                            String transferId) {
+    int start = buffer.position();
+    buffer.position(start + 2);
+    TransferCodec.encode(buffer, accountFromId, accountToId, amount, transferId);
+    buffer.putShort(start, (short) (buffer.position() - start - 2));
+  }
+
+  private static ByteBuffer read(SocketChannel channel, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new IOException("Connection closed after " + buffer.position() + " bytes");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+}
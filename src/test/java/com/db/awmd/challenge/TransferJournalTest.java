@@ -0,0 +1,114 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.exception.JournalException;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.TransferJournal;
+import com.db.awmd.challenge.validator.FundTransferValidator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class TransferJournalTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Autowired
+  private FundTransferValidator validator;
+
+  @Test
+  public void replaysAccountsAndTransfersInEveryDurabilityMode() throws Exception {
+    for (TransferJournal.Durability durability : TransferJournal.Durability.values()) {
+      Path path = folder.newFile().toPath();
+      path.toFile().delete();
+
+      try (TransferJournal journal = new TransferJournal(path, durability, 100)) {
+        AccountsRepositoryInMemory repository = open(journal);
+        repository.createAccount(new Account("Id-1", new BigDecimal("100.00")));
+        repository.createAccount(new Account("Id-2", new BigDecimal("50.00")));
+        repository.transfer("Id-1", "Id-2", 2_550, validator);
+        repository.transfer("Id-2", "Id-1", 1_000_000, validator);
+        repository.transferAll(Arrays.asList(new Transfer("Id-2", "Id-1", new BigDecimal("10.00")),
+          new Transfer("Id-1", "Id-2", new BigDecimal("0.01"))), validator);
+      }
+
+      try (TransferJournal journal = new TransferJournal(path, durability, 100)) {
+        AccountsRepositoryInMemory repository = open(journal);
+        assertThat(repository.getAccount("Id-1").getBalance()).isEqualTo("84.49");
+        assertThat(repository.getAccount("Id-2").getBalance()).isEqualTo("65.51");
+      }
+    }
+  }
+
+  @Test
+  public void cutsOffTornTailOnReplay() throws Exception {
+    Path path = folder.newFile().toPath();
+    path.toFile().delete();
+
+    try (TransferJournal journal = new TransferJournal(path, TransferJournal.Durability.FSYNC, 0)) {
+      AccountsRepositoryInMemory repository = open(journal);
+      repository.createAccount(new Account("Id-1", new BigDecimal("100.00")));
+      repository.createAccount(new Account("Id-2", new BigDecimal("0.00")));
+      repository.transfer("Id-1", "Id-2", 1_000, validator);
+    }
+    long intactSize = path.toFile().length();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 40, 1, 2, 3}));
+    }
+
+    try (TransferJournal journal = new TransferJournal(path, TransferJournal.Durability.FSYNC, 0)) {
+      AccountsRepositoryInMemory repository = open(journal);
+      assertThat(repository.getAccount("Id-1").getBalance()).isEqualTo("90.00");
+      assertThat(path.toFile().length()).isEqualTo(intactSize);
+    }
+  }
+
+  @Test
+  public void rejectedAppendLeavesLaterRecordsReplayable() throws Exception {
+    Path path = folder.newFile().toPath();
+    path.toFile().delete();
+
+    char[] longId = new char[0x10000];
+    Arrays.fill(longId, 'x');
+    try (TransferJournal journal = new TransferJournal(path, TransferJournal.Durability.GROUP, 100)) {
+      AccountsRepositoryInMemory repository = open(journal);
+      repository.createAccount(new Account("Id-1", new BigDecimal("100.00")));
+      assertThatThrownBy(() -> journal.appendTransfer("Id-1", new String(longId), 1))
+        .isInstanceOf(JournalException.class);
+      repository.createAccount(new Account("Id-2", new BigDecimal("0.00")));
+      repository.transfer("Id-1", "Id-2", 1_000, validator);
+    }
+
+    try (TransferJournal journal = new TransferJournal(path, TransferJournal.Durability.GROUP, 100)) {
+      AccountsRepositoryInMemory repository = open(journal);
+      assertThat(repository.getAccount("Id-1").getBalance()).isEqualTo("90.00");
+      assertThat(repository.getAccount("Id-2").getBalance()).isEqualTo("10.00");
+    }
+  }
+
+  private static AccountsRepositoryInMemory open(TransferJournal journal) throws IOException {
+    AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+    repository.setJournal(journal);
+    repository.recover();
+    return repository;
+  }
+}
@@ -0,0 +1,108 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.AccountTransactions;
+import com.db.awmd.challenge.domain.LedgerEntry;
+import com.db.awmd.challenge.repository.TransferLedger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransferLedgerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void findsEntriesOfAnAccountFromAllShardsInTimeOrder() throws Exception {
+    try (TransferLedger ledger = new TransferLedger(null, 1)) {
+      List<Thread> threads = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        Thread thread = new Thread(() -> {
+          for (int i = 0; i < 10_000; i++) {
+            ledger.append("Id-hot", "Id-" + (i % 100), 1);
+          }
+        });
+        threads.add(thread);
+        thread.start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      long from = System.currentTimeMillis() + 1;
+      while (System.currentTimeMillis() < from) {
+        Thread.yield();
+      }
+      ledger.append("Id-7", "Id-hot", 250);
+
+      assertThat(ledger.size()).isEqualTo(40_001);
+      AccountTransactions all = ledger.transactions("Id-hot", Long.MIN_VALUE, Long.MAX_VALUE, 1000);
+      assertThat(all.getTransactions()).hasSize(1000);
+      assertThat(all.isTruncated()).isTrue();
+      for (int i = 1; i < all.getTransactions().size(); i++) {
+        assertThat(Instant.parse(all.getTransactions().get(i).getTime()))
+          .isGreaterThanOrEqualTo(Instant.parse(all.getTransactions().get(i - 1).getTime()));
+      }
+
+      AccountTransactions latest = ledger.transactions("Id-hot", from, Long.MAX_VALUE, 10);
+      assertThat(latest.isTruncated()).isFalse();
+      assertThat(latest.getTransactions()).hasSize(1);
+      LedgerEntry entry = latest.getTransactions().get(0);
+      assertThat(entry.getAccountFromId()).isEqualTo("Id-7");
+      assertThat(entry.getAccountToId()).isEqualTo("Id-hot");
+      assertThat(entry.getAmount()).isEqualByComparingTo("2.50");
+
+      assertThat(ledger.transactions("Id-7", Long.MIN_VALUE, from, 1000).getTransactions()).hasSize(400);
+      assertThat(ledger.transactions("Id-unknown", Long.MIN_VALUE, Long.MAX_VALUE, 10).getTransactions()).isEmpty();
+    }
+  }
+
+  @Test
+  public void readsSpilledChunksBack() throws Exception {
+    Path spill = folder.newFolder().toPath();
+    try (TransferLedger ledger = new TransferLedger(spill, 1)) {
+      for (int i = 0; i < 200_000; i++) {
+        ledger.append("Id-" + (i % 3), "Id-" + (3 + i % 5), i);
+      }
+      assertThat(Files.size(spill.resolve("ledger-0-0.spill"))).isGreaterThan(0);
+
+      List<LedgerEntry> entries = ledger.transactions("Id-4", Long.MIN_VALUE, Long.MAX_VALUE, 1000).getTransactions();
+      assertThat(entries).hasSize(1000);
+      for (int i = 0; i < entries.size(); i++) {
+        // Id-4 is the destination of every fifth entry from entry 1 on.
+        assertThat(entries.get(i).getAmount()).isEqualByComparingTo(String.valueOf((1 + 5 * i) / 100.0));
+        assertThat(entries.get(i).getAccountFromId()).isEqualTo("Id-" + ((1 + 5 * i) % 3));
+      }
+    }
+    assertThat(Files.exists(spill.resolve("ledger-0-0.spill"))).isFalse();
+  }
+
+  @Test
+  public void clearDropsEntriesAndSpillFiles() throws Exception {
+    Path spill = folder.newFolder().toPath();
+    try (TransferLedger ledger = new TransferLedger(spill, 1)) {
+      for (int i = 0; i < 200_000; i++) {
+        ledger.append("Id-1", "Id-2", 1);
+      }
+      assertThat(Files.exists(spill.resolve("ledger-0-0.spill"))).isTrue();
+
+      ledger.clear();
+
+      assertThat(Files.exists(spill.resolve("ledger-0-0.spill"))).isFalse();
+      assertThat(ledger.size()).isZero();
+      assertThat(ledger.transactions("Id-1", Long.MIN_VALUE, Long.MAX_VALUE, 10).getTransactions()).isEmpty();
+
+      ledger.append("Id-2", "Id-1", 5);
+      List<LedgerEntry> entries = ledger.transactions("Id-1", Long.MIN_VALUE, Long.MAX_VALUE, 10).getTransactions();
+      assertThat(entries).hasSize(1);
+      assertThat(entries.get(0).getAccountFromId()).isEqualTo("Id-2");
+    }
+  }
+}
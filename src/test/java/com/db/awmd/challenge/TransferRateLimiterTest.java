@@ -0,0 +1,47 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.RateLimits;
+import com.db.awmd.challenge.service.TransferRateLimiter;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransferRateLimiterTest {
+
+  @Test
+  public void noisyAccountIsLimitedWithoutUsingUpTheGlobalLimit() {
+    // One token a minute, so none comes back during the test.
+    TransferRateLimiter limiter = new TransferRateLimiter(0, 1, 0, 1, 1024);
+    limiter.setLimits(new RateLimits(1, 4, 1, 2));
+
+    assertThat(limiter.acquire("noisy")).isZero();
+    assertThat(limiter.acquire("noisy")).isZero();
+    for (int i = 0; i < 100; i++) {
+      assertThat(limiter.acquire("noisy")).isPositive();
+    }
+    assertThat(limiter.acquire("quiet-1")).isZero();
+    assertThat(limiter.acquire("quiet-2")).isZero();
+    // The global burst of 4 is used up now; the account keeps its token for later.
+    assertThat(limiter.acquire("quiet-3")).isPositive();
+    assertThat(limiter.getStats().getAccountRejections()).isEqualTo(100);
+    assertThat(limiter.getStats().getGlobalRejections()).isEqualTo(1);
+
+    limiter.setLimits(new RateLimits(0, 1, 0, 1));
+    assertThat(limiter.acquire("noisy")).isZero();
+  }
+
+  @Test
+  public void idleBucketsAreDroppedWhenTheTableIsFull() throws Exception {
+    TransferRateLimiter limiter = new TransferRateLimiter(0, 1, 1_000, 1, 8);
+    for (int i = 0; i < 8; i++) {
+      assertThat(limiter.acquire("Id-" + i)).isZero();
+    }
+    assertThat(limiter.getStats().getTrackedAccounts()).isEqualTo(8);
+
+    // Every bucket is full again after a millisecond and the table may be swept after 100.
+    Thread.sleep(150);
+    assertThat(limiter.acquire("Id-8")).isZero();
+    assertThat(limiter.getStats().getTrackedAccounts()).isEqualTo(1);
+    assertThat(limiter.getStats().getEvictions()).isEqualTo(8);
+  }
+}
@@ -0,0 +1,129 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.validator.FundTransferValidator;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class TransferStressTest {
+
+  private static final int ACCOUNTS = 16;
+  private static final int THREADS = 8;
+  private static final int TRANSFERS_PER_THREAD = 250_000;
+  private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000");
+
+  @Autowired
+  private AccountsService accountsService;
+
+  @Autowired
+  private FundTransferValidator validator;
+
+  private AccountsRepository repository;
+
+  @Before
+  public void createAccounts() {
+    repository = accountsService.getAccountsRepository();
+    repository.clearAccounts();
+    for (int i = 0; i < ACCOUNTS; i++) {
+      repository.createAccount(new Account("stress-" + i, OPENING_BALANCE));
+    }
+  }
+
+  @Test
+  public void randomConcurrentTransfersConserveMoney() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> workers = new ArrayList<>();
+
+    for (int t = 0; t < THREADS; t++) {
+      workers.add(executor.submit(() -> {
+        start.await();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+          int from = random.nextInt(ACCOUNTS);
+          int to = random.nextInt(ACCOUNTS);
+          repository.transfer("stress-" + from, "stress-" + to, random.nextInt(1, 20_000), validator);
+        }
+        return null;
+      }));
+    }
+
+    start.countDown();
+    executor.shutdown();
+    // A lock ordering bug shows up as a deadlock, which fails here instead of hanging the build.
+    assertThat(executor.awaitTermination(5, TimeUnit.MINUTES)).isTrue();
+    for (Future<?> worker : workers) {
+      worker.get();
+    }
+
+    BigDecimal total = BigDecimal.ZERO;
+    for (int i = 0; i < ACCOUNTS; i++) {
+      BigDecimal balance = repository.getAccount("stress-" + i).getBalance();
+      assertThat(balance.signum()).isGreaterThanOrEqualTo(0);
+      total = total.add(balance);
+    }
+    assertThat(total).isEqualByComparingTo(OPENING_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS)));
+  }
+
+  @Test
+  public void exportsDuringTransfersSeeOnePointInTime() throws Exception {
+    // The other repository modes cannot export their accounts.
+    assumeTrue(repository instanceof AccountsRepositoryInMemory);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    AtomicBoolean running = new AtomicBoolean(true);
+    List<Future<?>> workers = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      workers.add(executor.submit(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running.get()) {
+          repository.transfer("stress-" + random.nextInt(ACCOUNTS), "stress-" + random.nextInt(ACCOUNTS),
+            random.nextInt(1, 20_000), validator);
+        }
+        return null;
+      }));
+    }
+
+    try {
+      for (int i = 0; i < 200; i++) {
+        long[] total = new long[1];
+        long exported = repository.exportAccounts((accountId, balance) -> {
+          total[0] += balance;
+          // Gives the transfers time to run while the export is half done.
+          Thread.yield();
+        });
+        assertThat(exported).isEqualTo(ACCOUNTS);
+        assertThat(total[0]).isEqualTo(ACCOUNTS * 100_000L);
+      }
+    } finally {
+      running.set(false);
+      executor.shutdown();
+    }
+    assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+    for (Future<?> worker : workers) {
+      worker.get();
+    }
+  }
+}